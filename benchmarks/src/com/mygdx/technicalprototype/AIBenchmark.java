@@ -0,0 +1,87 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.JsonValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times one update of the enemy AI against swarms of more and more enemies.
+ *
+ * The update steers the swarm with flocking, changes the enemy states and pulls the enemies
+ * towards nearby planets, then hands the forces to Box2D. The physics world is not stepped,
+ * so every invocation sees the same swarm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AIBenchmark {
+    /** Number of enemies in the swarm */
+    @Param({"16", "64", "256", "1024"})
+    public int enemies;
+
+    private World world;
+    private PlanetGrid grid;
+    private AIController ai;
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.start();
+        JsonValue constants = BenchmarkEnvironment.constants();
+        Vector2 scale = BenchmarkEnvironment.SCALE;
+        Vector2 origin = new Vector2();
+        world = new World(new Vector2(), false);
+
+        Rocket ship = new Rocket(origin, 0.1f, null, null, null, constants, scale, 1);
+        ship.setBodyType(BodyDef.BodyType.DynamicBody);
+        ship.setDrawScale(scale);
+        ship.activatePhysics(world);
+
+        // the swarm is spread over the screen around the ship
+        Random random = new Random(42);
+        ArrayList<Enemy> swarm = new ArrayList<>(enemies);
+        for (int i = 0; i < enemies; i++) {
+            Vector2 pos = new Vector2(
+                    (random.nextFloat() - 0.5f) * BenchmarkEnvironment.WIDTH / scale.x,
+                    (random.nextFloat() - 0.5f) * BenchmarkEnvironment.HEIGHT / scale.y);
+            swarm.add(new Enemy(pos, new Vector2[]{}, origin, scale));
+        }
+        ai = new AIController(swarm, ship, world, constants.get("defaults"), constants.get("steering"), scale);
+        for (Enemy e : swarm) {
+            e.activatePhysics(world);
+        }
+        ai.setPhysicsOrigin(origin);
+
+        grid = new PlanetGrid(BenchmarkEnvironment.planets(16, 2 * BenchmarkEnvironment.WIDTH,
+                2 * BenchmarkEnvironment.HEIGHT, 42));
+    }
+
+    @Benchmark
+    public ArrayList<Enemy> update() {
+        return ai.update(grid);
+    }
+
+    @TearDown
+    public void tearDown() {
+        world.dispose();
+    }
+}
@@ -0,0 +1,91 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.mygdx.technicalprototype.desktop.headless.HeadlessGraphics;
+import com.mygdx.technicalprototype.desktop.headless.NullGL20;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * The game state the benchmarks run against.
+ *
+ * Game objects lay themselves out against the screen size and read their textures and
+ * constants from static state, so the benchmarks start the headless backend, report the
+ * size of a 1280x720 window and install a context that draws nothing, as the headless runner
+ * does. Benchmarks run from the assets folder, like the game.
+ */
+public class BenchmarkEnvironment {
+    /** The size of the simulated window */
+    public static final int WIDTH = 1280;
+    public static final int HEIGHT = 720;
+    /** The draw scale of a level on the simulated window */
+    public static final Vector2 SCALE = new Vector2(WIDTH / LevelMode.DEFAULT_WIDTH, HEIGHT / LevelMode.DEFAULT_HEIGHT);
+
+    private static boolean started;
+    private static JsonValue constants;
+
+    /** Starts the backend once per process. Every benchmark calls this in its setup. */
+    public static synchronized void start() {
+        if (started) {
+            return;
+        }
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        config.updatesPerSecond = -1;
+        new HeadlessApplication(new ApplicationAdapter() {}, config);
+        Gdx.app.exit();
+
+        GL20 gl = new NullGL20();
+        Gdx.gl = gl;
+        Gdx.gl20 = gl;
+        Gdx.graphics = new HeadlessGraphics(WIDTH, HEIGHT, gl);
+        Box2D.init();
+
+        TextureRegion blank = new TextureRegion(new Texture(new Pixmap(1, 1, Pixmap.Format.RGBA8888)));
+        AssetController.enemyTexture = blank;
+        constants = new JsonReader().parse(Gdx.files.internal("troy/constants/rocket_constants.json"));
+        started = true;
+    }
+
+    /** Returns the game constants, as read by the level */
+    public static JsonValue constants() {
+        return constants;
+    }
+
+    /**
+     * Scatters planets over a field ahead of the ship, the way levels lay them out
+     *
+     * @param count  the number of planets
+     * @param width  the length of the field in pixels, starting at the ship
+     * @param height the height of the field in pixels, centred on the ship
+     * @param seed   the seed of the layout
+     *
+     * @return the planets, in their level order
+     */
+    public static ArrayList<Planet> planets(int count, float width, float height, long seed) {
+        Random random = new Random(seed);
+        Planet.PlanetColor[] colors = Planet.PlanetColor.values();
+        ArrayList<Planet> planets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Vector2 pos = new Vector2(
+                    (400 + random.nextFloat() * width) / SCALE.x,
+                    (random.nextFloat() - 0.5f) * height / SCALE.y);
+            float radius = 1 + random.nextFloat() * 1.5f;
+            Planet p = new Planet(pos, radius, Vector2.Zero, colors[random.nextInt(colors.length)], 2, -2, 0);
+            p.setDrawScale(SCALE);
+            planets.add(p);
+        }
+        return planets;
+    }
+}
@@ -0,0 +1,117 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times a respawning swarm at full strength, where every invocation kills a batch of enemies
+ * and lets the AI spawn them again from its pool.
+ *
+ * The kills are handed back the way the garbage collection in LevelMode does it, and the
+ * respawned enemies are added back to the world the way LevelMode.addObject does it. Run with
+ * -prof gc to see that a respawn allocates nothing. The forked JVM runs with assertions on,
+ * so that every respawned enemy is checked to be reset and no enemy is recycled twice, and
+ * the world is checked after every iteration to have made no bodies since the swarm was
+ * pre-warmed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-ea")
+public class EnemyPoolBenchmark {
+    /** Enemies killed and respawned by every invocation, one batch of the AI */
+    private static final int KILLED = 3;
+
+    /** Number of enemies in the swarm */
+    @Param({"15", "60", "240"})
+    public int amount;
+
+    private World world;
+    private PlanetGrid grid;
+    private AIController ai;
+    /** Bodies in the world once the swarm is at full strength */
+    private int bodies;
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.start();
+        JsonValue constants = BenchmarkEnvironment.constants();
+        Vector2 scale = BenchmarkEnvironment.SCALE;
+        Vector2 origin = new Vector2();
+        world = new World(new Vector2(), false);
+
+        Rocket ship = new Rocket(origin, 0.1f, null, null, null, constants, scale, 1);
+        ship.setBodyType(BodyDef.BodyType.DynamicBody);
+        ship.setDrawScale(scale);
+        ship.activatePhysics(world);
+
+        ai = new AIController(new ArrayList<Enemy>(), ship, world, constants.get("defaults"),
+                constants.get("steering"), scale);
+        ai.setPhysicsOrigin(origin);
+        ai.triggerSwarm(new Vector2(), amount, 10, 5, true);
+        grid = new PlanetGrid(BenchmarkEnvironment.planets(16, 2 * BenchmarkEnvironment.WIDTH,
+                2 * BenchmarkEnvironment.HEIGHT, 42));
+
+        // spawn the whole swarm before timing
+        ArrayList<Enemy> spawned;
+        while ((spawned = ai.update(grid)) != null) {
+            add(spawned);
+        }
+        bodies = world.getBodyCount();
+    }
+
+    @Benchmark
+    public int respawn() {
+        ArrayList<Enemy> enemies = ai.getEnemies();
+        for (int i = enemies.size() - KILLED; i < enemies.size(); i++) {
+            Enemy e = enemies.get(i);
+            ai.removeEnemy(e);
+            ai.recycle(e);
+        }
+        ArrayList<Enemy> spawned = ai.update(grid);
+        if (spawned != null) {
+            add(spawned);
+        }
+        return ai.getPoolSize();
+    }
+
+    @TearDown(Level.Iteration)
+    public void check() {
+        if (world.getBodyCount() != bodies) {
+            throw new GdxRuntimeException("Respawns made " + (world.getBodyCount() - bodies) + " bodies");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        world.dispose();
+    }
+
+    /** Adds spawned enemies to the world, as LevelMode.addObject does */
+    private void add(ArrayList<Enemy> spawned) {
+        for (int i = 0; i < spawned.size(); i++) {
+            spawned.get(i).activatePhysics(world);
+        }
+    }
+}
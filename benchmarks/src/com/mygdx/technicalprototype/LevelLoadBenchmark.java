@@ -0,0 +1,70 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.JsonReader;
+import com.mygdx.technicalprototype.util.LevelData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times loading a level from its Tiled map.
+ *
+ * parseLevel reads the map into a LevelLoader, which queues its tilesets but does not load
+ * them, and loadLevel creates the game objects of a parsed map. The gradle task runs every map
+ * in troy/levels; run on its own, this only loads the first level.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelLoadBenchmark {
+    /** The map file in troy/levels, without the extension */
+    @Param({"level1"})
+    public String level;
+
+    private final JsonReader reader = new JsonReader();
+    private final Vector2 checkpoint = new Vector2();
+    private String map;
+    private LevelLoader parsed;
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.start();
+        map = Gdx.files.internal("troy/levels/" + level + ".tmj").readString();
+        parsed = new LevelLoader(level, LevelData.fromJson(reader.parse(map)), BenchmarkEnvironment.SCALE);
+    }
+
+    @Benchmark
+    public LevelLoader parseLevel() {
+        LevelLoader loader = new LevelLoader(level, LevelData.fromJson(reader.parse(map)), BenchmarkEnvironment.SCALE);
+        loader.releaseTilesets();
+        return loader;
+    }
+
+    @Benchmark
+    public LevelLoader loadLevel() {
+        parsed.loadLevel(checkpoint);
+        parsed.dispose();
+        return parsed;
+    }
+
+    @TearDown
+    public void tearDown() {
+        parsed.releaseTilesets();
+    }
+}
@@ -0,0 +1,78 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.math.Vector2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the trajectory prediction against fields of more and more planets.
+ *
+ * calculatePath is the full prediction run when a planet changes size, addPath the
+ * extension run every frame once the ship has moved, and moveForward the move of the ship
+ * along a path that is already known.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBenchmark {
+    /** Number of planets on the field */
+    @Param({"4", "16", "64", "256"})
+    public int planets;
+
+    private PlanetGrid grid;
+    private Path path;
+    private final Vector2 position = new Vector2();
+    private final Vector2 velocity = new Vector2(4, 0.5f);
+    private final Vector2 backPosition = new Vector2();
+    private final Vector2 backVelocity = new Vector2(4, 0.5f);
+    /** Direction of the next moveForward, so the ship stays inside the path */
+    private int direction = 1;
+    private int moved;
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.start();
+        // the density of the field stays the same as the planets are added
+        float side = 800 * (float) Math.sqrt(planets);
+        grid = new PlanetGrid(BenchmarkEnvironment.planets(planets, 4 * side, side, 42));
+        path = new Path();
+        path.calculatePath(position, velocity, backPosition, backVelocity, grid);
+    }
+
+    @Benchmark
+    public Path calculatePath() {
+        path.calculatePath(position, velocity, backPosition, backVelocity, grid);
+        return path;
+    }
+
+    @Benchmark
+    public Path addPath() {
+        path.moveForward(1);
+        path.addPath(position, velocity, grid);
+        return path;
+    }
+
+    @Benchmark
+    public Path moveForward() {
+        path.moveForward(direction);
+        if (++moved == 1000) {
+            moved = 0;
+            direction = -direction;
+        }
+        return path;
+    }
+}
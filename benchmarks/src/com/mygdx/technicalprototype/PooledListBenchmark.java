@@ -0,0 +1,197 @@
+package com.mygdx.technicalprototype;
+
+import com.mygdx.technicalprototype.util.PooledList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the PooledList with the standard collections in the ways LevelMode uses it.
+ *
+ * queue runs the objects of a frame through the add queue, iterate visits every object of the
+ * level, and sweep is the garbage collection after the physics step, which drops the removed
+ * objects in place as it visits the others. Every sweep removes one object in REMOVED and adds
+ * it back at the end, so the list keeps its size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PooledListBenchmark {
+    /** One element in this many is removed by a sweep */
+    private static final int REMOVED = 16;
+
+    /** Number of elements in the list */
+    @Param({"16", "256", "4096"})
+    public int size;
+
+    private Integer[] values;
+    private Integer[] removed;
+    private PooledList<Integer> pooled;
+    private ArrayList<Integer> array;
+    private ArrayDeque<Integer> deque;
+    /** The add queues, which are empty between invocations but keep their storage */
+    private PooledList<Integer> pooledQueue;
+    private ArrayList<Integer> arrayQueue;
+    private ArrayDeque<Integer> dequeQueue;
+
+    @Setup
+    public void setup() {
+        values = new Integer[size];
+        removed = new Integer[size];
+        pooled = new PooledList<>();
+        array = new ArrayList<>();
+        deque = new ArrayDeque<>();
+        pooledQueue = new PooledList<>();
+        arrayQueue = new ArrayList<>();
+        dequeQueue = new ArrayDeque<>();
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+            pooled.add(values[i]);
+            array.add(values[i]);
+            deque.add(values[i]);
+        }
+    }
+
+    @Benchmark
+    public int queuePooledList() {
+        PooledList<Integer> queue = pooledQueue;
+        for (int i = 0; i < size; i++) {
+            queue.push(values[i]);
+        }
+        int sum = 0;
+        while (!queue.isEmpty()) {
+            sum += queue.poll();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int queueArrayList() {
+        ArrayList<Integer> queue = arrayQueue;
+        for (int i = 0; i < size; i++) {
+            queue.add(values[i]);
+        }
+        int sum = 0;
+        while (!queue.isEmpty()) {
+            sum += queue.remove(0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int queueArrayDeque() {
+        ArrayDeque<Integer> queue = dequeQueue;
+        for (int i = 0; i < size; i++) {
+            queue.addLast(values[i]);
+        }
+        int sum = 0;
+        while (!queue.isEmpty()) {
+            sum += queue.pollFirst();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int iteratePooledList() {
+        int sum = 0;
+        for (Integer value : pooled) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int iterateArrayList() {
+        int sum = 0;
+        for (int i = 0; i < array.size(); i++) {
+            sum += array.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int iterateArrayDeque() {
+        int sum = 0;
+        for (Integer value : deque) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int sweepPooledList() {
+        int count = 0;
+        int sum = 0;
+        Iterator<PooledList<Integer>.Entry> iterator = pooled.entryIterator();
+        while (iterator.hasNext()) {
+            PooledList<Integer>.Entry entry = iterator.next();
+            Integer value = entry.getValue();
+            if (value % REMOVED == 0) {
+                removed[count++] = value;
+                entry.remove();
+            } else {
+                sum += value;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            pooled.add(removed[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int sweepArrayList() {
+        int count = 0;
+        int sum = 0;
+        Iterator<Integer> iterator = array.iterator();
+        while (iterator.hasNext()) {
+            Integer value = iterator.next();
+            if (value % REMOVED == 0) {
+                removed[count++] = value;
+                iterator.remove();
+            } else {
+                sum += value;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            array.add(removed[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int sweepArrayDeque() {
+        int count = 0;
+        int sum = 0;
+        Iterator<Integer> iterator = deque.iterator();
+        while (iterator.hasNext()) {
+            Integer value = iterator.next();
+            if (value % REMOVED == 0) {
+                removed[count++] = value;
+                iterator.remove();
+            } else {
+                sum += value;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            deque.add(removed[i]);
+        }
+        return sum;
+    }
+}
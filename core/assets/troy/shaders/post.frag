@@ -0,0 +1,66 @@
+#ifdef GL_ES
+precision mediump float;
+#endif
+
+// Composes every screen effect of a level in one pass. The effects that are
+// off this frame are compiled out: SHOCKWAVE and ALERT are defined by the
+// PostProcessor for the variants that need them.
+
+varying vec2 v_texCoords;
+
+// The scene, rendered at the internal resolution
+uniform sampler2D u_texture;
+// Size of the screen in pixels
+uniform vec2 iResolution;
+// Brightness setting times the remaining light of a fade
+uniform float iExposure;
+
+#ifdef SHOCKWAVE
+uniform float iTime;
+uniform vec2 iCenter;
+#endif
+
+#ifdef ALERT
+uniform vec3 iAlertColor;
+uniform vec2 iAlertCenter;
+uniform float iAlertInnerSize;
+#endif
+
+void main()
+{
+  vec2 texCoord = v_texCoords;
+
+#ifdef SHOCKWAVE
+  //Sawtooth function to pulse from centre.
+  float offset = (iTime - floor(iTime)) / iTime;
+  float currentTime = iTime * offset;
+  vec3 waveParams = vec3(10.0, 0.8, 0.1);
+  vec2 waveCentre = iCenter / iResolution;
+  float dist = distance(texCoord, waveCentre);
+
+  //Only distort the pixels within the parameter distance from the centre
+  if (dist <= currentTime + waveParams.z && dist >= currentTime - waveParams.z) {
+    //The pixel offset distance based on the input parameters
+    float diff = dist - currentTime;
+    float scaleDiff = 1.0 - pow(abs(diff * waveParams.x), waveParams.y);
+    float diffTime = diff * scaleDiff;
+
+    //Perform the distortion in the direction away from the centre
+    vec2 diffTexCoord = normalize(texCoord - waveCentre);
+    texCoord += (diffTexCoord * diffTime) / (currentTime * dist * 40.0);
+  }
+#endif
+
+  vec3 color = texture2D(u_texture, texCoord).rgb;
+
+#ifdef ALERT
+  // Distance from the alert centre, scaled to fit in the range of 0.0 to 1.0
+  vec2 center = iAlertCenter / iResolution;
+  float vig = clamp(distance(center, texCoord) * 1.414213 / iAlertInnerSize, 0.0, 1.0);
+  if (vig < 1.0) {
+    color = color * vig + (1.0 - vig) * iAlertColor;
+  }
+#endif
+
+  gl_FragColor = vec4(color * iExposure, 1.0);
+}
@@ -0,0 +1,10 @@
+// Corners of the full screen quad, already in clip space
+attribute vec2 a_position;
+attribute vec2 a_texCoord0;
+
+varying vec2 v_texCoords;
+void main()
+{
+  v_texCoords = a_texCoord0;
+  gl_Position = vec4(a_position, 0.0, 1.0);
+}
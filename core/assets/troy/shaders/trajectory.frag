@@ -0,0 +1,27 @@
+#ifdef GL_ES
+#ifdef GL_FRAGMENT_PRECISION_HIGH
+precision highp float;
+#else
+precision mediump float;
+#endif
+#endif
+
+// Color of the line
+uniform vec4 u_color;
+// Distance from the ship at which the line has faded out
+uniform float u_fade;
+// Length of a dash and its gap
+uniform float u_dash;
+// Fraction of the dash length that is drawn
+uniform float u_duty;
+
+// Signed distance from the ship along the path
+varying float v_along;
+void main()
+{
+  if (fract(v_along / u_dash) > u_duty) {
+  	discard;
+  }
+  float alpha = u_color.a * clamp(1.0 - abs(v_along) / u_fade, 0.0, 1.0);
+  gl_FragColor = vec4(u_color.rgb, alpha);
+}
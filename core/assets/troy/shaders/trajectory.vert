@@ -0,0 +1,22 @@
+// Vertices of the trajectory mesh, in world pixels
+attribute vec2 a_position;
+attribute vec2 a_normal;
+attribute float a_distance;
+
+// The screen projection
+uniform mat4 u_projTrans;
+// Moves world pixels so that the ship is at the centre of the screen
+uniform vec2 u_offset;
+// Width of the line in pixels
+uniform float u_width;
+// Distance of the ship along the path
+uniform float u_head;
+
+// Signed distance from the ship along the path
+varying float v_along;
+void main()
+{
+  v_along = a_distance - u_head;
+  vec2 position = a_position + u_offset + a_normal * (0.5 * u_width);
+  gl_Position = u_projTrans * vec4(position, 0.0, 1.0);
+}
@@ -3,8 +3,8 @@ package com.mygdx.technicalprototype;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.BodyDef;
-import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.JsonValue;
 
 import java.util.ArrayList;
@@ -17,7 +17,12 @@ public class AIController {
     private ArrayList<Enemy> enemies;
     private Rocket ship;
     private Vector2 scale;
-    private JsonValue defaults;
+    /** The world the bodies of pooled enemies are made in */
+    private World world;
+    /** Physics parameters of spawned enemies, read once from the defaults */
+    private final float density;
+    private final float friction;
+    private final float restitution;
 
     /*
      * Swarm variables
@@ -33,28 +38,54 @@ public class AIController {
 
     ArrayList<Enemy> enemiesToAdd = new ArrayList<>();
 
+    /** Enemies spawned together by a swarm */
+    private static final int SPAWN_BATCH = 3;
+
     private static final float MAX_STUN_TIME = 0.85f;
     private float stunTime;
 
     private Random random = new Random();
 
+    /** Fixed ship position the enemies are laid out against, or null to follow the ship */
+    private Vector2 physicsOrigin;
+    /** The ship body position, which attacking enemies fly at */
+    private final Vector2 shipTarget = new Vector2();
+    /** Steers all enemies at once, with flocking between neighbours */
+    private final EnemySteering steering;
+    /** Ship position the enemies are laid out against, when it follows the ship */
+    private final Vector2 framePos = new Vector2();
+    /** The ship position in world pixels, read once per update */
+    private final Vector2 shipPos = new Vector2();
+
+    /**
+     * Enemies out of the level, kept with their bodies switched off so that spawning one
+     * does not allocate. Killed enemies come back here from the garbage collection in LevelMode.
+     */
+    private final ArrayList<Enemy> pool = new ArrayList<>();
+    /** Number of bodies made for the pool, which stops growing once the swarms are pre-warmed */
+    private int pooledBodies;
+
 
 
-    public AIController(ArrayList<Enemy> es, Rocket s, JsonValue defaults, Vector2 scale) {
+    public AIController(ArrayList<Enemy> es, Rocket s, World world, JsonValue defaults, JsonValue flocking, Vector2 scale) {
         enemies = es;
         ship = s;
-        this.defaults = defaults;
+        this.world = world;
         this.scale = scale;
+        density = defaults.getFloat("density", 0.0f);
+        friction = defaults.getFloat("friction", 0.0f);
+        restitution = defaults.getFloat("restitution", 0.0f);
         stunTime = 0;
+        steering = new EnemySteering(flocking);
 
 
         for (Enemy e : enemies) {
             e.setDrawScale(scale);
             e.setBodyType(BodyDef.BodyType.DynamicBody);
             e.setGravityScale(0);
-            e.setDensity(defaults.getFloat("density", 0.0f));
-            e.setFriction(defaults.getFloat("friction", 0.0f));
-            e.setRestitution(defaults.getFloat("restitution", 0.0f));
+            e.setDensity(density);
+            e.setFriction(friction);
+            e.setRestitution(restitution);
             e.setTexture(enemyTexture);
             e.setVelocity(new Vector2());
             e.setSensor(false);
@@ -78,30 +109,117 @@ public class AIController {
         return enemies;
     }
 
+    /**
+     * Flags an enemy for removal. It is taken out of the level by the garbage collection in
+     * LevelMode, and out of this controller at the start of the next update. Removing an
+     * enemy that is already removed does nothing, so it is only counted out of the swarm once.
+     *
+     * @param e the enemy to remove
+     */
     public void removeEnemy(Enemy e) {
+        if (e.isRemoved()) {
+            return;
+        }
         e.markRemoved(true);
-        enemies.remove(e);
         currSwarm--;
     }
 
+    /** Drops the enemies flagged for removal from the list, in a single pass */
+    private void compactEnemies() {
+        int kept = 0;
+        for (int i = 0; i < enemies.size(); i++) {
+            Enemy e = enemies.get(i);
+            if (!e.isRemoved()) {
+                enemies.set(kept++, e);
+            }
+        }
+        while (enemies.size() > kept) {
+            enemies.remove(enemies.size() - 1);
+        }
+    }
+
+    /**
+     * Adds an enemy to the swarm, taken from the pool if there is one. The enemy still has to
+     * be added to the level, which switches its body back on.
+     *
+     * @param position the world position to appear at, in box2d units
+     * @param speed    the top speed of the enemy
+     * @return the enemy
+     */
     public Enemy addEnemy(Vector2 position, float speed){
         currSwarm++;
-        Enemy e = new Enemy(position, new Vector2[]{}, ship.getPos(), scale, speed);
+        Enemy e;
+        if (pool.isEmpty()) {
+            // the swarms are pre-warmed, so this only happens before the first one
+            assert swarmNum == 0 : "Enemy pool ran dry";
+            e = createEnemy(position, speed);
+        } else {
+            e = pool.remove(pool.size() - 1);
+            e.setPooled(false);
+            e.respawn(position, frame(), speed);
+        }
         enemies.add(e);
+        if (physicsOrigin != null) {
+            e.setTarget(shipTarget);
+        }
+        return e;
+    }
+
+    /** Makes a new enemy, without a body */
+    private Enemy createEnemy(Vector2 position, float speed) {
+        Enemy e = new Enemy(position, new Vector2[]{}, new Vector2(frame()), scale, speed);
         e.setDrawScale(scale);
         e.setBodyType(BodyDef.BodyType.DynamicBody);
         e.setGravityScale(0);
-        e.setDensity(defaults.getFloat("density", 0.0f));
-        e.setFriction(defaults.getFloat("friction", 0.0f));
-        e.setRestitution(defaults.getFloat("restitution", 0.0f));
+        e.setDensity(density);
+        e.setFriction(friction);
+        e.setRestitution(restitution);
         e.setTexture(enemyTexture);
         e.setVelocity(new Vector2());
         e.setSensor(false);
         e.setName("enemy");
-        e.setLocation(ship.getPos());
+        e.setLocation(frame());
         return e;
     }
 
+    /**
+     * Takes back an enemy that was removed from the level. Its body is switched off instead
+     * of destroyed, and is used again by the next enemy spawned.
+     *
+     * @param e the enemy, which must have been marked as removed
+     */
+    public void recycle(Enemy e) {
+        assert e.isRemoved() && !e.isPooled() : "Enemy recycled twice";
+        e.setActive(false);
+        e.setPooled(true);
+        pool.add(e);
+    }
+
+    /**
+     * Fills the pool so that every swarm triggered so far can be at full strength, with a batch
+     * spawned on top, without making an enemy. The new bodies are switched off.
+     */
+    private void prewarm() {
+        while (pool.size() + enemies.size() < swarmNum + SPAWN_BATCH - 1) {
+            Enemy e = createEnemy(Vector2.Zero, 0);
+            e.activatePhysics(world);
+            e.setActive(false);
+            e.setPooled(true);
+            pool.add(e);
+            pooledBodies++;
+        }
+    }
+
+    /** Returns the number of enemies waiting in the pool */
+    public int getPoolSize() {
+        return pool.size();
+    }
+
+    /** Returns the number of bodies made to pre-warm the pool */
+    public int getPooledBodies() {
+        return pooledBodies;
+    }
+
 //    public ArrayList<Enemy> addSwarm(Vector2 position, int amount){
 //        Random r = new Random();
 //        ArrayList<Enemy> el = new ArrayList<>();
@@ -119,10 +237,31 @@ public class AIController {
         inPursuit = true;
         swarmList.add(swarm);
         swarmNum+=amount;
+        prewarm();
         //swarm = addSwarm(worldPoint, amount);
         //return swarm;
     }
 
+    /**
+     * Keeps enemies laid out against a fixed ship position, so that they stay in world
+     * coordinates and chase the ship body instead of the centre of the screen.
+     *
+     * @param origin the ship position the physics world is laid out against, or null to
+     *               keep positioning enemies relative to the ship
+     */
+    public void setPhysicsOrigin(Vector2 origin) {
+        physicsOrigin = origin;
+        shipTarget.set(ship.getPosition());
+        for (Enemy e : enemies) {
+            e.setTarget(origin != null ? shipTarget : null);
+        }
+    }
+
+    /** Returns the ship position that enemy body positions are computed against */
+    private Vector2 frame() {
+        return physicsOrigin != null ? physicsOrigin : ship.getPos(framePos);
+    }
+
     public Vector2 toRelativePoint(Vector2 p, Vector2 edgePoint){
         return p.set((edgePoint.x - Gdx.graphics.getWidth()/2 + ship.getPos().x)/scale.x, (edgePoint.y- Gdx.graphics.getHeight()/2 + ship.getPos().y)/scale.y);
 
@@ -133,19 +272,32 @@ public class AIController {
         for(Enemy i : enemies){
             i.markRemoved(true);
         }
-        enemies = new ArrayList<>();
+        enemies.clear();
     }
 
     /**
-     * Updates ai.
+     * Updates ai. Enemies are steered first, then change state, then feel the pull of the
+     * planets, and only then are the forces handed to the physics world.
+     *
+     * @param planets the planets of the level
      * @return Returns either newly added enemies or null
      */
-    public ArrayList<Enemy> update() {
+    public ArrayList<Enemy> update(PlanetGrid planets) {
+        shipTarget.set(ship.getPosition());
+        ship.getPos(shipPos);
+        compactEnemies();
         if(this.hasEnemies()){
+            Vector2 frame = frame();
+            steering.gather(enemies, frame, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+            for (Enemy e : enemies) {
+                e.updatePatrol(frame);
+            }
+            steering.steer();
             for (Enemy e : enemies) {
-                e.nextMove(ship.getPos());
                 updateState(e);
             }
+            steering.gravitate(planets);
+            steering.apply();
         }
 
             enemiesToAdd.clear();
@@ -158,13 +310,13 @@ public class AIController {
                 if(s.respawn || s.initAmmount < swarmNum) {
                     s.worldCoord.set(
                             (s.screenCoord.x - Gdx.graphics.getWidth() / 2 +
-                                    ship.getPos().x) / scale.x,
+                                    shipPos.x) / scale.x,
                             (s.screenCoord.y - Gdx.graphics.getHeight() / 2 +
-                                    ship.getPos().y) / scale.y);
-                    enemiesToAdd.add(addEnemy(s.worldCoord, s.speed));
-                    enemiesToAdd.add(addEnemy(s.worldCoord, s.speed));
-                    enemiesToAdd.add(addEnemy(s.worldCoord, s.speed));
-                    s.initAmmount+=3;
+                                    shipPos.y) / scale.y);
+                    for (int i = 0; i < SPAWN_BATCH; i++) {
+                        enemiesToAdd.add(addEnemy(s.worldCoord, s.speed));
+                    }
+                    s.initAmmount+=SPAWN_BATCH;
                 }
 
             }
@@ -183,16 +335,16 @@ public class AIController {
             case ATTACK:
                 if (enemy.isGravitating()) {
                     enemy.setState(Enemy.State.ESCAPE, null);
-                } else if (enemy.isPatroller() && !enemy.detectsShip(ship.getPos())) {
+                } else if (enemy.isPatroller() && !enemy.detectsShip(shipPos, frame())) {
 //                    enemy.setState(Enemy.State.PATROL, ship.getPos());
                 }
                 break;
             case ESCAPE:
                 if (!enemy.isGravitating()) {
-                    if (!enemy.isPatroller() || enemy.detectsShip(ship.getPos())) {
+                    if (!enemy.isPatroller() || enemy.detectsShip(shipPos, frame())) {
                         enemy.setState(Enemy.State.ATTACK, null);
                     } else {
-                        enemy.setState(Enemy.State.ATTACK, ship.getPos());
+                        enemy.setState(Enemy.State.ATTACK, frame());
                     }
                 }
                 break;
@@ -200,46 +352,22 @@ public class AIController {
                 assert (!enemy.isPatroller());
                 if (enemy.isGravitating()) {
                     enemy.setState(Enemy.State.ESCAPE, null);
-                } else if (enemy.detectsShip(ship.getPos())) {
+                } else if (enemy.detectsShip(shipPos, frame())) {
                     enemy.setState(Enemy.State.ATTACK, null);
                 }
                 break;
             case STUN:
                 if (stunTime < MAX_STUN_TIME) {
-                    stunTime += Gdx.graphics.getDeltaTime() * 3; // hardcoded rate
+                    stunTime += LevelMode.FIXED_STEP * 3; // hardcoded rate
                     enemy.setClampVelocity(false);
                 } else {
                     stunTime = 0;
-                    enemy.setState(Enemy.State.ATTACK, ship.getPos());
+                    enemy.setState(Enemy.State.ATTACK, frame());
                     enemy.setClampVelocity(true);
                 }
         }
     }
 
-    public void updateGravity(ArrayList<Planet> resizables) {
-        Vector2 scale = ship.getDrawScale();
-
-        for (Enemy e : enemies) {
-            boolean grav = false;
-            for (Planet p : resizables) {
-                if (p.getPosition().dst(e.getPosition()) < 1.25*p.getRadius() / scale.x + e.getRadius()) {
-                    grav = true;
-                    applyGravity(e, p.getPosition());
-
-                    if (!e.isGravitating()) {
-                        Vector2 destination = new Vector2(e.getPosition().x-p.getPosition().x,e.getPosition().y-p.getPosition().y);
-                        destination.nor();
-                        destination.scl(p.getRadius());
-                        destination.add(p.getPosition());
-                        e.setDestination(destination);
-                    }
-                    break;
-                }
-            }
-            e.setGravitating(grav);
-        }
-    }
-
 //    public static Vector2 screenEdge(Vector2 point, float distance) {
 //        Vector2 edge;
 //        float d1 = point.dst(new Vector2(1000, point.y));
@@ -303,12 +431,5 @@ public class AIController {
 
 
 
-    }
-
-    public void applyGravity(Enemy e, Vector2 location) {
-        Vector2 force = new Vector2(location);
-        force.sub(e.getPosition()).nor().scl(e.getMass());
-        e.getBody().applyForce(force, e.getPosition(), true);
-
     }
 }
@@ -2,12 +2,12 @@ package com.mygdx.technicalprototype;
 
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.JsonValue;
 import com.mygdx.technicalprototype.assets.AssetDirectory;
+import com.mygdx.technicalprototype.util.LevelData;
 
 public class AssetController {
 
@@ -297,33 +297,73 @@ public class AssetController {
     
     /** The Level Currently Loaded*/
     public static LevelLoader level;
+    /** A level parsed ahead of time by {@link #prepareLevel}, taken by the next gatherAssets */
+    private static LevelLoader prepared;
+
+    /**
+     * Parses the level to load next. Nothing here touches OpenGL, so this may run off the
+     * render thread. The tilesets of the level are only queued, and finish loading in
+     * {@link #gatherAssets} unless they were loaded with {@link LevelLoader#updateTilesets}.
+     *
+     * @param directory the asset directory holding the level files
+     * @param scale the drawing scale of the level, kept by reference
+     *
+     * @return the parsed level
+     */
+    public static LevelLoader prepareLevel(AssetDirectory directory, Vector2 scale) {
+        prepared = new LevelLoader("level1", directory.getEntry( "level:level"+toLoad, LevelData.class ), scale);
+        return prepared;
+    }
+
+    /**
+     * Prepares a level that is not in the asset directory, such as a .tmj file given to the
+     * headless runner. Like the level from the directory, it is taken by the next gatherAssets.
+     *
+     * @param data the parsed level
+     * @param scale the drawing scale of the level, kept by reference
+     *
+     * @return the prepared level
+     */
+    public static LevelLoader prepareLevel(LevelData data, Vector2 scale) {
+        prepared = new LevelLoader("level1", data, scale);
+        return prepared;
+    }
 
     public static void gatherAssets(AssetDirectory directory, Vector2 scale) {
         int index;
 
         constants  = directory.getEntry( "rocket:constants", JsonValue.class );
 
-        backgroundTexture = new TextureRegion(directory.getEntry( "prototype:background", Texture.class ));
-        bluePlanetTexture = new TextureRegion(directory.getEntry( "prototype:blue_planet", Texture.class ));
-        greenPlanetTexture = new TextureRegion(directory.getEntry( "prototype:green_planet", Texture.class ));
-        pinkPlanetTexture = new TextureRegion(directory.getEntry( "prototype:pink_planet", Texture.class ));
-        purplePlanetTexture = new TextureRegion(directory.getEntry( "prototype:purple_planet", Texture.class ));
-        sunPlanetTexture = new TextureRegion(directory.getEntry( "prototype:sun_planet", Texture.class ));
-        yellowPlanetTexture = new TextureRegion(directory.getEntry( "prototype:yellow_planet", Texture.class ));
-        rocketTexture = new TextureRegion( directory.getEntry( "prototype:ship", Texture.class ) );
-        boundaryTextureLeft = new TextureRegion(directory.getEntry("prototype:boundary_left", Texture.class));
-        boundaryTextureRight = new TextureRegion(directory.getEntry("prototype:boundary_right", Texture.class));
-        boundaryTextureTop = new TextureRegion(directory.getEntry("prototype:boundary_top", Texture.class));
-        boundaryTextureBot = new TextureRegion(directory.getEntry("prototype:boundary_bot", Texture.class));
+        backgroundTexture = directory.getEntry( "prototype:background", TextureRegion.class );
+        bluePlanetTexture = directory.getEntry( "prototype:blue_planet", TextureRegion.class );
+        greenPlanetTexture = directory.getEntry( "prototype:green_planet", TextureRegion.class );
+        pinkPlanetTexture = directory.getEntry( "prototype:pink_planet", TextureRegion.class );
+        purplePlanetTexture = directory.getEntry( "prototype:purple_planet", TextureRegion.class );
+        sunPlanetTexture = directory.getEntry( "prototype:sun_planet", TextureRegion.class );
+        yellowPlanetTexture = directory.getEntry( "prototype:yellow_planet", TextureRegion.class );
+        rocketTexture = directory.getEntry( "prototype:ship", TextureRegion.class );
+        boundaryTextureLeft = directory.getEntry("prototype:boundary_left", TextureRegion.class);
+        boundaryTextureRight = directory.getEntry("prototype:boundary_right", TextureRegion.class);
+        boundaryTextureTop = directory.getEntry("prototype:boundary_top", TextureRegion.class);
+        boundaryTextureBot = directory.getEntry("prototype:boundary_bot", TextureRegion.class);
 
 
         StringBuilder levelName = new StringBuilder("level1");
         //levelName.append(toLoad);
         StringBuilder key = new StringBuilder("level:level");
         key.append(toLoad);
-        level = new LevelLoader(levelName.toString(), directory.getEntry( key.toString(), JsonValue.class ), scale);
+        if (level != null) {
+            level.releaseTilesets();
+        }
+        if (prepared != null) {
+            level = prepared;
+            prepared = null;
+        } else {
+            level = new LevelLoader(levelName.toString(), directory.getEntry( key.toString(), LevelData.class ), scale);
+        }
+        level.finishTilesets();
 
-        TextureRegion[][] ship1Temp = TextureRegion.split(directory.getEntry( "prototype:ship1", Texture.class ), 120, 120);
+        TextureRegion[][] ship1Temp = directory.getEntry( "prototype:ship1", TextureRegion.class ).split(120, 120);
         ship1Textures = new TextureRegion[10];
 
         index = 0;
@@ -333,7 +373,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] ship2Temp = TextureRegion.split(directory.getEntry( "prototype:ship2", Texture.class ), 120, 120);
+        TextureRegion[][] ship2Temp = directory.getEntry( "prototype:ship2", TextureRegion.class ).split(120, 120);
         ship2Textures = new TextureRegion[10];
 
         index = 0;
@@ -343,7 +383,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] ship3Temp = TextureRegion.split(directory.getEntry( "prototype:ship3", Texture.class ), 120, 120);
+        TextureRegion[][] ship3Temp = directory.getEntry( "prototype:ship3", TextureRegion.class ).split(120, 120);
         ship3Textures = new TextureRegion[10];
 
         index = 0;
@@ -353,7 +393,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] checkpointTemp = TextureRegion.split(directory.getEntry( "prototype:checkpoint", Texture.class ), 200, 200);
+        TextureRegion[][] checkpointTemp = directory.getEntry( "prototype:checkpoint", TextureRegion.class ).split(200, 200);
         checkpointTextures = new TextureRegion[12];
 
         index = 0;
@@ -363,7 +403,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] checkpointCollectedTemp = TextureRegion.split(directory.getEntry( "prototype:checkpoint_collected", Texture.class ), 200, 200);
+        TextureRegion[][] checkpointCollectedTemp = directory.getEntry( "prototype:checkpoint_collected", TextureRegion.class ).split(200, 200);
         checkpointCollectedTextures = new TextureRegion[12];
 
         index = 0;
@@ -373,7 +413,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] cometTemp = TextureRegion.split(directory.getEntry( "prototype:comet", Texture.class ), 400, 400);
+        TextureRegion[][] cometTemp = directory.getEntry( "prototype:comet", TextureRegion.class ).split(400, 400);
         cometTextures = new TextureRegion[14];
 
         index = 0;
@@ -383,7 +423,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] starLoopTemp = TextureRegion.split(directory.getEntry( "prototype:star-loop", Texture.class ), 200, 200);
+        TextureRegion[][] starLoopTemp = directory.getEntry( "prototype:star-loop", TextureRegion.class ).split(200, 200);
         starLoopTextures = new TextureRegion[12];
 
         index = 0;
@@ -393,7 +433,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] starCollectTemp = TextureRegion.split(directory.getEntry( "prototype:star-collect", Texture.class ), 200, 200);
+        TextureRegion[][] starCollectTemp = directory.getEntry( "prototype:star-collect", TextureRegion.class ).split(200, 200);
         starCollectTextures = new TextureRegion[12];
 
         index = 0;
@@ -403,7 +443,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] enemyExplodeTemp = TextureRegion.split(directory.getEntry( "prototype:enemy-explode", Texture.class ), 250, 250);
+        TextureRegion[][] enemyExplodeTemp = directory.getEntry( "prototype:enemy-explode", TextureRegion.class ).split(250, 250);
         enemyExplodeTextures = new TextureRegion[7];
 
         index = 0;
@@ -414,7 +454,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] debrisTemp = TextureRegion.split(directory.getEntry( "shared:debris", Texture.class ), 300, 300);
+        TextureRegion[][] debrisTemp = directory.getEntry( "shared:debris", TextureRegion.class ).split(300, 300);
         debrisTextures = new TextureRegion[12];
 
         index = 0;
@@ -424,33 +464,33 @@ public class AssetController {
             }
         }
 
-        enemyTexture = new TextureRegion(directory.getEntry("prototype:enemy", Texture.class));
-
-        pathTexture = new TextureRegion(directory.getEntry( "prototype:pixel", Texture.class ));
-
-        endFrame = new TextureRegion(directory.getEntry("prototype:loreframe", Texture.class));
-        endScreen = new TextureRegion(directory.getEntry("prototype:endscreen", Texture.class));
-        theEndScreen = new TextureRegion(directory.getEntry("prototype:theend", Texture.class));
-        endText1 = new TextureRegion(directory.getEntry("prototype:endtext1", Texture.class));
-        endText2 = new TextureRegion(directory.getEntry("prototype:endtext2", Texture.class));
-
-        l1text = new TextureRegion(directory.getEntry("prototype:l1text", Texture.class));
-        l2text = new TextureRegion(directory.getEntry("prototype:l2text", Texture.class));
-        l2text2 = new TextureRegion(directory.getEntry("prototype:l2text2", Texture.class));
-        l3text = new TextureRegion(directory.getEntry("prototype:l3text", Texture.class));
-        l4text = new TextureRegion(directory.getEntry("prototype:l4text", Texture.class));
-        l5text = new TextureRegion(directory.getEntry("prototype:l5text", Texture.class));
-        l5text2 = new TextureRegion(directory.getEntry("prototype:l5text2", Texture.class));
-        ml1text = new TextureRegion(directory.getEntry("prototype:ml1text", Texture.class));
-        ml2text2 = new TextureRegion(directory.getEntry("prototype:ml2text2", Texture.class));
-        ml2text = new TextureRegion(directory.getEntry("prototype:ml2text", Texture.class));
-        highlight = new TextureRegion(directory.getEntry("prototype:highlight", Texture.class));
-
-        goalTile  = new TextureRegion(directory.getEntry( "shared:goal", Texture.class ));
-        entryTile  = new TextureRegion(directory.getEntry( "shared:entry", Texture.class ));
-        particle = new TextureRegion(directory.getEntry("prototype:particle", Texture.class));
-
-        TextureRegion[][] whiteholeStartTemp = TextureRegion.split(directory.getEntry( "prototype:whitehole_start", Texture.class ), 200, 200);
+        enemyTexture = directory.getEntry("prototype:enemy", TextureRegion.class);
+
+        pathTexture = directory.getEntry( "prototype:pixel", TextureRegion.class );
+
+        endFrame = directory.getEntry("prototype:loreframe", TextureRegion.class);
+        endScreen = directory.getEntry("prototype:endscreen", TextureRegion.class);
+        theEndScreen = directory.getEntry("prototype:theend", TextureRegion.class);
+        endText1 = directory.getEntry("prototype:endtext1", TextureRegion.class);
+        endText2 = directory.getEntry("prototype:endtext2", TextureRegion.class);
+
+        l1text = directory.getEntry("prototype:l1text", TextureRegion.class);
+        l2text = directory.getEntry("prototype:l2text", TextureRegion.class);
+        l2text2 = directory.getEntry("prototype:l2text2", TextureRegion.class);
+        l3text = directory.getEntry("prototype:l3text", TextureRegion.class);
+        l4text = directory.getEntry("prototype:l4text", TextureRegion.class);
+        l5text = directory.getEntry("prototype:l5text", TextureRegion.class);
+        l5text2 = directory.getEntry("prototype:l5text2", TextureRegion.class);
+        ml1text = directory.getEntry("prototype:ml1text", TextureRegion.class);
+        ml2text2 = directory.getEntry("prototype:ml2text2", TextureRegion.class);
+        ml2text = directory.getEntry("prototype:ml2text", TextureRegion.class);
+        highlight = directory.getEntry("prototype:highlight", TextureRegion.class);
+
+        goalTile  = directory.getEntry( "shared:goal", TextureRegion.class );
+        entryTile  = directory.getEntry( "shared:entry", TextureRegion.class );
+        particle = directory.getEntry("prototype:particle", TextureRegion.class);
+
+        TextureRegion[][] whiteholeStartTemp = directory.getEntry( "prototype:whitehole_start", TextureRegion.class ).split(200, 200);
         whiteholeStartTextures = new TextureRegion[12];
 
         index = 0;
@@ -460,7 +500,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] whiteholeLoopTemp = TextureRegion.split(directory.getEntry( "prototype:whitehole_loop", Texture.class ), 200, 200);
+        TextureRegion[][] whiteholeLoopTemp = directory.getEntry( "prototype:whitehole_loop", TextureRegion.class ).split(200, 200);
         whiteholeLoopTextures = new TextureRegion[12];
 
         index = 0;
@@ -470,7 +510,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] blackholeStartTemp = TextureRegion.split(directory.getEntry( "prototype:blackhole_start", Texture.class ), 200, 200);
+        TextureRegion[][] blackholeStartTemp = directory.getEntry( "prototype:blackhole_start", TextureRegion.class ).split(200, 200);
         blackholeStartTextures = new TextureRegion[12];
 
         index = 0;
@@ -480,7 +520,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] blackholeLoopTemp = TextureRegion.split(directory.getEntry( "prototype:blackhole_loop", Texture.class ), 200, 200);
+        TextureRegion[][] blackholeLoopTemp = directory.getEntry( "prototype:blackhole_loop", TextureRegion.class ).split(200, 200);
         blackholeLoopTextures = new TextureRegion[12];
 
         index = 0;
@@ -490,7 +530,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] shipHurtTemp = TextureRegion.split(directory.getEntry( "prototype:ship_collision", Texture.class ), 120, 120);
+        TextureRegion[][] shipHurtTemp = directory.getEntry( "prototype:ship_collision", TextureRegion.class ).split(120, 120);
         shipHurtTextures = new TextureRegion[3];
 
         index = 0;
@@ -500,7 +540,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] bluePlanetResizeTemp = TextureRegion.split(directory.getEntry( "prototype:planet_resize_blue", Texture.class ), 1000, 1000);
+        TextureRegion[][] bluePlanetResizeTemp = directory.getEntry( "prototype:planet_resize_blue", TextureRegion.class ).split(1000, 1000);
         bluePlanetResizeTextures = new TextureRegion[8];
         bluePlanetResizeTexturesReverse = new TextureRegion[8];
 
@@ -512,7 +552,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] greenPlanetResizeTemp = TextureRegion.split(directory.getEntry( "prototype:planet_resize_green", Texture.class ), 1000, 1000);
+        TextureRegion[][] greenPlanetResizeTemp = directory.getEntry( "prototype:planet_resize_green", TextureRegion.class ).split(1000, 1000);
         greenPlanetResizeTextures = new TextureRegion[8];
         greenPlanetResizeTexturesReverse = new TextureRegion[8];
 
@@ -524,7 +564,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] pinkPlanetResizeTemp = TextureRegion.split(directory.getEntry( "prototype:planet_resize_pink", Texture.class ), 1000, 1000);
+        TextureRegion[][] pinkPlanetResizeTemp = directory.getEntry( "prototype:planet_resize_pink", TextureRegion.class ).split(1000, 1000);
         pinkPlanetResizeTextures = new TextureRegion[8];
         pinkPlanetResizeTexturesReverse = new TextureRegion[8];
 
@@ -536,7 +576,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] purplePlanetResizeTemp = TextureRegion.split(directory.getEntry( "prototype:planet_resize_purple", Texture.class ), 1000, 1000);
+        TextureRegion[][] purplePlanetResizeTemp = directory.getEntry( "prototype:planet_resize_purple", TextureRegion.class ).split(1000, 1000);
         purplePlanetResizeTextures = new TextureRegion[8];
         purplePlanetResizeTexturesReverse = new TextureRegion[8];
 
@@ -548,7 +588,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] sunPlanetResizeTemp = TextureRegion.split(directory.getEntry( "prototype:planet_resize_sun", Texture.class ), 1000, 1000);
+        TextureRegion[][] sunPlanetResizeTemp = directory.getEntry( "prototype:planet_resize_sun", TextureRegion.class ).split(1000, 1000);
         sunPlanetResizeTextures = new TextureRegion[8];
         sunPlanetResizeTexturesReverse = new TextureRegion[8];
 
@@ -560,7 +600,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] sunPlanetTemp = TextureRegion.split(directory.getEntry( "prototype:sun_planet", Texture.class ), 1000, 1000);
+        TextureRegion[][] sunPlanetTemp = directory.getEntry( "prototype:sun_planet", TextureRegion.class ).split(1000, 1000);
         sunPlanetTextures = new TextureRegion[14];
 
         index = 0;
@@ -572,7 +612,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] solarFlareTemp = TextureRegion.split(directory.getEntry( "prototype:solar_flare", Texture.class ), 500, 500);
+        TextureRegion[][] solarFlareTemp = directory.getEntry( "prototype:solar_flare", TextureRegion.class ).split(500, 500);
         solarFlareTextures = new TextureRegion[10];
 
         index = 0;
@@ -582,7 +622,7 @@ public class AssetController {
             }
         }
 
-        TextureRegion[][] yellowPlanetResizeTemp = TextureRegion.split(directory.getEntry( "prototype:planet_resize_yellow", Texture.class ), 1000, 1000);
+        TextureRegion[][] yellowPlanetResizeTemp = directory.getEntry( "prototype:planet_resize_yellow", TextureRegion.class ).split(1000, 1000);
         yellowPlanetResizeTextures = new TextureRegion[8];
         yellowPlanetResizeTexturesReverse = new TextureRegion[8];
 
@@ -635,10 +675,10 @@ public class AssetController {
         sounds[10] = shockwaveSound;
         sounds[11] = alertSound;
 
-        starIcon = new TextureRegion(directory.getEntry("prototype:staricon", Texture.class));
+        starIcon = directory.getEntry("prototype:staricon", TextureRegion.class);
 
-        pixel = new TextureRegion(directory.getEntry( "prototype:pixel", Texture.class ));
-        debugPlanet = new TextureRegion(directory.getEntry( "prototype:debug_planet", Texture.class ));
+        pixel = directory.getEntry( "prototype:pixel", TextureRegion.class );
+        debugPlanet = directory.getEntry( "prototype:debug_planet", TextureRegion.class );
 
         ship1Animation = new Animation(1f/8f, ship1Textures);
         ship2Animation = new Animation(1f/8f, ship1Textures);
@@ -19,6 +19,7 @@ public class Checkpoint extends BoxObstacle {
         super((Gdx.graphics.getWidth() / 2) - shipPos.x + pos.x, (Gdx.graphics.getHeight() / 2) - shipPos.y + pos.y, 1.7f, 3.4f);
         worldPosition = new Vector2(pos.x, pos.y);
         collected = false;
+        setCategory(ContactTable.CHECKPOINT);
     }
 
     public float getMass() {
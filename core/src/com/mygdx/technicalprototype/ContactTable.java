@@ -0,0 +1,96 @@
+package com.mygdx.technicalprototype;
+
+/**
+ * Collision categories of the game objects, and the handlers for each pair of them.
+ *
+ * Every object carries exactly one category bit, stored as the category bits of its Box2D
+ * filter. Handlers are registered per pair of categories and found by indexing a table with
+ * the bit positions of both, so dispatching a contact costs the same however many handlers
+ * there are. A handler registered for (A, B) always receives the object of category A first,
+ * whichever order Box2D reports the fixtures in.
+ *
+ * Mask bits are left alone, so every category still collides with every other one.
+ */
+public class ContactTable {
+    /** Walls and anything else without a category of its own, as Box2D defaults to */
+    public static final short DEFAULT = 0x0001;
+    public static final short SHIP = 0x0002;
+    public static final short PLANET = 0x0004;
+    public static final short ENEMY = 0x0008;
+    /** Debris and other static obstacles that hurt the ship */
+    public static final short OBSTACLE = 0x0010;
+    public static final short REWARD = 0x0020;
+    public static final short CHECKPOINT = 0x0040;
+    /** Obstacles moving along a path */
+    public static final short DYNAMIC = 0x0080;
+    public static final short GOAL = 0x0100;
+    public static final short ENTRY = 0x0200;
+
+    /** Box2D filters have 16 category bits */
+    private static final int CATEGORIES = 16;
+
+    /** Reacts to two objects starting to touch */
+    public interface Handler {
+        /**
+         * Called when the objects begin contact
+         *
+         * @param a the object of the first category the handler was registered for
+         * @param b the object of the second category
+         */
+        void begin(GameObject a, GameObject b);
+    }
+
+    /** The handlers, indexed by the bit positions of both categories */
+    private final Handler[] handlers = new Handler[CATEGORIES * CATEGORIES];
+    /** Whether the objects must be swapped before calling the handler at the same index */
+    private final boolean[] swapped = new boolean[CATEGORIES * CATEGORIES];
+
+    /**
+     * Registers the handler for contacts between two categories, replacing any previous one
+     *
+     * @param a the category of the first object the handler takes
+     * @param b the category of the second object the handler takes
+     * @param handler the handler to call
+     */
+    public void register(short a, short b, Handler handler) {
+        int ia = index(a), ib = index(b);
+        handlers[ia * CATEGORIES + ib] = handler;
+        swapped[ia * CATEGORIES + ib] = false;
+        if (ia != ib) {
+            handlers[ib * CATEGORIES + ia] = handler;
+            swapped[ib * CATEGORIES + ia] = true;
+        }
+    }
+
+    /**
+     * Calls the handler registered for the categories of the two bodies, if any
+     *
+     * @param data1 the user data of the first body
+     * @param data2 the user data of the second body
+     *
+     * @return whether a handler was called
+     */
+    public boolean dispatch(Object data1, Object data2) {
+        if (!(data1 instanceof GameObject) || !(data2 instanceof GameObject)) {
+            return false;
+        }
+        GameObject o1 = (GameObject) data1;
+        GameObject o2 = (GameObject) data2;
+        int at = index(o1.getCategory()) * CATEGORIES + index(o2.getCategory());
+        Handler handler = handlers[at];
+        if (handler == null) {
+            return false;
+        }
+        if (swapped[at]) {
+            handler.begin(o2, o1);
+        } else {
+            handler.begin(o1, o2);
+        }
+        return true;
+    }
+
+    /** Returns the position of the lowest category bit */
+    private static int index(short category) {
+        return Integer.numberOfTrailingZeros(category & 0xffff) & (CATEGORIES - 1);
+    }
+}
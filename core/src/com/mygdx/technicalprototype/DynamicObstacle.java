@@ -42,6 +42,7 @@ public class DynamicObstacle extends WheelObstacle {
         super(pos.x, pos.y, radius/2.3f);
         worldPosition = new Vector2(pos.x, pos.y);
         this.setBodyType(BodyDef.BodyType.KinematicBody);
+        this.setCategory(ContactTable.DYNAMIC);
         this.path = new CatmullRomSpline<>(path, true);
         this.period = period;
         this.targetPosition = new Vector2();
@@ -1,12 +1,9 @@
 package com.mygdx.technicalprototype;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.math.Vector3;
 
 public class EffectsController {
 
@@ -14,10 +11,6 @@ public class EffectsController {
 
     private  Color alertColor = Color.FIREBRICK;
 
-    private Vector2 temp = new Vector2();
-    private Vector3 temp1 = new Vector3();
-
-    private Vector2 far = new Vector2(10000000, 100000000);
 
 
 
@@ -72,20 +65,21 @@ public class EffectsController {
 
     }
 
-    public void draw(GameCanvas canvas, float dt){
-        canvas.shader.setUniformf("iResolution", temp.set(Gdx.graphics.getWidth(), Gdx.graphics.getHeight()));
-
+    /**
+     * Advances the running effects and hands them to the post processor for this frame
+     *
+     * @param post the post processor drawing the frame
+     * @param dt   the time since the last frame
+     */
+    public void apply(PostProcessor post, float dt){
         if(inShockwave){
             shockTime+=tChangeSpeedShock*dt;
             if(shockTime >= maxTimeShock){
                 shockTime = 0;
                 inShockwave = false;
+            } else {
+                post.setShockwave(shockCenter, shockTime);
             }
-            canvas.shader.setUniformf("iTime", shockTime);
-            canvas.shader.setUniformf("iCenter", shockCenter);
-        }else{
-            canvas.shader.setUniformf("iTime", 0);
-            canvas.shader.setUniformf("iCenter", far);
         }
 
         if(inAlert){
@@ -106,12 +100,7 @@ public class EffectsController {
                 inAlert = false;
             }
 
-            canvas.shader.setUniformf("iAlertColor", temp1.set(alertColor.r, alertColor.g, alertColor.b));
-            canvas.shader.setUniformf("iAlertCenter", alertCenter);
-            canvas.shader.setUniformf("iAlertInnerSize", alertTime);
-            canvas.shader.setUniformf("iAlertOuterSize", 0f);
-        } else {
-            canvas.shader.setUniformf("iAlertInnerSize", -1f);
+            post.setAlert(alertColor, alertCenter, alertTime);
         }
     }
 
@@ -3,6 +3,7 @@ package com.mygdx.technicalprototype;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.World;
 import com.mygdx.technicalprototype.physics.obstacle.WheelObstacle;
 
 import java.util.LinkedList;
@@ -10,8 +11,8 @@ import java.util.Queue;
 
 public class Enemy extends WheelObstacle {
     private float maxSpeed = 5.0f;
-    private final float HANDLING = 2.0f; // exceeding 2.0 causes movement bugs
-    private final float MAX_ACCELERATION = HANDLING * 25;
+    static final float HANDLING = 2.0f; // exceeding 2.0 causes movement bugs
+    static final float MAX_ACCELERATION = HANDLING * 25;
 
     private final float MASS = 2.0f;
     private final float VISION = 6;
@@ -33,6 +34,8 @@ public class Enemy extends WheelObstacle {
 
     /** The current target destination of the enemy */
     private Vector2 destination;
+    /** The point the enemy flies at when attacking, the ship in box2d units */
+    private Vector2 target;
     /** The current state of the ship */
     private State state;
     private boolean isGravitating;
@@ -41,8 +44,12 @@ public class Enemy extends WheelObstacle {
     private boolean clampVelocity;
 
     private boolean explode;
+    /** Whether the enemy is waiting in the pool of the AI controller */
+    private boolean pooled;
 
     private Vector2 force = new Vector2();
+    /** The point on the edge of a planet the enemy flees to, reused as the destination */
+    private final Vector2 escape = new Vector2();
 
     public Enemy(Vector2 pos, Vector2[] patrol, Vector2 shipPos, Vector2 scale, float speed) {
         this(pos, patrol, shipPos, scale);
@@ -54,11 +61,13 @@ public class Enemy extends WheelObstacle {
                 (Gdx.graphics.getHeight() / 2) - shipPos.y + pos.y, 0.75f);
         setDrawScale(scale);
         setMass(MASS);
+        setCategory(ContactTable.ENEMY);
         setPath(patrol);
 
         CENTER_SCREEN = new Vector2((Gdx.graphics.getWidth() / 2) / drawScale.x, (Gdx.graphics.getHeight() / 2) / drawScale.y);
+        target = CENTER_SCREEN;
         SHIP_START = shipPos;
-        previousShipPos = shipPos;
+        previousShipPos = new Vector2(shipPos);
         worldPosition = new Vector2(pos.x, pos.y);
         clampVelocity = true;
 
@@ -82,6 +91,44 @@ public class Enemy extends WheelObstacle {
     }
 
 
+    /**
+     * Brings back an enemy that was removed from the level, as if it had just been made. The
+     * body is kept, and is switched back on when the enemy is added to the level again.
+     *
+     * @param pos     the world position to appear at, in box2d units
+     * @param shipPos the ship position the bodies are laid out against
+     * @param speed   the top speed of the enemy
+     */
+    public void respawn(Vector2 pos, Vector2 shipPos, float speed) {
+        maxSpeed = speed;
+        worldPosition.set(pos);
+        previousShipPos.set(shipPos);
+        target = CENTER_SCREEN;
+        isGravitating = false;
+        clampVelocity = true;
+        explode = false;
+        angle = 0.0f;
+        dir.setZero();
+        force.setZero();
+        setState(State.ATTACK, null);
+        markRemoved(false);
+        setLocation(shipPos);
+        setVelocity(Vector2.Zero);
+        setAngularVelocity(0);
+        assert state == State.ATTACK && destination == target && !isRemoved() : "Enemy not reset";
+    }
+
+    /** Switches the body of a pooled enemy back on, or makes one if it has none */
+    @Override
+    public boolean activatePhysics(World world) {
+        if (body != null) {
+            body.setActive(true);
+            body.setAwake(true);
+            return true;
+        }
+        return super.activatePhysics(world);
+    }
+
     public void setLocation(Vector2 shipPos) {
         super.setPosition(((Gdx.graphics.getWidth() / 2) - shipPos.x) / drawScale.x + worldPosition.x,
                 ((Gdx.graphics.getHeight() / 2) - shipPos.y) / drawScale.y + worldPosition.y);
@@ -99,6 +146,14 @@ public class Enemy extends WheelObstacle {
         explode = b;
     }
 
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    public void setPooled(boolean value) {
+        pooled = value;
+    }
+
     public boolean isPatroller() {
         return patroller;
     }
@@ -112,18 +167,89 @@ public class Enemy extends WheelObstacle {
     }
 
     public boolean detectsShip(Vector2 shipPos) {
-        float dst = shipPos.dst((new Vector2(getPosition().x-((Gdx.graphics.getWidth()/2)-shipPos.x)/drawScale.x,getPosition().y-((Gdx.graphics.getHeight()/2)-shipPos.y)/drawScale.y)).scl(drawScale))/drawScale.len();
+        return detectsShip(shipPos, shipPos);
+    }
+
+    /**
+     * Returns whether the ship is within sight of the enemy
+     *
+     * @param shipPos the ship position in world pixels
+     * @param frame the ship position the physics bodies are laid out against
+     */
+    public boolean detectsShip(Vector2 shipPos, Vector2 frame) {
+        float x = (getPosition().x-((Gdx.graphics.getWidth()/2)-frame.x)/drawScale.x) * drawScale.x;
+        float y = (getPosition().y-((Gdx.graphics.getHeight()/2)-frame.y)/drawScale.y) * drawScale.y;
+        float dst = shipPos.dst(x, y)/drawScale.len();
         return (dst < VISION);
     }
 
+    /**
+     * Sets the point the enemy flies at when attacking. The vector is tracked, not copied,
+     * so the owner can keep it up to date with the ship.
+     *
+     * @param target the attack target in box2d units, or null for the centre of the screen
+     */
+    public void setTarget(Vector2 target) {
+        this.target = target != null ? target : CENTER_SCREEN;
+        if (state == State.ATTACK) {
+            destination = this.target;
+        }
+    }
+
     public void setDestination(Vector2 dest) {
         destination = dest;
     }
 
+    /**
+     * Sends the enemy to the given point to escape a planet, without allocating
+     *
+     * @param x the x-coordinate in box2d units
+     * @param y the y-coordinate in box2d units
+     */
+    public void setEscape(float x, float y) {
+        destination = escape.set(x, y);
+    }
+
+    public Vector2 getDestination() {
+        return destination;
+    }
+
+    public float getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public boolean isClampVelocity() {
+        return clampVelocity;
+    }
+
+    /** Returns the impulse the last blast gave this enemy, applied while it is stunned */
+    public Vector2 getForce() {
+        return force;
+    }
+
+    /**
+     * Sets the angle the enemy is drawn facing
+     *
+     * @param value the angle in radians
+     */
+    public void setAngle(float value) {
+        angle = value;
+    }
+
+    /**
+     * Sets the world position the enemy is laid out from, without allocating
+     *
+     * @param x the x-coordinate in box2d units
+     * @param y the y-coordinate in box2d units
+     */
+    public void setWorldPosition(float x, float y) {
+        worldPosition.set(x, y);
+    }
+
     public void setState(State s, Vector2 shipPos) {
         state = s;
         if (state == State.ATTACK) {
-            destination = CENTER_SCREEN;
+            destination = target;
         } else if (state == State.PATROL) {
             destination = nextPatrol(shipPos);
         }
@@ -154,29 +280,18 @@ public class Enemy extends WheelObstacle {
         return next.add(offset);
     }
 
-    public void nextMove(Vector2 shipPos) {
-        worldPosition = new Vector2(getPosition().x-((Gdx.graphics.getWidth()/2)-shipPos.x)/drawScale.x,getPosition().y-((Gdx.graphics.getHeight()/2)-shipPos.y)/drawScale.y);
-
+    /**
+     * Moves the patrol destination along with the ship, or on to the next waypoint once it
+     * is reached. Steering itself is done for all enemies at once by {@link EnemySteering}.
+     *
+     * @param shipPos the ship position the bodies are laid out against
+     */
+    public void updatePatrol(Vector2 shipPos) {
         if (state == State.PATROL && (destination.dst(getPosition()) < WAYPOINT_HIT)) {
             destination = nextPatrol(shipPos);
         } else if (state == State.PATROL) {
-            Vector2 offset = new Vector2((previousShipPos.x-shipPos.x)/drawScale.x, (previousShipPos.y-shipPos.y)/drawScale.y);
-            previousShipPos = shipPos;
-            destination.add(offset);
-        }
-
-        dir = new Vector2(destination.x-getPosition().x,destination.y-getPosition().y);
-        angle = dir.angleRad();
-        if (dir.len() > 2) {
-            dir.sub(getVelocity().nor().scl(HANDLING));
-        }
-        dir.nor();
-
-        if (clampVelocity) {
-            body.setLinearVelocity(body.getLinearVelocity().nor().scl(maxSpeed));
-            body.applyForce(dir.scl(MAX_ACCELERATION), getPosition(),true);
-        } else {
-            body.applyLinearImpulse(force, getPosition(),true);
+            destination.add((previousShipPos.x-shipPos.x)/drawScale.x, (previousShipPos.y-shipPos.y)/drawScale.y);
+            previousShipPos.set(shipPos);
         }
     }
 
@@ -0,0 +1,286 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Steers every enemy of a level in a few passes over packed arrays.
+ *
+ * Each step the body states are read once into primitive arrays, and the enemies are bucketed
+ * into a hashed grid by a counting sort. The steering pass then seeks each destination as the
+ * enemies always have, and blends in separation, cohesion and alignment with the neighbours
+ * from the grid. Planet gravity is found through the {@link PlanetGrid}. Finally all forces
+ * are written back to Box2D in a single pass.
+ *
+ * A lone enemy steers exactly as before, so the flocking weights only matter in swarms. They
+ * are read from the "steering" section of the rocket constants.
+ */
+public class EnemySteering {
+    /** Smallest size of the arrays, they double when a swarm outgrows them */
+    private static final int MIN_CAPACITY = 64;
+    /** Distance to the destination below which enemies stop correcting for their velocity */
+    private static final float SEEK_SLOWDOWN = 2;
+
+    /** Distance within which other enemies count as neighbours, in box2d units */
+    private final float neighbourhood;
+    /** Weights of the flocking terms relative to seeking */
+    private final float separation;
+    private final float cohesion;
+    private final float alignment;
+
+    /** The enemies, in the order of the controller list */
+    private Enemy[] enemies = new Enemy[MIN_CAPACITY];
+    private int count;
+    /** Body state, read once per step */
+    private float[] posX = new float[MIN_CAPACITY];
+    private float[] posY = new float[MIN_CAPACITY];
+    private float[] velX = new float[MIN_CAPACITY];
+    private float[] velY = new float[MIN_CAPACITY];
+    /** Force to apply this step */
+    private float[] forceX = new float[MIN_CAPACITY];
+    private float[] forceY = new float[MIN_CAPACITY];
+    /** Whether the enemy is in the pull of a planet this step */
+    private boolean[] pulled = new boolean[MIN_CAPACITY];
+
+    /** Hashed grid bucket of each enemy */
+    private int[] bucketOf = new int[MIN_CAPACITY];
+    /** Start of each bucket in sorted, with one extra entry for the end */
+    private int[] bucketStart = new int[2 * MIN_CAPACITY + 1];
+    /** Enemy indices sorted by bucket */
+    private int[] sorted = new int[MIN_CAPACITY];
+    /** Number of buckets - 1; the bucket count is a power of two */
+    private int mask = 2 * MIN_CAPACITY - 1;
+
+    /** Scratch vector for world positions */
+    private final Vector2 world = new Vector2();
+
+    /**
+     * Creates a steering system with the given flocking settings
+     *
+     * @param data the "steering" section of the constants, or null for no flocking
+     */
+    public EnemySteering(JsonValue data) {
+        neighbourhood = data != null ? data.getFloat("neighbourhood", 2.5f) : 2.5f;
+        separation = data != null ? data.getFloat("separation", 0) : 0;
+        cohesion = data != null ? data.getFloat("cohesion", 0) : 0;
+        alignment = data != null ? data.getFloat("alignment", 0) : 0;
+    }
+
+    /**
+     * Reads the body state of every enemy and buckets them for neighbour queries. Also
+     * refreshes the world position each enemy is laid out from.
+     *
+     * @param list   the enemies to steer
+     * @param frame  the ship position the bodies are laid out against
+     * @param width  the width of the screen in pixels
+     * @param height the height of the screen in pixels
+     */
+    public void gather(ArrayList<Enemy> list, Vector2 frame, int width, int height) {
+        count = list.size();
+        ensureCapacity(count);
+        float offsetX = (width / 2) - frame.x;
+        float offsetY = (height / 2) - frame.y;
+        for (int i = 0; i < count; i++) {
+            Enemy e = list.get(i);
+            enemies[i] = e;
+            Vector2 pos = e.getPosition();
+            posX[i] = pos.x;
+            posY[i] = pos.y;
+            Vector2 vel = e.getVelocity();
+            velX[i] = vel.x;
+            velY[i] = vel.y;
+            forceX[i] = 0;
+            forceY[i] = 0;
+            pulled[i] = false;
+            Vector2 scale = e.getDrawScale();
+            e.setWorldPosition(pos.x - offsetX / scale.x, pos.y - offsetY / scale.y);
+        }
+
+        // counting sort into the hashed buckets
+        Arrays.fill(bucketStart, 0, mask + 2, 0);
+        for (int i = 0; i < count; i++) {
+            int b = bucket(cell(posX[i]), cell(posY[i]));
+            bucketOf[i] = b;
+            bucketStart[b + 1]++;
+        }
+        for (int b = 0; b <= mask; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        for (int i = 0; i < count; i++) {
+            sorted[bucketStart[bucketOf[i]]++] = i;
+        }
+        // the fill moved each start to the end of its bucket, so shift them back
+        for (int b = mask; b > 0; b--) {
+            bucketStart[b] = bucketStart[b - 1];
+        }
+        bucketStart[0] = 0;
+    }
+
+    /**
+     * Computes the steering force of every enemy from its destination and its neighbours
+     */
+    public void steer() {
+        float reach2 = neighbourhood * neighbourhood;
+        for (int i = 0; i < count; i++) {
+            Enemy e = enemies[i];
+            if (!e.isClampVelocity()) {
+                continue;
+            }
+            float x = posX[i], y = posY[i];
+            Vector2 dest = e.getDestination();
+            float dx = dest.x - x, dy = dest.y - y;
+            e.setAngle((float) Math.atan2(dy, dx));
+            if (dx * dx + dy * dy > SEEK_SLOWDOWN * SEEK_SLOWDOWN) {
+                float speed = (float) Math.sqrt(velX[i] * velX[i] + velY[i] * velY[i]);
+                if (speed != 0) {
+                    dx -= velX[i] / speed * Enemy.HANDLING;
+                    dy -= velY[i] / speed * Enemy.HANDLING;
+                }
+            }
+            float len = (float) Math.sqrt(dx * dx + dy * dy);
+            if (len != 0) {
+                dx /= len;
+                dy /= len;
+            }
+
+            // flocking with the neighbours in the surrounding cells
+            float sepX = 0, sepY = 0, sumX = 0, sumY = 0, alignX = 0, alignY = 0;
+            int neighbours = 0;
+            int cx = cell(x), cy = cell(y);
+            for (int gx = cx - 1; gx <= cx + 1; gx++) {
+                for (int gy = cy - 1; gy <= cy + 1; gy++) {
+                    int b = bucket(gx, gy);
+                    for (int k = bucketStart[b]; k < bucketStart[b + 1]; k++) {
+                        int j = sorted[k];
+                        float ox = x - posX[j], oy = y - posY[j];
+                        float d2 = ox * ox + oy * oy;
+                        if (j == i || d2 >= reach2 || cell(posX[j]) != gx || cell(posY[j]) != gy) {
+                            continue;
+                        }
+                        if (d2 > 0) {
+                            sepX += ox / d2;
+                            sepY += oy / d2;
+                        }
+                        sumX += posX[j];
+                        sumY += posY[j];
+                        alignX += velX[j];
+                        alignY += velY[j];
+                        neighbours++;
+                    }
+                }
+            }
+            if (neighbours > 0) {
+                float maxSpeed = e.getMaxSpeed() * neighbours;
+                dx += separation * sepX
+                        + cohesion * (sumX / neighbours - x) / neighbourhood
+                        + alignment * alignX / maxSpeed;
+                dy += separation * sepY
+                        + cohesion * (sumY / neighbours - y) / neighbourhood
+                        + alignment * alignY / maxSpeed;
+                len = (float) Math.sqrt(dx * dx + dy * dy);
+                if (len != 0) {
+                    dx /= len;
+                    dy /= len;
+                }
+            }
+            forceX[i] = dx * Enemy.MAX_ACCELERATION;
+            forceY[i] = dy * Enemy.MAX_ACCELERATION;
+        }
+    }
+
+    /**
+     * Pulls every enemy within range of a planet towards it, the first planet in level order
+     * winning. Enemies newly caught are sent towards the planet edge to escape.
+     *
+     * @param planets the planets of the level
+     */
+    public void gravitate(PlanetGrid planets) {
+        for (int i = 0; i < count; i++) {
+            Enemy e = enemies[i];
+            float x = posX[i], y = posY[i];
+            planets.toWorld(world.set(x, y), world);
+            Array<Planet> near = planets.near(world.x, world.y);
+            for (int k = 0; near != null && k < near.size; k++) {
+                Planet p = near.get(k);
+                Vector2 center = p.getPosition();
+                float ox = center.x - x, oy = center.y - y;
+                float dist = (float) Math.sqrt(ox * ox + oy * oy);
+                if (dist < 1.25 * p.getRadius() / p.getDrawScale().x + e.getRadius()) {
+                    pulled[i] = true;
+                    if (dist != 0) {
+                        forceX[i] += ox / dist * e.getMass();
+                        forceY[i] += oy / dist * e.getMass();
+                    }
+                    if (!e.isGravitating() && dist != 0) {
+                        float r = p.getRadius();
+                        e.setEscape(center.x - ox / dist * r, center.y - oy / dist * r);
+                    }
+                    break;
+                }
+            }
+            e.setGravitating(pulled[i]);
+        }
+    }
+
+    /**
+     * Writes the results back to Box2D. Steered enemies have their speed clamped first, and
+     * stunned ones receive the impulse of the blast that stunned them.
+     */
+    public void apply() {
+        for (int i = 0; i < count; i++) {
+            Enemy e = enemies[i];
+            Body body = e.getBody();
+            if (body == null) {
+                continue;
+            }
+            if (e.isClampVelocity()) {
+                float speed = (float) Math.sqrt(velX[i] * velX[i] + velY[i] * velY[i]);
+                float s = speed != 0 ? e.getMaxSpeed() / speed : 0;
+                body.setLinearVelocity(velX[i] * s, velY[i] * s);
+            } else {
+                Vector2 impulse = e.getForce();
+                body.applyLinearImpulse(impulse.x, impulse.y, posX[i], posY[i], true);
+            }
+            if (forceX[i] != 0 || forceY[i] != 0) {
+                body.applyForceToCenter(forceX[i], forceY[i], true);
+            }
+            enemies[i] = null;
+        }
+    }
+
+    private int cell(float coord) {
+        return (int) Math.floor(coord / neighbourhood);
+    }
+
+    private int bucket(int x, int y) {
+        return (x * 73856093 ^ y * 19349663) & mask;
+    }
+
+    /** Grows the arrays to hold at least n enemies, keeping twice as many buckets */
+    private void ensureCapacity(int n) {
+        if (n <= enemies.length) {
+            return;
+        }
+        int size = enemies.length;
+        while (size < n) {
+            size *= 2;
+        }
+        enemies = new Enemy[size];
+        posX = new float[size];
+        posY = new float[size];
+        velX = new float[size];
+        velY = new float[size];
+        forceX = new float[size];
+        forceY = new float[size];
+        pulled = new boolean[size];
+        bucketOf = new int[size];
+        sorted = new int[size];
+        bucketStart = new int[2 * size + 1];
+        mask = 2 * size - 1;
+    }
+}
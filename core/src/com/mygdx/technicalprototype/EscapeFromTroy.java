@@ -38,6 +38,8 @@ public class EscapeFromTroy extends Game implements ScreenListener {
 	private MenuMode loading;
 	/** Player mode for the level select screen (CONTROLLER CLASS) */
 	private LevelSelectMode levelSelect;
+	/** Player mode for the screen shown while a level is prepared (CONTROLLER CLASS) */
+	private LevelLoadingMode levelLoading;
 	/** List of all WorldControllers */
 	private LevelMode level;
 
@@ -64,6 +66,7 @@ public class EscapeFromTroy extends Game implements ScreenListener {
 		canvas  = new GameCanvas();
 		loading = new MenuMode("assets.json",canvas,1);
 		levelSelect = new LevelSelectMode(canvas, 1);
+		levelLoading = new LevelLoadingMode(canvas, 8);
 
 		volumes[0] = 1;
 		volumes[1] = 1;
@@ -72,6 +75,7 @@ public class EscapeFromTroy extends Game implements ScreenListener {
 
 		loading.setScreenListener(this);
 		levelSelect.setScreenListener(this);
+		levelLoading.setScreenListener(this);
 
 		setScreen(loading);
 	}
@@ -89,6 +93,8 @@ public class EscapeFromTroy extends Game implements ScreenListener {
 			loading.dispose();
 		if (levelSelect != null)
 			levelSelect.dispose();
+		if (levelLoading != null)
+			levelLoading.dispose();
 		if (level != null)
 			level.dispose();
 
@@ -103,6 +109,7 @@ public class EscapeFromTroy extends Game implements ScreenListener {
 			directory.dispose();
 			directory = null;
 		}
+		TilesetCache.getInstance().dispose();
 		super.dispose();
 	}
 
@@ -153,15 +160,12 @@ public class EscapeFromTroy extends Game implements ScreenListener {
 			Gdx.app.exit();
 		}
 
-		if (screen == loading) {
+		if (screen == levelLoading) {
+			setScreen(level);
+		} else if (screen == loading) {
 			directory = loading.getAssets();
 			if (exitCode == 0) {
-				level = new LevelMode(1, this);
-				level.gatherAssets(directory);
-				level.setScreenListener(this);
-				level.setCanvas(canvas);
-				level.reset();
-				setScreen(level);
+				loadLevel(new LevelMode(1, this));
 			} else if (exitCode == 1) {
 				levelSelect.setStage();
 				levelSelect.chooseDifficulty();
@@ -170,12 +174,7 @@ public class EscapeFromTroy extends Game implements ScreenListener {
 			updateSettings(loading.getVolumes(), loading.getBrightness());
 		} else if (screen == levelSelect && exitCode > 0) {
 //			try {
-				level = new LevelMode(exitCode, this);
-				level.gatherAssets(directory);
-				level.setScreenListener(this);
-				level.setCanvas(canvas);
-				level.reset();
-				setScreen(level);
+				loadLevel(new LevelMode(exitCode, this));
 //			} catch (NullPointerException e) {
 //				System.out.println("Unsupported level");
 //				setScreen(levelSelect);
@@ -184,12 +183,7 @@ public class EscapeFromTroy extends Game implements ScreenListener {
 			loading.setState(MenuMode.MenuState.MENU);
 			setScreen(loading);
 		} else if (screen == level && exitCode > 0) {
-			level = new LevelMode(exitCode+1, this);
-			level.gatherAssets(directory);
-			level.setScreenListener(this);
-			level.setCanvas(canvas);
-			level.reset();
-			setScreen(level);
+			loadLevel(new LevelMode(exitCode+1, this));
 			updateSettings(level.getVolumes(), level.getBrightness());
 		} else if (screen == level && exitCode == -2) {
 			scrubCanvas();
@@ -211,5 +205,22 @@ public class EscapeFromTroy extends Game implements ScreenListener {
 			loading.setCanvas(canvas);
 		if (levelSelect != null)
 			levelSelect.setCanvas(canvas);
+		if (levelLoading != null)
+			levelLoading.setCanvas(canvas);
+	}
+
+	/**
+	 * Shows the loading screen while the given level is prepared. The level is shown once
+	 * the loading screen exits.
+	 *
+	 * @param mode The level to prepare
+	 */
+	private void loadLevel(LevelMode mode) {
+		level = mode;
+		level.setScreenListener(this);
+		level.setCanvas(canvas);
+		levelLoading.setCanvas(canvas);
+		levelLoading.load(level, directory);
+		setScreen(levelLoading);
 	}
 }
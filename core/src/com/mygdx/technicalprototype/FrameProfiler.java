@@ -0,0 +1,283 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Records where the time of every frame goes, so slow frames can be traced on the machine
+ * they happen on.
+ *
+ * A frame is split into phases. The phases nest, and time is only charged to the innermost
+ * one, so the AI inside the update is not counted twice. A phase entered in several steps of a
+ * frame adds up over the frame. Along with the timings, each frame keeps the number of Box2D
+ * bodies and contacts, the sprites and draw calls of the canvas, and an estimate of the bytes
+ * allocated on the heap.
+ *
+ * The last frames are kept in a ring, which the overlay summarises and which can be written
+ * out as CSV or JSON.
+ */
+public class FrameProfiler {
+    /** The parts of a frame that are timed */
+    public enum Phase {
+        INPUT("input"),
+        UPDATE("update"),
+        AI("ai"),
+        PATH("path"),
+        PHYSICS("physics"),
+        OBJECTS("objects"),
+        DRAW("draw"),
+        POST("post"),
+        MINIMAP("minimap");
+
+        /** The name of the phase in the overlay and exports */
+        public final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    /** Frames kept for export, ten seconds at 60 frames a second */
+    private static final int CAPACITY = 600;
+    /** Frames summarised by the overlay */
+    private static final int WINDOW = 60;
+    /** Frames between refreshes of the overlay text, so that it stays readable */
+    private static final int REFRESH = 30;
+
+    /** Time of every phase of every frame in nanoseconds, one row per frame */
+    private final long[] times;
+    /** Time of every frame from begin to end in nanoseconds */
+    private final long[] frameTimes;
+    /** The time every frame began at, for rates over wall clock time */
+    private final long[] starts;
+    private final int[] bodies;
+    private final int[] contacts;
+    private final int[] sprites;
+    private final int[] drawCalls;
+    private final long[] allocated;
+    /** Number of frames recorded, of which the last CAPACITY are kept */
+    private long frames;
+
+    /** The phases currently entered, innermost last */
+    private final Phase[] stack = new Phase[PHASES.length];
+    private int depth;
+    /** The time the innermost phase was last charged up to */
+    private long mark;
+    private long frameStart;
+    /** The time of every phase in the current frame */
+    private final long[] current = new long[PHASES.length];
+
+    private final Runtime runtime = Runtime.getRuntime();
+    /** Heap in use at the end of the last frame */
+    private long lastUsed;
+
+    /** Whether the overlay is drawn */
+    private boolean visible;
+    private final StringBuilder text = new StringBuilder();
+    private String overlay = "";
+
+    public FrameProfiler() {
+        times = new long[CAPACITY * PHASES.length];
+        frameTimes = new long[CAPACITY];
+        starts = new long[CAPACITY];
+        bodies = new int[CAPACITY];
+        contacts = new int[CAPACITY];
+        sprites = new int[CAPACITY];
+        drawCalls = new int[CAPACITY];
+        allocated = new long[CAPACITY];
+        lastUsed = runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void setVisible(boolean value) {
+        visible = value;
+    }
+
+    /** Starts timing a frame */
+    public void beginFrame() {
+        for (int i = 0; i < current.length; i++) {
+            current[i] = 0;
+        }
+        depth = 0;
+        frameStart = System.nanoTime();
+        mark = frameStart;
+    }
+
+    /**
+     * Enters a phase. The phase that was running is paused until this one ends.
+     *
+     * @param phase the phase to enter
+     */
+    public void begin(Phase phase) {
+        long now = System.nanoTime();
+        if (depth > 0) {
+            current[stack[depth - 1].ordinal()] += now - mark;
+        }
+        stack[depth++] = phase;
+        mark = now;
+    }
+
+    /**
+     * Leaves the innermost phase, which must be the given one
+     *
+     * @param phase the phase to leave
+     */
+    public void end(Phase phase) {
+        long now = System.nanoTime();
+        assert depth > 0 && stack[depth - 1] == phase : "Phase " + phase + " ended out of order";
+        current[stack[--depth].ordinal()] += now - mark;
+        mark = now;
+    }
+
+    /**
+     * Finishes the frame and adds it to the ring
+     *
+     * @param bodyCount    the number of Box2D bodies
+     * @param contactCount the number of Box2D contacts
+     * @param spriteCount  the number of sprites the canvas drew
+     * @param callCount    the number of draw calls of the canvas
+     */
+    public void endFrame(int bodyCount, int contactCount, int spriteCount, int callCount) {
+        int row = (int) (frames % CAPACITY);
+        System.arraycopy(current, 0, times, row * PHASES.length, PHASES.length);
+        frameTimes[row] = System.nanoTime() - frameStart;
+        starts[row] = frameStart;
+        bodies[row] = bodyCount;
+        contacts[row] = contactCount;
+        sprites[row] = spriteCount;
+        drawCalls[row] = callCount;
+        // the heap only shows what survived the last collection, so a frame with a
+        // collection in it counts as allocating nothing
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        allocated[row] = Math.max(0, used - lastUsed);
+        lastUsed = used;
+        frames++;
+
+        if (visible && frames % REFRESH == 0) {
+            summarise();
+        }
+    }
+
+    /**
+     * Draws the summary of the last second of frames. The canvas must be active.
+     *
+     * @param canvas Drawing context
+     * @param font   the font of the text
+     * @param x      the left of the text in screen pixels
+     * @param y      the top of the text in screen pixels
+     */
+    public void draw(GameCanvas canvas, BitmapFont font, float x, float y) {
+        if (visible) {
+            canvas.drawText(overlay, font, x, y);
+        }
+    }
+
+    /** Rebuilds the overlay text from the last WINDOW frames */
+    private void summarise() {
+        int count = (int) Math.min(WINDOW, frames);
+        long frameSum = 0, frameMax = 0, bytes = 0;
+        for (int i = 0; i < count; i++) {
+            int row = (int) ((frames - 1 - i) % CAPACITY);
+            frameSum += frameTimes[row];
+            frameMax = Math.max(frameMax, frameTimes[row]);
+            if (i < count - 1) {
+                bytes += allocated[row];
+            }
+        }
+        int last = (int) ((frames - 1) % CAPACITY);
+        long wall = starts[last] - starts[(int) ((frames - count) % CAPACITY)];
+
+        text.setLength(0);
+        text.append("frame ");
+        appendMillis(frameSum / count);
+        text.append(" ms  max ");
+        appendMillis(frameMax);
+        text.append(" ms\n");
+        for (Phase phase : PHASES) {
+            long sum = 0, max = 0;
+            for (int i = 0; i < count; i++) {
+                long t = times[(int) ((frames - 1 - i) % CAPACITY) * PHASES.length + phase.ordinal()];
+                sum += t;
+                max = Math.max(max, t);
+            }
+            text.append(phase.label).append(' ');
+            appendMillis(sum / count);
+            text.append("  max ");
+            appendMillis(max);
+            text.append('\n');
+        }
+        text.append("bodies ").append(bodies[last]).append("  contacts ").append(contacts[last]).append('\n');
+        text.append("sprites ").append(sprites[last]).append("  draw calls ").append(drawCalls[last]).append('\n');
+        text.append("alloc ");
+        appendMillis(wall == 0 ? 0 : (long) (bytes * 1e9 / wall));
+        text.append(" MB/s");
+        overlay = text.toString();
+    }
+
+    /** Appends a time in nanoseconds as milliseconds with two decimals */
+    private void appendMillis(long nanos) {
+        long hundredths = nanos / 10000;
+        text.append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            text.append('0');
+        }
+        text.append(fraction);
+    }
+
+    /**
+     * Writes the frames in the ring, oldest first. Files ending in .json are written as a
+     * JSON array of frames, anything else as CSV. Times are in milliseconds.
+     *
+     * @param file the file to write
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void write(FileHandle file) throws IOException {
+        boolean json = file.extension().equalsIgnoreCase("json");
+        Writer out = file.writer(false, "UTF-8");
+        try {
+            if (json) {
+                out.write("[\n");
+            } else {
+                out.write("frame,total");
+                for (Phase phase : PHASES) {
+                    out.write("," + phase.label);
+                }
+                out.write(",bodies,contacts,sprites,drawcalls,allocated\n");
+            }
+            long first = Math.max(0, frames - CAPACITY);
+            for (long frame = first; frame < frames; frame++) {
+                int row = (int) (frame % CAPACITY);
+                if (json) {
+                    out.write("  {\"frame\": " + frame + ", \"total\": " + frameTimes[row] / 1e6);
+                    for (Phase phase : PHASES) {
+                        out.write(", \"" + phase.label + "\": " + times[row * PHASES.length + phase.ordinal()] / 1e6);
+                    }
+                    out.write(", \"bodies\": " + bodies[row] + ", \"contacts\": " + contacts[row]
+                            + ", \"sprites\": " + sprites[row] + ", \"drawcalls\": " + drawCalls[row]
+                            + ", \"allocated\": " + allocated[row] + "}" + (frame < frames - 1 ? ",\n" : "\n"));
+                } else {
+                    out.write(frame + "," + frameTimes[row] / 1e6);
+                    for (Phase phase : PHASES) {
+                        out.write("," + times[row * PHASES.length + phase.ordinal()] / 1e6);
+                    }
+                    out.write("," + bodies[row] + "," + contacts[row] + "," + sprites[row] + ","
+                            + drawCalls[row] + "," + allocated[row] + "\n");
+                }
+            }
+            if (json) {
+                out.write("]\n");
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -24,7 +24,9 @@ import com.badlogic.gdx.graphics.g2d.*;
 import com.badlogic.gdx.graphics.glutils.*;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.utils.GdxRuntimeException;
-import com.mygdx.technicalprototype.util.PathShader;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+import java.util.Arrays;
 
 /**
  * Primary view class for the game, abstracting the basic graphics calls.
@@ -40,6 +42,8 @@ public class GameCanvas {
 		INACTIVE,
 		/** We are drawing sprites */
 		STANDARD,
+		/** We are queueing sprites to sort them before drawing */
+		QUEUED,
 		/** We are drawing outlines */
 		DEBUG
 	}
@@ -93,9 +97,32 @@ public class GameCanvas {
 	/** Cache object to handle raw textures */
 	private TextureRegion holder;
 
-	private PathShader pathShader;
 	private LightingController lightingController;
-	public ShaderProgram shader;
+
+	// RENDER QUEUE
+	/** Floats per queued sprite, laid out as the sprite batch expects them */
+	private static final int SPRITE_SIZE = 20;
+	/** Sort key of each queued sprite: layer, shader, texture, then submission order */
+	private long[] queueKeys;
+	/** The texture of each queued sprite */
+	private Texture[] queueTextures;
+	/** The shader of each queued sprite */
+	private ShaderProgram[] queueShaders;
+	/** The vertices of each queued sprite, already transformed to screen space */
+	private float[] queueVertices;
+	/** The number of queued sprites */
+	private int queued;
+	/** The layer sprites are queued on */
+	private int layer;
+	/** The transform of the layer, applied after the local one; null for screen space */
+	private Affine2 layerTransform;
+	/** Cache for a local transform combined with the layer transform */
+	private Affine2 queueAffine;
+	/** Small ids for the sort key, assigned on first use */
+	private ObjectIntMap<Texture> textureIds;
+	private ObjectIntMap<ShaderProgram> shaderIds;
+	/** Sprites drawn and batch flushes since the last reset, and in the frame before it */
+	private int draws, flushes, lastDraws, lastFlushes;
 
 
 
@@ -123,11 +150,16 @@ public class GameCanvas {
 		global = new Matrix4();
 		vertex = new Vector2();
 
-		//Initializing default shader shader
+		queueKeys = new long[256];
+		queueTextures = new Texture[256];
+		queueShaders = new ShaderProgram[256];
+		queueVertices = new float[256 * SPRITE_SIZE];
+		queueAffine = new Affine2();
+		textureIds = new ObjectIntMap<>();
+		shaderIds = new ObjectIntMap<>();
+
+		// the screen effect shaders leave out the uniforms of disabled effects
 		ShaderProgram.pedantic = false;
-		shader = createShader(
-				Gdx.files.internal("troy/shaders/passthrough.vert").readString(),
-				Gdx.files.internal("troy/shaders/passthrough_n.frag").readString());
 
 		lightingController = new LightingController();
 
@@ -150,17 +182,15 @@ public class GameCanvas {
     	global = null;
     	vertex = null;
     	holder = null;
+    	queueTextures = null;
+    	queueShaders = null;
+    	textureIds = null;
+    	shaderIds = null;
     }
 
 //    //public void addLight(Light light){
 //    	lightingController.addLight(light);
 //	}
-	public void shaderOn(){
-    	spriteBatch.setShader(shader);
-	}
-	public void shaderOff(){
-		spriteBatch.setShader(null);
-	}
 
 //	public void renderLights(){
 //    	lightingController.renderLights(this.spriteBatch);
@@ -413,10 +443,185 @@ public class GameCanvas {
 	 * Ends a drawing sequence, flushing textures to the graphics card.
 	 */
     public void end() {
-    	spriteBatch.end();
+		if (active == DrawPass.QUEUED) {
+			flushQueue();
+		} else {
+			spriteBatch.end();
+			flushes += spriteBatch.renderCalls;
+		}
     	active = DrawPass.INACTIVE;
     }
 
+	/**
+	 * Start a queued drawing sequence.
+	 *
+	 * Sprites are not drawn right away but queued with a sort key made of their layer,
+	 * shader and texture. The method end() sorts the queue and draws it in a single batch,
+	 * so the batch only flushes when the shader or texture changes. Layers are drawn back
+	 * to front; within a layer, sprites that share a texture keep the order they were drawn
+	 * in, but sprites of different textures may be reordered. Use separate layers for
+	 * anything that must overlap in a given order.
+	 *
+	 * Only textures and texture regions can be queued. Each layer can have its own global
+	 * transform, see {@link #setLayer}. The pass starts on layer 0 in screen space.
+	 */
+	public void beginQueue() {
+		queued = 0;
+		layer = 0;
+		layerTransform = null;
+		active = DrawPass.QUEUED;
+	}
+
+	/**
+	 * Sets the layer that the following sprites are queued on
+	 *
+	 * @param value the layer, from 0 (back) to 255 (front)
+	 * @param affine the global transform of the layer, or null for screen space. The
+	 *               transform is copied when a sprite is queued, so it may change later.
+	 */
+	public void setLayer(int value, Affine2 affine) {
+		layer = value;
+		layerTransform = affine;
+	}
+
+	/**
+	 * Starts counting sprites and flushes for a new frame
+	 *
+	 * The counts of the frame that ends are kept for {@link #getDrawCount} and
+	 * {@link #getFlushCount}.
+	 */
+	public void resetStats() {
+		lastDraws = draws;
+		lastFlushes = flushes;
+		draws = 0;
+		flushes = 0;
+	}
+
+	/**
+	 * Returns the number of sprites drawn in the last frame
+	 *
+	 * @return the number of sprites drawn in the last frame
+	 */
+	public int getDrawCount() {
+		return lastDraws;
+	}
+
+	/**
+	 * Returns the number of times the sprite batch was flushed in the last frame
+	 *
+	 * Each flush is a draw call to the graphics card.
+	 *
+	 * @return the number of batch flushes in the last frame
+	 */
+	public int getFlushCount() {
+		return lastFlushes;
+	}
+
+	/**
+	 * Adds a sprite to the queue
+	 *
+	 * The vertices are computed as the sprite batch would for the same transform.
+	 */
+	private void enqueue(TextureRegion region, Color tint, float width, float height, Affine2 affine) {
+		if (queued == queueKeys.length) {
+			int size = queued * 2;
+			long[] keys = new long[size];
+			System.arraycopy(queueKeys, 0, keys, 0, queued);
+			queueKeys = keys;
+			Texture[] textures = new Texture[size];
+			System.arraycopy(queueTextures, 0, textures, 0, queued);
+			queueTextures = textures;
+			ShaderProgram[] shaders = new ShaderProgram[size];
+			System.arraycopy(queueShaders, 0, shaders, 0, queued);
+			queueShaders = shaders;
+			float[] vertices = new float[size * SPRITE_SIZE];
+			System.arraycopy(queueVertices, 0, vertices, 0, queued * SPRITE_SIZE);
+			queueVertices = vertices;
+		}
+
+		Texture texture = region.getTexture();
+		ShaderProgram program = spriteBatch.getShader();
+		int textureId = textureIds.get(texture, -1);
+		if (textureId == -1) {
+			textureId = textureIds.size;
+			textureIds.put(texture, textureId);
+		}
+		int shaderId = 0;
+		if (program != null) {
+			shaderId = shaderIds.get(program, -1);
+			if (shaderId == -1) {
+				shaderId = shaderIds.size + 1;
+				shaderIds.put(program, shaderId);
+			}
+		}
+		queueKeys[queued] = ((long)(layer & 0xff) << 56) | ((long)(shaderId & 0xff) << 48)
+				| ((long)(textureId & 0xffff) << 32) | queued;
+		queueTextures[queued] = texture;
+		queueShaders[queued] = program;
+
+		Affine2 t = affine;
+		if (layerTransform != null) {
+			t = queueAffine.set(layerTransform).mul(affine);
+		}
+		float color = tint.toFloatBits();
+		float u = region.getU();
+		float v = region.getV2();
+		float u2 = region.getU2();
+		float v2 = region.getV();
+		float[] vertices = queueVertices;
+		int idx = queued * SPRITE_SIZE;
+		vertices[idx     ] = t.m02;
+		vertices[idx +  1] = t.m12;
+		vertices[idx +  2] = color;
+		vertices[idx +  3] = u;
+		vertices[idx +  4] = v;
+		vertices[idx +  5] = t.m01 * height + t.m02;
+		vertices[idx +  6] = t.m11 * height + t.m12;
+		vertices[idx +  7] = color;
+		vertices[idx +  8] = u;
+		vertices[idx +  9] = v2;
+		vertices[idx + 10] = t.m00 * width + t.m01 * height + t.m02;
+		vertices[idx + 11] = t.m10 * width + t.m11 * height + t.m12;
+		vertices[idx + 12] = color;
+		vertices[idx + 13] = u2;
+		vertices[idx + 14] = v2;
+		vertices[idx + 15] = t.m00 * width + t.m02;
+		vertices[idx + 16] = t.m10 * width + t.m12;
+		vertices[idx + 17] = color;
+		vertices[idx + 18] = u2;
+		vertices[idx + 19] = v;
+		queued++;
+		draws++;
+	}
+
+	/**
+	 * Sorts the queue and draws it in a single batch
+	 */
+	private void flushQueue() {
+		Arrays.sort(queueKeys, 0, queued);
+		ShaderProgram restore = spriteBatch.getShader();
+		spriteBatch.setProjectionMatrix(camera.combined);
+		setBlendState(BlendState.NO_PREMULT);
+		spriteBatch.begin();
+		for (int ii = 0; ii < queued; ii++) {
+			int index = (int)(queueKeys[ii] & 0xffffffffL);
+			if (spriteBatch.getShader() != queueShaders[index]) {
+				spriteBatch.setShader(queueShaders[index]);
+			}
+			spriteBatch.draw(queueTextures[index], queueVertices, index * SPRITE_SIZE, SPRITE_SIZE);
+		}
+		spriteBatch.end();
+		spriteBatch.setShader(restore);
+		flushes += spriteBatch.renderCalls;
+
+		// let go of the textures so that the queue does not keep them alive
+		for (int ii = 0; ii < queued; ii++) {
+			queueTextures[ii] = null;
+			queueShaders[ii] = null;
+		}
+		queued = 0;
+	}
+
 	/**
 	 * Draws the tinted texture at the given position.
 	 *
@@ -433,14 +638,22 @@ public class GameCanvas {
 	 * @param y 	The y-coordinate of the bottom left corner
 	 */
 	public void draw(Texture image, float x, float y) {
-		if (active != DrawPass.STANDARD) {
+		if (active != DrawPass.STANDARD && active != DrawPass.QUEUED) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
 		
+		if (active == DrawPass.QUEUED) {
+			holder.setRegion(image);
+			local.setToTranslation(x, y);
+			enqueue(holder, Color.WHITE, image.getWidth(), image.getHeight(), local);
+			return;
+		}
+
 		// Unlike Lab 1, we can shortcut without a master drawing method
     	spriteBatch.setColor(Color.WHITE);
 		spriteBatch.draw(image, x,  y);
+		draws++;
 	}
 	
 	/**
@@ -461,14 +674,22 @@ public class GameCanvas {
 	 * @param height The texture height
 	 */
 	public void draw(Texture image, Color tint, float x, float y, float width, float height) {
-		if (active != DrawPass.STANDARD) {
+		if (active != DrawPass.STANDARD && active != DrawPass.QUEUED) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
 		
+		if (active == DrawPass.QUEUED) {
+			holder.setRegion(image);
+			local.setToTranslation(x, y);
+			enqueue(holder, tint, width, height, local);
+			return;
+		}
+
 		// Unlike Lab 1, we can shortcut without a master drawing method
     	spriteBatch.setColor(tint);
 		spriteBatch.draw(image, x,  y, width, height);
+		draws++;
 	}
 	
 	/**
@@ -491,7 +712,7 @@ public class GameCanvas {
 	 * @param height The texture height
 	 */
 	public void draw(Texture image, Color tint, float ox, float oy, float x, float y, float width, float height) {
-		if (active != DrawPass.STANDARD) {
+		if (active != DrawPass.STANDARD && active != DrawPass.QUEUED) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
@@ -527,7 +748,7 @@ public class GameCanvas {
 	 */	
 	public void draw(Texture image, Color tint, float ox, float oy, 
 					float x, float y, float angle, float sx, float sy) {
-		if (active != DrawPass.STANDARD) {
+		if (active != DrawPass.STANDARD && active != DrawPass.QUEUED) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
@@ -557,7 +778,7 @@ public class GameCanvas {
 	 * @param transform  The image transform
 	 */	
 	public void draw(Texture image, Color tint, float ox, float oy, Affine2 transform) {
-		if (active != DrawPass.STANDARD) {
+		if (active != DrawPass.STANDARD && active != DrawPass.QUEUED) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
@@ -586,14 +807,21 @@ public class GameCanvas {
 	 * @param y 	The y-coordinate of the bottom left corner
 	 */
 	public void draw(TextureRegion region, float x, float y) {
-		if (active != DrawPass.STANDARD) {
+		if (active != DrawPass.STANDARD && active != DrawPass.QUEUED) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
 		
+		if (active == DrawPass.QUEUED) {
+			local.setToTranslation(x, y);
+			enqueue(region, Color.WHITE, region.getRegionWidth(), region.getRegionHeight(), local);
+			return;
+		}
+
 		// Unlike Lab 1, we can shortcut without a master drawing method
     	spriteBatch.setColor(Color.WHITE);
 		spriteBatch.draw(region, x,  y);
+		draws++;
 	}
 
 	/**
@@ -614,14 +842,21 @@ public class GameCanvas {
 	 * @param height The texture height
 	 */
 	public void draw(TextureRegion region, Color tint, float x, float y, float width, float height) {
-		if (active != DrawPass.STANDARD) {
+		if (active != DrawPass.STANDARD && active != DrawPass.QUEUED) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
 		
+		if (active == DrawPass.QUEUED) {
+			local.setToTranslation(x, y);
+			enqueue(region, tint, width, height, local);
+			return;
+		}
+
 		// Unlike Lab 1, we can shortcut without a master drawing method
     	spriteBatch.setColor(tint);
 		spriteBatch.draw(region, x,  y, width, height);
+		draws++;
 	}
 	
 	/**
@@ -644,14 +879,21 @@ public class GameCanvas {
 	 * @param height The texture height
 	 */	
 	public void draw(TextureRegion region, Color tint, float ox, float oy, float x, float y, float width, float height) {
-		if (active != DrawPass.STANDARD) {
+		if (active != DrawPass.STANDARD && active != DrawPass.QUEUED) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
 		
+		if (active == DrawPass.QUEUED) {
+			local.setToTranslation(x-ox, y-oy);
+			enqueue(region, tint, width, height, local);
+			return;
+		}
+
 		// Unlike Lab 1, we can shortcut without a master drawing method
     	spriteBatch.setColor(tint);
 		spriteBatch.draw(region, x-ox, y-oy, width, height);
+		draws++;
 	}
 
 	/**
@@ -682,7 +924,7 @@ public class GameCanvas {
 	 */	
 	public void draw(TextureRegion region, Color tint, float ox, float oy, 
 					 float x, float y, float angle, float sx, float sy) {
-		if (active != DrawPass.STANDARD) {
+		if (active != DrawPass.STANDARD && active != DrawPass.QUEUED) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
@@ -691,8 +933,13 @@ public class GameCanvas {
 		// There is a workaround, but it will break if the bug is fixed.
 		// For now, it is better to set the affine transform directly.
 		computeTransform(ox,oy,x,y,angle,sx,sy);
+		if (active == DrawPass.QUEUED) {
+			enqueue(region, tint, region.getRegionWidth(), region.getRegionHeight(), local);
+			return;
+		}
 		spriteBatch.setColor(tint);
 		spriteBatch.draw(region, region.getRegionWidth(), region.getRegionHeight(), local);
+		draws++;
 	}
 
 	/**
@@ -715,15 +962,20 @@ public class GameCanvas {
 	 * @param affine  The image transform
 	 */	
 	public void draw(TextureRegion region, Color tint, float ox, float oy, Affine2 affine) {
-		if (active != DrawPass.STANDARD) {
+		if (active != DrawPass.STANDARD && active != DrawPass.QUEUED) {
 			Gdx.app.error("GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
 			return;
 		}
 
 		local.set(affine);
 		local.translate(-ox,-oy);				
+		if (active == DrawPass.QUEUED) {
+			enqueue(region, tint, region.getRegionWidth(), region.getRegionHeight(), local);
+			return;
+		}
 		spriteBatch.setColor(tint);
 		spriteBatch.draw(region, region.getRegionWidth(), region.getRegionHeight(), local);
+		draws++;
 	}
 
 	/**
@@ -718,6 +718,30 @@ public abstract class GameObject {
 		}
 	}
 
+	/**
+	 * Returns the collision category of this object
+	 *
+	 * This is the category bits of the filter, one of the constants in {@link ContactTable}.
+	 * It decides which contact handler is called when this object touches another.
+	 *
+	 * @return the collision category of this object
+	 */
+	public short getCategory() {
+		return fixture.filter.categoryBits;
+	}
+
+	/**
+	 * Sets the collision category of this object
+	 *
+	 * This must be set before the physics are activated for Box2D to see it, although
+	 * contact handlers look it up here and so follow any change.
+	 *
+	 * @param value  the collision category, one of the constants in {@link ContactTable}
+	 */
+	public void setCategory(short value) {
+		fixture.filter.categoryBits = value;
+	}
+
 	/// MassData Methods
 	/**
 	 * Returns the center of mass of this body
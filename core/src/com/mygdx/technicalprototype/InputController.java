@@ -85,6 +85,12 @@ public class InputController {
 	/** Whether the debug toggle was pressed. */
 	private boolean debugPressed;
 	private boolean debugPrevious;
+	/** Whether the profiler overlay toggle was pressed. */
+	private boolean profilePressed;
+	private boolean profilePrevious;
+	/** Whether the profiler export button was pressed. */
+	private boolean exportPressed;
+	private boolean exportPrevious;
 	/** Whether the exit button was pressed. */
 	private boolean exitPressed;
 	private boolean exitPrevious;
@@ -230,6 +236,24 @@ public class InputController {
 		return debugPressed && !debugPrevious;
 	}
 	
+	/**
+	 * Returns true if the player wants to toggle the profiler overlay.
+	 *
+	 * @return true if the player wants to toggle the profiler overlay.
+	 */
+	public boolean didProfile() {
+		return profilePressed && !profilePrevious;
+	}
+
+	/**
+	 * Returns true if the player wants to write out the recorded frame timings.
+	 *
+	 * @return true if the player wants to write out the recorded frame timings.
+	 */
+	public boolean didExportProfile() {
+		return exportPressed && !exportPrevious;
+	}
+
 	/**
 	 * Returns true if the exit button was pressed.
 	 *
@@ -317,6 +341,8 @@ public class InputController {
 		secondPrevious = secondPressed;
 		resetPrevious  = resetPressed;
 		debugPrevious  = debugPressed;
+		profilePrevious = profilePressed;
+		exportPrevious = exportPressed;
 		exitPrevious = exitPressed;
 		nextPrevious = nextPressed;
 		prevPrevious = prevPressed;
@@ -384,6 +410,8 @@ public class InputController {
 		// Give priority to gamepad results
 		resetPressed = (secondary && resetPressed) || (Gdx.input.isKeyPressed(keyToInput.get(indexKeyToChange.RESTART)));
 		debugPressed = (secondary && debugPressed) || (Gdx.input.isKeyPressed(Input.Keys.B));
+		profilePressed = Gdx.input.isKeyPressed(Input.Keys.F3);
+		exportPressed = Gdx.input.isKeyPressed(Input.Keys.F4);
     //Implement UP&DOWN and W&S control
 		primePressed = (secondary && primePressed) ||
 				(Gdx.input.isKeyPressed(keyToInput.get(indexKeyToChange.FORWARD)));
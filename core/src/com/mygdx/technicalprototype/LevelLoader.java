@@ -3,19 +3,16 @@ package com.mygdx.technicalprototype;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.PolygonRegion;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.JsonValue;
-import com.mygdx.technicalprototype.assets.AssetDirectory;
+import com.mygdx.technicalprototype.util.LevelData;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.regex.Pattern;
 
 public class LevelLoader {
 //    private static final int backgroundScale = 2;
@@ -40,10 +37,16 @@ public class LevelLoader {
 
     private String levelName;
 
-    private AssetDirectory internal;
+    /** The tilesets this level holds in the shared cache */
+    private ArrayList<String> tilesetNames = new ArrayList<>();
+    /** Whether the tiles of every tileset have been added to tilesets */
+    private boolean tilesetsLoaded;
 
     private Vector2 scale;
 
+    /** Cached geometry of the tile layers, built the first time the level is drawn */
+    private TileLayerRenderer tileRenderer;
+
     /** Object lists for use in LevelMode */
     private ArrayList<Planet> resizables = new ArrayList<>();
     private ArrayList<StaticObstacle> staticObstacles = new ArrayList<>();
@@ -55,7 +58,8 @@ public class LevelLoader {
     private ArrayList<Checkpoint> checkpoints = new ArrayList<>();
     private ArrayList<TriggerZone> enemyAreas = new ArrayList<>();
 
-    private ArrayList<JsonValue> objectLayers = new ArrayList<>();
+    /** The parsed level file the objects are built from */
+    private LevelData data;
 
 
     private HashMap<Integer, ArrayList<Vector2>> paths = new HashMap<>();
@@ -68,7 +72,7 @@ public class LevelLoader {
 
 
 
-    public LevelLoader(String levelName, JsonValue levelFile, Vector2 scale){
+    public LevelLoader(String levelName, LevelData levelFile, Vector2 scale){
         /** Set level name */
         this.levelName = levelName;
         this.scale = scale;
@@ -88,162 +92,109 @@ public class LevelLoader {
         return mapPixelWidth;
     }
 
-    public void parseLevel(JsonValue levelFile){
-        internal = new AssetDirectory("tilesets.json");
-        internal.loadAssets();
-        internal.finishLoading();
-
-        int cLevel = levelFile.getInt("compressionlevel");
-        if(cLevel != -1)
-            backgroundScale = cLevel;
-
+    public void parseLevel(LevelData levelFile){
+        data = levelFile;
+        backgroundScale = levelFile.backgroundScale;
 
         /** Load various level constants */
-        mapHeight = levelFile.getInt("height");
-        mapWidth = levelFile.getInt("width");
-
-        tileWidth = levelFile.getInt("tilewidth")/backgroundScale;
-        tileHeight = levelFile.getInt("tileheight")/backgroundScale;
-
-try {
-    if (levelFile.get("properties") != null) {
-        JsonValue jv = levelFile.get("properties").get(0);
-        if (jv.getString("name") != null) {
-            levelfancyname = jv.getString("value");
-        }
-    }
-}catch(IllegalArgumentException e){
-
-    }
-
-//        mapPixelHeight = mapHeight*levelFile.getInt("tileheight");
-//        mapPixelWidth = mapWidth*levelFile.getInt("tilewidth");
+        mapHeight = levelFile.mapHeight;
+        mapWidth = levelFile.mapWidth;
 
-        mapPixelHeight = mapHeight*tileHeight;
-        mapPixelWidth = mapWidth*tileWidth;
+        tileWidth = levelFile.tileWidth;
+        tileHeight = levelFile.tileHeight;
 
+        levelfancyname = levelFile.fancyName;
 
+        mapPixelHeight = levelFile.getMapPixelHeight();
+        mapPixelWidth = levelFile.getMapPixelWidth();
 
         /** Load the tileset textures */
         tilesets = new Array<>();
-        parseTilesets(levelFile, internal);
-
-
-        /** Load the various object and tile layers */
-        JsonValue layers = levelFile.get("layers");
+        parseTilesets(levelFile);
 
         /** Load the layers of the level */
         levelArray = new ArrayList<>();
-
-        for (int i = 0; i < layers.size; i++) {
-
-            JsonValue currLayer = layers.get(i);
-
-            if (currLayer.getString("type").equals("tilelayer")){
-                parseTileLayer(currLayer);
-            }else if(currLayer.getString("type").equals("objectgroup")){
-                objectLayers.add(currLayer);
-            }
+        for (int[] layer : levelFile.layers) {
+            levelArray.add(layer);
         }
-
     }
 
     public void loadLevel(Vector2 checkpoint){
-        for (int i = 0; i < objectLayers.size(); i++) {
-            parseObjectGroup(objectLayers.get(i), checkpoint);
+        for (LevelData.ObjectRecord object : data.objects) {
+            initObject(object, checkpoint);
         }
     }
 
-    private void parseTilesets(JsonValue levelFile, AssetDirectory internal){
-        JsonValue tsets = levelFile.get("tilesets");
-        for (int i = 0; i < tsets.size; i++) {
-
-            JsonValue currSet = tsets.get(i);
-
-            try {
-
-                String[] t1 = currSet.getString("source").split(Pattern.quote("."));
-                String[] t2 = t1[t1.length - 2].split(Pattern.quote("/"));
-                String tsetName = t2[t2.length - 1];
-
-                JsonValue tsjFile = internal.getEntry(levelName + ":"+tsetName, JsonValue.class);
-                int tilecount = tsjFile.getInt("tilecount");
-                if(tilecount == 1){
-                    addTileTexture(tsetName);
-                }else{
-
-                    for (int j = 1; j <= tilecount; j++) {
-                    addTileTexture(tsetName+j);
-                    }
-                }
-            }catch(IllegalArgumentException e){
-                System.err.println("JSon tileset: "+currSet.getString("source")+" not found in tilesets.json.");
-            }
-
+    /**
+     * Acquires the tilesets the level references from the shared cache. Tilesets that are not
+     * resident are only queued, see {@link #updateTilesets} and {@link #finishTilesets}.
+     */
+    private void parseTilesets(LevelData levelFile){
+        TilesetCache cache = TilesetCache.getInstance();
+        for (String tsetName : levelFile.tilesets) {
+            if (cache.acquire(levelName + ":" + tsetName)) {
+                tilesetNames.add(levelName + ":" + tsetName);
+            } else {
+                System.err.println("JSon tileset: "+tsetName+" not found in tilesets.json.");
             }
+        }
     }
 
-    private void addTileTexture(String entryName){
-        try {
-            tilesets.add(new TextureRegion(internal.getEntry(levelName + ":" + entryName, Texture.class)));
-        } catch (IllegalArgumentException e) {
-            tilesets.add(null);
-            System.out.println("Texture: " + levelName + ":" + entryName + "was not found. This is likely due to an absence in tilesets.json");
+    /**
+     * Loads the queued tileset textures for up to the given time. This must run on the
+     * render thread.
+     *
+     * @param millis the time budget in milliseconds
+     *
+     * @return true once every tileset of the level is loaded
+     */
+    public boolean updateTilesets(int millis){
+        if (!tilesetsLoaded && TilesetCache.getInstance().update(millis)) {
+            resolveTilesets();
         }
+        return tilesetsLoaded;
     }
 
-    private void parseObjectGroup(JsonValue currLayer, Vector2 checkpoint){
-    JsonValue objects = currLayer.get("objects");
-        for (int i = 0; i < objects.size; i++) {
-            initObject(objects.get(i), checkpoint);
+    /** Blocks until every tileset of the level is loaded */
+    public void finishTilesets(){
+        if (!tilesetsLoaded) {
+            TilesetCache.getInstance().finishLoading();
+            resolveTilesets();
         }
-
     }
 
-    private void initObject(JsonValue object, Vector2 checkpoint){
-        switch (object.getString("type")){
-            case "Resizeable":
-                Vector2 v = new Vector2(object.getFloat("x")/backgroundScale/scale.x , (mapPixelHeight - (object.getFloat("y")/backgroundScale))/scale.y);
-                String color = getProperty(object, "PlanetColor");
-                float radius = getRadius(object);
-                String min = getProperty(object, "MinRadius");
-                int minSize = -1;
-                if(min != null){
-                    minSize = Integer.parseInt(min);
-                }
-                String max = getProperty(object, "MaxRadius");
-                int maxSize = 2;
-                if(max != null){
-                    maxSize = Integer.parseInt(max);
-                }
-                String dgr = getProperty(object, "angle");
-                int angle = 180;
-                if(dgr != null){
-                    angle = Integer.parseInt(dgr);
-                }
-
-
+    private void resolveTilesets(){
+        TilesetCache cache = TilesetCache.getInstance();
+        for (String name : tilesetNames) {
+            tilesets.addAll(cache.getTiles(name));
+        }
+        tilesetsLoaded = true;
+    }
 
-                Planet p = new Planet(v, radius, checkpoint,
-                        stringToColor(color), maxSize, minSize, angle);
+    private void initObject(LevelData.ObjectRecord object, Vector2 checkpoint){
+        switch (object.kind){
+            case LevelData.RESIZEABLE:
+                Vector2 v = new Vector2(object.x/scale.x, object.y/scale.y);
+                Planet p = new Planet(v, object.radius, checkpoint,
+                        stringToColor(object.type), object.maxRadius, object.minRadius, object.angle);
                 resizables.add(p);
                 break;
-            case "StaticObstacle":
+            case LevelData.STATIC_OBSTACLE:
                 loadStaticObstacle(object);
                 break;
-            case "TriggerArea":
+            case LevelData.TRIGGER_AREA:
                 loadEnemyArea(object);
                 break;
-            case "PathPoint":
+            case LevelData.PATH_POINT:
                 loadPath(object);
                 break;
-            case "DynamicObstacle":
+            case LevelData.DYNAMIC_OBSTACLE:
                 loadDynamicObstacle(object);
                 break;
-            case "Reward":
+            case LevelData.REWARD:
                 loadReward(object);
                 break;
-            case "Enemy":
+            case LevelData.ENEMY:
                 loadEnemy(object);
                 break;
 
@@ -251,86 +202,38 @@ try {
 
     }
 
-    private String getProperty(JsonValue object, String propertyname){
-        JsonValue properties = object.get("properties");
-        try {
-            if (properties != null && !propertyname.equals("x") && !propertyname.equals("y")
-                    && !propertyname.equals("height") && !propertyname.equals("width")) {
-                for (int i = 0; i < properties.size; i++) {
-                    if (properties.get(i).getString("name").equals(propertyname)) {
-                        return properties.get(i).getString("value");
-                    }
-                }
-            } else {
-                return object.getString(propertyname);
-            }
-        }catch (IllegalArgumentException e){
-            System.err.println("Unable to load object due to unassigned property: "+propertyname);
-            return null;
-        }
-        return null;
-    }
-
-    private void loadEnemyArea(JsonValue object){
-        String amm = getProperty(object, "SwarmNumber");
-        int amount = 100;
-        if(amm != null){
-            amount = Integer.parseInt(amm);
-        }
-        String dis = getProperty(object, "distance");
-        float distance = 50;
-        if(dis != null){
-            distance = Float.parseFloat(dis);
-        }
-        String spd = getProperty(object, "speed");
-        float speed = 5f;
-        if(spd != null){
-            speed = Float.parseFloat(spd);
-        }
-
-        String rspwn = getProperty(object, "respawn");
-        boolean respawn = true;
-        if(rspwn != null){
-            respawn = Boolean.parseBoolean(rspwn);
-        }
-
-        float height = Float.parseFloat(getProperty(object, "height"))/backgroundScale;
-
-
-
+    private void loadEnemyArea(LevelData.ObjectRecord object){
         TriggerZone z = new TriggerZone(
-                Float.parseFloat(getProperty(object, "x"))/backgroundScale,
-                (mapPixelHeight - Float.parseFloat(getProperty(object, "y"))/backgroundScale) - height,
-                Float.parseFloat(getProperty(object, "width"))/backgroundScale,
-                height,
-                getId(object),
-                amount,
-                distance,
-                speed,
-                respawn
+                object.x,
+                object.y,
+                object.width,
+                object.height,
+                object.id,
+                object.amount,
+                object.distance,
+                object.speed,
+                object.respawn
         );
 
         enemyAreas.add(z);
     }
 
-    private void loadEnemy(JsonValue object){
-        Vector2 v = getXY(object);
-        v.set(v.x/scale.x, v.y/scale.y);
-        float radius = getRadius(object);
-        int id = getId(object);
+    private void loadEnemy(LevelData.ObjectRecord object){
+        Vector2 v = new Vector2(object.x/scale.x, object.y/scale.y);
+        int id = object.id;
         if(!enemies.containsKey(id))
             enemies.put(id, new ArrayList<Enemy>());
         enemies.get(id).add(new Enemy(v, new Vector2[]{}, Vector2.Zero, scale));
     }
 
-    private void loadStaticObstacle(JsonValue object){
-        Vector2 v = new Vector2(object.getFloat("x")/backgroundScale/scale.x , (mapPixelHeight - (object.getFloat("y")/backgroundScale))/scale.y);
-        String type = getProperty(object, "StaticType");
+    private void loadStaticObstacle(LevelData.ObjectRecord object){
+        Vector2 v = new Vector2(object.x/scale.x, object.y/scale.y);
+        String type = object.type;
         if(type != null) {
             switch (type) {
                 case "goal":
-                    float r = getRadius(object);
-                    if(getRadius(object) <= 2){
+                    float r = object.radius;
+                    if(object.radius <= 2){
                         r = 4;
                     }
                     goal = new StaticObstacle(v, r, Vector2.Zero, true);
@@ -343,7 +246,7 @@ try {
                     checkpoints.add(checkpoint);
                     break;
                 case "debris":
-                    StaticObstacle debris = new StaticObstacle(v, getRadius(object), Vector2.Zero, true);
+                    StaticObstacle debris = new StaticObstacle(v, object.radius, Vector2.Zero, true);
                     staticObstacles.add(debris);
                     break;
 
@@ -368,34 +271,10 @@ try {
                 return Planet.PlanetColor.BLUE;
         }
     }
-    public int getId(JsonValue object){
-        String strId = getProperty(object, "id");
-        int id = -1;
-        if(strId != null) {
-            id = Integer.parseInt(strId);
-        }
-        return id;
-    }
-    public float getRadius(JsonValue object){
-        String strRadius = getProperty(object, "Radius");
-        float radius = 1;
-        if(strRadius != null) {
-            radius = Float.parseFloat(strRadius);
-        }
-        return radius;
-    }
-
-    public Vector2 getXY(JsonValue object){
-        Vector2 v = new Vector2();
-        v.x = Float.parseFloat(getProperty(object, "x"))/backgroundScale;
-        v.y =  (mapPixelHeight - Float.parseFloat(getProperty(object, "y"))/backgroundScale);
-        return v;
-    }
 
-    private void loadPath(JsonValue object){
-        Vector2 v = getXY(object);
-        v.set(v.x/scale.x, v.y/scale.y);
-        int id = getId(object);
+    private void loadPath(LevelData.ObjectRecord object){
+        Vector2 v = new Vector2(object.x/scale.x, object.y/scale.y);
+        int id = object.id;
         if(id != -1){
             if(!paths.containsKey(id))
                 paths.put(id, new ArrayList<Vector2>());
@@ -403,42 +282,24 @@ try {
         }
     }
 
-    private void loadReward(JsonValue object){
-        Vector2 v = getXY(object);
-        float radius = getRadius(object);
-        v.set(v.x/scale.x, v.y/scale.y);
-        int id = getId(object);
+    private void loadReward(LevelData.ObjectRecord object){
+        Vector2 v = new Vector2(object.x/scale.x, object.y/scale.y);
+        int id = object.id;
         if(!rewards.containsKey(id))
             rewards.put(id, new ArrayList<StaticObstacle>());
-        rewards.get(id).add(new StaticObstacle(v, radius, Vector2.Zero, false));
+        rewards.get(id).add(new StaticObstacle(v, object.radius, Vector2.Zero, false));
     }
 
-    private void loadDynamicObstacle(JsonValue object){
-        int id = getId(object);
-        Vector2 v = getXY(object);
-        float r = getRadius(object);
-        String strPeriod = getProperty(object, "Period");
-        float period = 1.0f;
-        if(strPeriod != null)
-            period = Float.parseFloat(strPeriod);
-
-        DynamicObstacle d = new DynamicObstacle(v, r, new Vector2[]{Vector2.Zero}, period);
+    private void loadDynamicObstacle(LevelData.ObjectRecord object){
+        int id = object.id;
+        Vector2 v = new Vector2(object.x, object.y);
+        DynamicObstacle d = new DynamicObstacle(v, object.radius, new Vector2[]{Vector2.Zero}, object.period);
         if(dynamicObstacles.get(id) == null) {
             dynamicObstacles.put(id, new ArrayList<DynamicObstacle>());
         }
         dynamicObstacles.get(id).add(d);
     }
 
-    private void parseTileLayer(JsonValue currLayer){
-        JsonValue data = currLayer.get("data");
-        int[] tLayer = new int[mapHeight*mapWidth];
-        for (int j = 0; j < tLayer.length; j++) {
-            tLayer[j] = data.getInt(j);
-        }
-        levelArray.add(tLayer);
-    }
-
-
     public ArrayList<Planet> getResizables(){
         return resizables;
     }
@@ -533,8 +394,14 @@ try {
         return goal;
     }
 
+    /**
+     * Draws the tile layers with parallax. The canvas must not be active, since the layers are
+     * drawn from their own sprite cache.
+     */
     public void drawLevel(GameCanvas canvas, Vector2 scale, Vector2 offset){
-
+        if (tileRenderer == null) {
+            tileRenderer = new TileLayerRenderer(levelArray, tilesets, mapWidth, mapHeight, tileWidth, tileHeight);
+        }
 
 //        for(Rectangle r : enemyAreas){
 //            canvas.draw(tilesets.get(0), Color.RED, 0, 0, r.x*scale.x+offset.x, r.y*scale.y+offset.y, r.width*scale.x, r.height*scale.y);
@@ -542,31 +409,33 @@ try {
 //            System.out.println(r.width*scale.x + ", " + r.height*scale.y);
 //        }
         for (int k = 0; k < levelArray.size(); k++) {
-            int[] layer = levelArray.get(k);
             float p_mult = PARALLAX_MIN + (PARALLAX_MAX - PARALLAX_MIN)/levelArray.size()*k;
+            tileRenderer.drawLayer(canvas, k, offset.x * p_mult, offset.y * p_mult);
+        }
 
+    }
 
-            if(layer != null) {
-                for (int i = 0; i < mapHeight; i++) {
-                    for (int j = 0; j < mapWidth; j++) {
-                        int tile = layer[i * mapHeight + j];
-                        if(tile != -1 && tile != 0) {
-                            canvas.draw(tilesets.get(tile - 1), Color.WHITE,
-                                    0, 0, j * tileWidth + offset.x * p_mult,
-                                    tileHeight * (mapHeight - 1) - i * tileHeight + offset.y * p_mult,
-                                    tileWidth, tileHeight);
-                        }
-                    }
-                }
-            }
-
+    /** Releases the cached tile geometry. The level can still be drawn afterwards. */
+    public void disposeTiles(){
+        if (tileRenderer != null) {
+            tileRenderer.dispose();
+            tileRenderer = null;
         }
+    }
 
-//        for(Rectangle r : enemyAreas){
-//            //canvas.draw(tilesets.get(0), Color.RED, 0, 0, r.x+offset.x, r.y+offset.y, r.width, r.height);
-//        }
-
+    /**
+     * Releases the tile geometry and gives the tilesets back to the shared cache.
+     * The level cannot be drawn afterwards.
+     */
+    public void releaseTilesets(){
+        disposeTiles();
+        TilesetCache cache = TilesetCache.getInstance();
+        for (String name : tilesetNames) {
+            cache.release(name);
+        }
+        tilesetNames.clear();
     }
+
     public String getLevelName(){
         return levelName;
     }
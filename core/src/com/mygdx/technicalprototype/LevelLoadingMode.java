@@ -0,0 +1,203 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+import com.mygdx.technicalprototype.assets.AssetDirectory;
+import com.mygdx.technicalprototype.util.ScreenListener;
+
+/**
+ * Loading screen shown while a level is prepared.
+ *
+ * Preparing a level happens in three steps. The level file is parsed on a background thread,
+ * since that does not need OpenGL. The tileset textures are then uploaded on the render thread
+ * a few milliseconds per frame, like MenuMode does with the asset directory. Finally the level
+ * gathers its assets and builds its physics world and trajectory in a single frame, as Box2D
+ * is not safe to share between threads. The screen exits with code 0 once the level is ready.
+ */
+public class LevelLoadingMode implements Screen {
+    /** The steps of preparing a level */
+    private enum LoadState {
+        /** Parsing the level file on the background thread */
+        PARSING,
+        /** Uploading tileset textures within the frame budget */
+        UPLOADING,
+        /** Building the level on the render thread */
+        FINISHING,
+        /** The level is ready to be shown */
+        DONE
+    }
+
+    /** Ratio of the bar width to the screen */
+    private static final float BAR_WIDTH_RATIO = 0.66f;
+    /** Height of the progress bar in pixels */
+    private static final float BAR_HEIGHT = 12;
+    /** Share of the progress bar given to each step before finishing */
+    private static final float PARSE_SHARE = 0.1f;
+    private static final float UPLOAD_SHARE = 0.8f;
+
+    /** Reference to GameCanvas created by the root */
+    private GameCanvas canvas;
+    /** Listener that will update the player mode when we are done */
+    private ScreenListener listener;
+    private final ShapeRenderer sr = new ShapeRenderer(8);
+    /** The thread the level files are parsed on */
+    private final AsyncExecutor executor = new AsyncExecutor(1, "LevelLoader");
+
+    /** The level being prepared */
+    private LevelMode level;
+    /** The directory holding the game assets */
+    private AssetDirectory directory;
+    /** The parsed level file, once the background step is done */
+    private AsyncResult<LevelLoader> parsed;
+    private LevelLoader loader;
+    private LoadState state = LoadState.DONE;
+
+    /** Current progress (0 to 1) of preparing the level */
+    private float progress;
+    /** The amount of time to spend uploading textures each frame */
+    private int budget;
+
+    /** Whether or not this player mode is still active */
+    private boolean active;
+
+    /**
+     * Creates a loading screen with the given upload budget
+     *
+     * @param canvas the drawing context
+     * @param millis the time to spend uploading textures each frame, in milliseconds
+     */
+    public LevelLoadingMode(GameCanvas canvas, int millis) {
+        this.canvas = canvas;
+        budget = millis;
+        resize(canvas.getWidth(), canvas.getHeight());
+    }
+
+    /**
+     * Starts preparing a level. The level must already have its canvas set.
+     *
+     * @param level the level to prepare
+     * @param directory the directory holding the game assets
+     */
+    public void load(LevelMode level, final AssetDirectory directory) {
+        this.level = level;
+        this.directory = directory;
+        final Vector2 scale = level.getScale();
+        loader = null;
+        progress = 0;
+        state = LoadState.PARSING;
+        parsed = executor.submit(new AsyncTask<LevelLoader>() {
+            @Override
+            public LevelLoader call() {
+                return AssetController.prepareLevel(directory, scale);
+            }
+        });
+    }
+
+    /**
+     * Advances the current step, never spending more than one step per frame
+     */
+    private void update() {
+        switch (state) {
+            case PARSING:
+                if (parsed.isDone()) {
+                    loader = parsed.get();
+                    parsed = null;
+                    progress = PARSE_SHARE;
+                    state = LoadState.UPLOADING;
+                }
+                break;
+            case UPLOADING:
+                if (loader.updateTilesets(budget)) {
+                    progress = PARSE_SHARE + UPLOAD_SHARE;
+                    state = LoadState.FINISHING;
+                } else {
+                    progress = PARSE_SHARE + UPLOAD_SHARE * TilesetCache.getInstance().getProgress();
+                }
+                break;
+            case FINISHING:
+                level.gatherAssets(directory);
+                level.reset();
+                progress = 1;
+                state = LoadState.DONE;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void draw() {
+        canvas.clear();
+        float width = canvas.getWidth() * BAR_WIDTH_RATIO;
+        float x = (canvas.getWidth() - width) / 2;
+        float y = (canvas.getHeight() - BAR_HEIGHT) / 2;
+        sr.begin(ShapeRenderer.ShapeType.Line);
+        sr.setColor(1, 1, 1, 1);
+        sr.rect(x, y, width, BAR_HEIGHT);
+        sr.end();
+        sr.begin(ShapeRenderer.ShapeType.Filled);
+        sr.rect(x, y, width * progress, BAR_HEIGHT);
+        sr.end();
+    }
+
+    /**
+     * Called when the Screen should render itself.
+     *
+     * We only hand the level over AFTER a draw.
+     *
+     * @param delta Number of seconds since last animation frame
+     */
+    public void render(float delta) {
+        if (active) {
+            update();
+            draw();
+            if (state == LoadState.DONE && level != null && listener != null) {
+                level = null;
+                loader = null;
+                listener.exitScreen(this, 0);
+            }
+        }
+    }
+
+    public void resize(int width, int height) {
+        sr.getProjectionMatrix().setToOrtho2D(0, 0, width, height);
+    }
+
+    public void pause() {
+    }
+
+    public void resume() {
+    }
+
+    /**
+     * Called when this screen becomes the current screen for a Game.
+     */
+    public void show() {
+        active = true;
+        resize(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+    }
+
+    /**
+     * Called when this screen is no longer the current screen for a Game.
+     */
+    public void hide() {
+        active = false;
+    }
+
+    public void setScreenListener(ScreenListener listener) {
+        this.listener = listener;
+    }
+
+    public void setCanvas(GameCanvas canvas) {
+        this.canvas = canvas;
+    }
+
+    public void dispose() {
+        executor.dispose();
+        sr.dispose();
+    }
+}
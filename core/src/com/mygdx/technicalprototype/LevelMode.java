@@ -7,12 +7,11 @@ import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.Screen;
 
 import com.badlogic.gdx.audio.Music;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.graphics.glutils.FrameBuffer;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.math.Affine2;
 import com.badlogic.gdx.math.Rectangle;
@@ -30,6 +29,7 @@ import com.mygdx.technicalprototype.physics.obstacle.WheelObstacle;
 import com.mygdx.technicalprototype.util.*;
 import com.mygdx.technicalprototype.physics.obstacle.ObstacleSelector;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 
@@ -43,7 +43,6 @@ import static com.mygdx.technicalprototype.MenuMode.*;
 
 public class LevelMode implements Screen, ContactListener {
     private float alpha = 1;
-    private ShapeRenderer sr = new ShapeRenderer(8);
 
     /** Number of velocity iterations for the constrain solvers */
     public static final int WORLD_VELOC = 6;
@@ -61,6 +60,10 @@ public class LevelMode implements Screen, ContactListener {
      * The rate in which to increase/decrease a planet's size
      */
     private static final float SIZE_RATE = 0.04f;
+    /** The change in radius of one resize, in pixel units */
+    private static final float RESIZE_STEP = SIZE_RATE * 500;
+    /** Number of paths calculated from scratch that are kept for retries and repeated resizes */
+    private static final int PATH_CACHE_SIZE = 8;
     private static final float SOLAR_FLARE_COOLDOWN = 3;
     private static final float SOLAR_FLARE_TELE_TIME = 0.6f;
 
@@ -75,6 +78,22 @@ public class LevelMode implements Screen, ContactListener {
     private static final float SHIP_BLAST_RANGE = 500f;
     private static final float INVINCIBILITY_LENGTH = 2;
 
+    /**
+     * Render queue layers, back to front. Sprites on one layer are sorted by texture, so
+     * anything that must stay on top of another texture gets a layer of its own.
+     */
+    private static final int LAYER_BOUNDS = 0;
+    private static final int LAYER_STATIC = 1;
+    private static final int LAYER_HIGHLIGHT = 2;
+    private static final int LAYER_RESIZE = 3;
+    private static final int LAYER_PLANETS = 4;
+    private static final int LAYER_FLARES = 5;
+    private static final int LAYER_PLANET_TINT = 6;
+    private static final int LAYER_ACTORS = 7;
+    private static final int LAYER_PARTICLES = 8;
+    private static final int LAYER_SHIP = 9;
+    private static final int LAYER_SHIP_HURT = 10;
+
 
 
     private int levelNum;
@@ -83,11 +102,18 @@ public class LevelMode implements Screen, ContactListener {
      * An array of resizable celestial objects
      */
     private ArrayList<Planet> resizables;
+    /** Index over the planets for proximity queries */
+    private PlanetGrid planets;
 
     /*
-    * Frame Buffer for shaders
+    * Renders the level offscreen and applies the screen effects
      */
-    private FrameBuffer fbo;
+    private PostProcessor post;
+
+    /** Times the phases of every frame, shown with F3 and written out with F4 */
+    private FrameProfiler profiler;
+    /** The file the frame timings are written to, as CSV or JSON by its extension */
+    private String profileFile;
 
     /** An array of dynamic obstacles */
     private ArrayList<DynamicObstacle> dynamicObs;
@@ -95,8 +121,12 @@ public class LevelMode implements Screen, ContactListener {
     /** An array of static obstacles */
     private ArrayList<StaticObstacle> staticObs;
 
-    /** An array of moving particles */
-    private ArrayList<MovParticle> movParticles;
+    /** The exhaust and ambient particles */
+    private ParticleSystem particles;
+    /** The emitter behind the ship */
+    private ParticleSystem.Emitter exhaust;
+    /** Scratch vector for the ship position handed to the particles */
+    private final Vector2 particleOrigin = new Vector2();
 
     /** An array of static rewards */
     private ArrayList<StaticObstacle> rewards;
@@ -126,6 +156,14 @@ public class LevelMode implements Screen, ContactListener {
     protected Vector2 scale;
     /** The amount of time for a physics engine step. */
     public float worldStep = 1/60.0f;
+    /** The simulated time advanced by each call to update, independent of the frame rate */
+    public static final float FIXED_STEP = 1/60.0f;
+    /** Default cap on the steps taken in one frame to catch up after a slow one */
+    private static final int DEFAULT_MAX_STEPS = 5;
+    /** The cap on catch-up steps per frame */
+    private int maxSteps = DEFAULT_MAX_STEPS;
+    /** Time rendered but not yet simulated, always less than one step after a frame */
+    private float accumulator;
 
     /** Reference to the game canvas */
     protected GameCanvas canvas;
@@ -168,17 +206,17 @@ public class LevelMode implements Screen, ContactListener {
     private ArrayList<Enemy> enemies = new ArrayList<>();;
 
     /**
-     * The arraylist of points to define path
+     * The points and velocities that define the path
      */
-    ArrayList<Vector2> forwardPath;
-    ArrayList<Vector2> backwardPath;
-    ArrayList<Vector2> forwardVels;
-    ArrayList<Vector2> backwardVels;
-    public static ArrayList<Vector2> debugPts = new ArrayList<>();
+    TrajectoryBuffer trajectory;
     float nextIndexFloat;
     int nextIndex;
     Path pathController;
-    private PathShader pathShader;
+    /** Works out the paths of the next resizes in the background */
+    private PathPredictor predictor;
+    /** Paths calculated from scratch, kept across resets of the level */
+    private PathCache pathCache;
+    private TrajectoryMesh trajectoryMesh;
 
     /**
      * Object for the rocket
@@ -242,8 +280,6 @@ public class LevelMode implements Screen, ContactListener {
     private int countdown;
     private int   pressState;
     private int levelNameCountdown = 300;
-    private float sumDelta = 0;
-    private float cycles = 0;
 
     /** The main menu button text style */
     private TextButton.TextButtonStyle buttonStyle;
@@ -266,6 +302,28 @@ public class LevelMode implements Screen, ContactListener {
 
     private Affine2 shipCameraTrans;
     private Affine2 backgroundCameraTrans;
+
+    /** Whether bodies keep fixed world coordinates while only the camera follows the ship */
+    private boolean worldSpace;
+    /** The ship position the physics world is laid out against in world space mode */
+    private Vector2 physicsOrigin = new Vector2();
+    /** Offset in pixels from physics positions to the screen, zero when bodies follow the ship */
+    private Vector2 cameraOffset = new Vector2();
+    /** The camera transform built from cameraOffset */
+    private Affine2 cameraTrans = new Affine2();
+    /** The ship position before and after the last step, to interpolate the view between */
+    private final Vector2 viewFrom = new Vector2();
+    private final Vector2 viewTo = new Vector2();
+    /** Whether the ship jumped since the last step, so the view must not slide over */
+    private boolean snapView = true;
+    /** How far the drawn view trails the simulated ship, in pixels */
+    private final Vector2 viewLag = new Vector2();
+    /** The camera transform with the view lag applied, used for drawing */
+    private Affine2 drawTrans = new Affine2();
+    /** The screen position of the last shockwave, which the effects controller keeps */
+    private final Vector2 shockCenter = new Vector2();
+    /** Whether the star blast key went down since the last step */
+    private boolean starBlastRequested;
     private static final int CAM_PADDING = 0;
     private float prevXTrans;
     private float prevYTrans;
@@ -276,6 +334,8 @@ public class LevelMode implements Screen, ContactListener {
     private boolean removeAllEnemy=false;
     /** The individual enemy we would like to remove*/
     private Enemy globalEnemy;
+    /** The contact handlers, by the collision categories of both bodies */
+    private final ContactTable contacts = new ContactTable();
 
     private float[] volumes = new float[3];
     private float soundsVol = 0.75f;
@@ -407,6 +467,32 @@ public class LevelMode implements Screen, ContactListener {
         isFailed = value;
     }
 
+    /**
+     * Asks for a star blast in the next step, if the ship has a star to spend. Requests made
+     * before that step count as one.
+     */
+    public void requestStarBlast() {
+        starBlastRequested = true;
+    }
+
+    /**
+     * Returns true if the level has been completed.
+     *
+     * @return true if the level has been completed.
+     */
+    public boolean isComplete() {
+        return isComplete;
+    }
+
+    /**
+     * Returns true if the level has been failed.
+     *
+     * @return true if the level has been failed.
+     */
+    public boolean isFailed() {
+        return isFailed;
+    }
+
     /**
      * Sets the canvas associated with this controller
      *
@@ -421,6 +507,20 @@ public class LevelMode implements Screen, ContactListener {
         this.scale.y = canvas.getHeight()/bounds.getHeight();
     }
 
+    /** Returns the cache of paths calculated from scratch, for its hit and miss counts */
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+
+    /**
+     * Returns the drawing scale of this controller. The vector is updated in place by setCanvas.
+     *
+     * @return the drawing scale of this controller
+     */
+    public Vector2 getScale() {
+        return scale;
+    }
+
     /**
      * Creates and initialize a new instance of the game
      * <p>
@@ -441,6 +541,7 @@ public class LevelMode implements Screen, ContactListener {
         setComplete(false);
         setFailure(false);
         world.setContactListener(this);
+        registerContacts();
         game = g;
         shipCameraTrans = (new Affine2()).idt();
         backgroundCameraTrans = (new Affine2()).idt();
@@ -451,7 +552,10 @@ public class LevelMode implements Screen, ContactListener {
         checkpointVel = new Vector2(0.5f, 0);
         toLoad = level;
         levelNum = level;
-        fbo = new FrameBuffer(Pixmap.Format.RGBA8888, Gdx.graphics.getWidth(), Gdx.graphics.getHeight(), false);
+        post = new PostProcessor();
+        profiler = new FrameProfiler();
+        predictor = new PathPredictor(RESIZE_STEP);
+        pathCache = new PathCache(PATH_CACHE_SIZE);
 
         minimap = new Minimap(MINIMAP_WIDTH, MINIMAP_HEIGHT, MINIMAP_PADDING);
 
@@ -620,6 +724,8 @@ public class LevelMode implements Screen, ContactListener {
 
         world.setContactListener(this);
         populateLevel();
+        snapView = true;
+        accumulator = 0;
 //        if (hitCheckpoint)
 //            ship.setPosition(checkpoint);
     }
@@ -698,6 +804,12 @@ public class LevelMode implements Screen, ContactListener {
         if (input.didDebug()) {
             debug = !debug;
         }
+        if (input.didProfile()) {
+            profiler.setVisible(!profiler.isVisible());
+        }
+        if (input.didExportProfile()) {
+            exportProfile();
+        }
 
         // Handle resets
         if (input.didReset()) {
@@ -733,13 +845,6 @@ public class LevelMode implements Screen, ContactListener {
      * @param dt Number of seconds since last animation frame
      */
     public void update(float dt) {
-//        if (cycles < 60) {
-//            cycles++;
-//        } else {
-//            sumDelta += dt;
-//            cycles++;
-//        }
-
         if (isFailed) {
             return;
         }
@@ -765,12 +870,15 @@ public class LevelMode implements Screen, ContactListener {
         }
 
         temp1.set(canvas.getWidth() / 2, canvas.getHeight() / 2);
-        pathController.addPath(temp1, ship.getVelocity(), resizables);
+        profiler.begin(FrameProfiler.Phase.PATH);
+        pathController.addPath(temp1, ship.getVelocity(), planets);
+        profiler.end(FrameProfiler.Phase.PATH);
 
 
-        if(Gdx.input.isKeyJustPressed(Input.Keys.SPACE) && numStars > 0){
+        if(starBlastRequested && numStars > 0){
             doStarBlast();
         }
+        starBlastRequested = false;
 
         /*
          * Trigger swarm via event example
@@ -786,56 +894,30 @@ public class LevelMode implements Screen, ContactListener {
 
 
         //if (ai.hasEnemies()) {
-            ArrayList<Enemy> el = ai.update();
+            profiler.begin(FrameProfiler.Phase.AI);
+            ArrayList<Enemy> el = ai.update(planets);
+            profiler.end(FrameProfiler.Phase.AI);
             if(el != null) {
-                for (Enemy e :
-                        el) {
-                    addObject(e);
+                for (int i = 0; i < el.size(); i++) {
+                    addObject(el.get(i));
                 }
             }
         //}
 
-        ship.getSprinkler().setAngle(-ship.getVelocity().angleRad());
-        ship.getSprinkler().update(dt, ship.getPos());
-        Vector2 pos = Helper.boxCoordsToWorldCoords(scale, ship.getPosition());
-        for(int i=0; i< movParticles.size()-1; i++){
-//            movParticles.get(i).setAngle(-ship.getVelocity().angleRad());
-            movParticles.get(i).setLocation(canvas, pos);
-            movParticles.get(i).update(dt, new Vector2(640+50*(i+1),360+50*(i+1)));
-
-        }
-//        movParticles.get(movParticles.size()-1).setAngle(-ship.getVelocity().angleRad());
-        movParticles.get(movParticles.size()-1).setLocation(canvas, pos);
-        movParticles.get(movParticles.size()-1).update(dt, new Vector2(640+180,360+250));
+        exhaust.setAngle(-ship.getVelocity().angleRad());
+        particles.update(ship.getPos(particleOrigin));
 
 
 
-        forwardPath = pathController.getAllForwardPoints();
-        backwardPath = pathController.getAllBackwardPoints();
-        forwardVels = pathController.getAllForwardVels();
-        backwardVels = pathController.getAllBackwardVels();
         nextIndexFloat = ship.getLinearVelocity();
 
-        ArrayList dis = new ArrayList();
-        for(int i=0; i< resizables.size(); i++){
-            dis.add(Math.abs(ship.getPosition().x-(resizables.get(i)).getX()) + Math.abs(ship.getPosition().y-(resizables.get(i)).getY()));
-        }
-        int index = 0;
-        if(dis.size() != 0 && !isSelected) {
-            float min = (float) dis.get(index);
-
-            for (int i = 0; i < dis.size(); i++) {
-                if ((float) dis.get(i) <= min) {
-                    min = (float) dis.get(i);
-                    index = i;
-                }
-            }
-            selected = resizables.get(index);
+        if (!isSelected && resizables.size() > 0) {
+            selected = planets.nearest(ship.getPosition());
         }
 
         // Click on non-planet space
         if (((input.didTertiary() || input.didQuaternary()) && !selector.isSelected()) && !isComplete) {
-            selector.select(input.getCrossHair().x, input.getCrossHair().y);
+            selector.select(input.getCrossHair().x - cameraOffset.x / scale.x, input.getCrossHair().y - cameraOffset.y / scale.y);
             isSelected = false;
             click.play(soundsVol);
         }
@@ -847,26 +929,14 @@ public class LevelMode implements Screen, ContactListener {
             if (selector.getObstacle() instanceof Planet) {
                 isSelected = true;
                 Planet resizable = (Planet) selector.getObstacle();
-                float radAfterChange = (resizable.getRadius() + SIZE_RATE * 500) / scale.x;
+                float radAfterChange = resizable.getResizedRadius(1, RESIZE_STEP);
                 if (!resizable.isAnimating() && planetResizeElapsedTime == -1 && resizable.changeSize(1)) {
                     increaseSize.play(soundsVol);
                     planetResizeElapsedTime = 0;
                     resizable.setGrowing(true);
+                    float previousRadius = resizable.getRadiusAfterChange();
                     resizable.setRadiusAfterChange(radAfterChange);
-                    if (!ship.getVelocity().equals(forwardVels.get(1))) {
-                        pathController.calculateLastTwoPoints(resizable);
-                        Vector2 lastPt = pathController.lastOrbitPt;
-                        Vector2 lastVel = pathController.lastOrbitVel;
-                        Vector2 secondLastPt = pathController.secondLastOrbitPt;
-                        Vector2 secondLastVel = pathController.secondLastOrbitVel;
-
-                        pathController.calculatePath(lastPt, lastVel, secondLastPt, secondLastVel, resizables);
-                        pathController.moveForward(pathController.index);
-                        ship.setPos(new Vector2(pathController.forwardPts.get(0)));
-                        ship.setVelocity(new Vector2(pathController.forwardVels.get(0)));
-                    } else {
-                        pathController.calculatePath(ship.getPos(), ship.getVelocity(), ship.getPos(), ship.getVelocity(), resizables);
-                    }
+                    resizePath(resizable, previousRadius, true);
                 }
                 click.stop();
             } else {
@@ -877,26 +947,14 @@ public class LevelMode implements Screen, ContactListener {
             if (selector.getObstacle() instanceof Planet) {
                 isSelected = true;
                 Planet resizable = (Planet) selector.getObstacle();
-                float radAfterChange = (resizable.getRadius() - SIZE_RATE * 500) / scale.x;
+                float radAfterChange = resizable.getResizedRadius(-1, RESIZE_STEP);
                 if (!resizable.isAnimating() && planetResizeElapsedTime == -1 && resizable.changeSize(-1)) {
                     increaseSize.play(soundsVol);
                     planetResizeElapsedTime = 0;
                     resizable.setShrinking(true);
+                    float previousRadius = resizable.getRadiusAfterChange();
                     resizable.setRadiusAfterChange(radAfterChange);
-                    if (!ship.getVelocity().equals(forwardVels.get(1))) {
-                        pathController.calculateLastTwoPointsBackwards(resizable);
-                        Vector2 lastPt = pathController.lastOrbitPt;
-                        Vector2 lastVel = pathController.lastOrbitVel;
-                        Vector2 secondLastPt = pathController.secondLastOrbitPt;
-                        Vector2 secondLastVel = pathController.secondLastOrbitVel;
-
-                        pathController.calculatePath(lastPt, lastVel, secondLastPt, secondLastVel, resizables);
-                        pathController.moveForward(pathController.index);
-                        ship.setPos(new Vector2(pathController.forwardPts.get(0)));
-                        ship.setVelocity(new Vector2(pathController.forwardVels.get(0)));
-                    } else {
-                        pathController.calculatePath(ship.getPos(), ship.getVelocity(), ship.getPos(), ship.getVelocity(), resizables);
-                    }
+                    resizePath(resizable, previousRadius, false);
                 }
                 click.stop();
                 //intentionally use increaseSize sound for decreaseSize
@@ -905,58 +963,38 @@ public class LevelMode implements Screen, ContactListener {
             }
         } else if (input.didNearA() && !isComplete && resizables.size() > 0) {
             Planet resizable = selected;
-            float radAfterChange = (resizable.getRadius() + SIZE_RATE * 500) / scale.x;
+            float radAfterChange = resizable.getResizedRadius(1, RESIZE_STEP);
             if (!resizable.isAnimating() && planetResizeElapsedTime == -1 && resizable.changeSize(1)) {
                 increaseSize.play(soundsVol);
                 planetResizeElapsedTime = 0;
                 resizable.setGrowing(true);
+                float previousRadius = resizable.getRadiusAfterChange();
                 resizable.setRadiusAfterChange(radAfterChange);
-                if (!ship.getVelocity().equals(forwardVels.get(1))) {
-                    pathController.calculateLastTwoPoints(resizable);
-                    Vector2 lastPt = pathController.lastOrbitPt;
-                    Vector2 lastVel = pathController.lastOrbitVel;
-                    Vector2 secondLastPt = pathController.secondLastOrbitPt;
-                    Vector2 secondLastVel = pathController.secondLastOrbitVel;
-
-                    pathController.calculatePath(lastPt, lastVel, secondLastPt, secondLastVel, resizables);
-                    pathController.moveForward(pathController.index);
-                    ship.setPos(new Vector2(pathController.forwardPts.get(0)));
-                    ship.setVelocity(new Vector2(pathController.forwardVels.get(0)));
-                } else {
-                    pathController.calculatePath(ship.getPos(), ship.getVelocity(), ship.getPos(), ship.getVelocity(), resizables);
-                }
+                resizePath(resizable, previousRadius, true);
             }
         } else if (input.didNearF() && !isComplete && resizables.size() > 0) {
             Planet resizable = selected;
-            float radAfterChange = (resizable.getRadius() - SIZE_RATE * 500) / scale.x;
+            float radAfterChange = resizable.getResizedRadius(-1, RESIZE_STEP);
             if (!resizable.isAnimating() && planetResizeElapsedTime == -1 && resizable.changeSize(-1)) {
                 increaseSize.play(soundsVol);
                 planetResizeElapsedTime = 0;
                 resizable.setShrinking(true);
+                float previousRadius = resizable.getRadiusAfterChange();
                 resizable.setRadiusAfterChange(radAfterChange);
-                if (!ship.getVelocity().equals(forwardVels.get(1))) {
-                    pathController.calculateLastTwoPointsBackwards(resizable);
-                    Vector2 lastPt = pathController.lastOrbitPt;
-                    Vector2 lastVel = pathController.lastOrbitVel;
-                    Vector2 secondLastPt = pathController.secondLastOrbitPt;
-                    Vector2 secondLastVel = pathController.secondLastOrbitVel;
-
-                    pathController.calculatePath(lastPt, lastVel, secondLastPt, secondLastVel, resizables);
-                    pathController.moveForward(pathController.index);
-                    ship.setPos(new Vector2(pathController.forwardPts.get(0)));
-                    ship.setVelocity(new Vector2(pathController.forwardVels.get(0)));
-                } else {
-                    pathController.calculatePath(ship.getPos(), ship.getVelocity(), ship.getPos(), ship.getVelocity(), resizables);
-                }
+                resizePath(resizable, previousRadius, false);
             }
             //intentionally use increaseSize sound for decreaseSize
         }
+        animateResize(FIXED_STEP);
+        profiler.begin(FrameProfiler.Phase.PATH);
+        predictor.update(trajectory, ship.getPosition(), ship.getVelocity(), selected);
+        profiler.end(FrameProfiler.Phase.PATH);
 
         // handling player input
         if (input.didPrimary() && nextIndexFloat < 20f && !isComplete) {
             decelerate.play(soundsVol);
 
-            ship.getSprinkler().setMoving(true);
+            exhaust.setActive(true);
 
 
             if (nextIndexFloat >= 0) {
@@ -967,7 +1005,7 @@ public class LevelMode implements Screen, ContactListener {
         } else if (input.didSecondary() && -nextIndexFloat < 20f && !isComplete) {
             decelerate.play(soundsVol);
 
-            ship.getSprinkler().setMoving(false);
+            exhaust.setActive(false);
 
             if (nextIndexFloat <= 0) {
                 ship.addLinearVelocity(-0.5f);
@@ -975,7 +1013,7 @@ public class LevelMode implements Screen, ContactListener {
                 ship.addLinearVelocity(-0.8f);
             }
         } else if (!isComplete) {
-            ship.getSprinkler().setMoving(false);
+            exhaust.setActive(false);
             if (nextIndex > 0) {
                 ship.addLinearVelocity(-0.1f);
             } else if (nextIndex < 0) {
@@ -986,12 +1024,12 @@ public class LevelMode implements Screen, ContactListener {
         // movement controls
         nextIndex = (int) nextIndexFloat;
         if (nextIndex > 0) {
-            ship.setPos(forwardPath.get(nextIndex));
-            ship.setVelocity(forwardVels.get(nextIndex));
+            ship.setPos(trajectory.forwardX(nextIndex), trajectory.forwardY(nextIndex));
+            ship.setVelocity(trajectory.getForwardVel(nextIndex, temp).x, temp.y);
             pathController.moveForward(nextIndex);
         } else if (nextIndex < 0) {
-            ship.setPos(backwardPath.get(-nextIndex));
-            ship.setVelocity(new Vector2(backwardVels.get(-nextIndex)).scl(-1));
+            ship.setPos(trajectory.backwardX(-nextIndex), trajectory.backwardY(-nextIndex));
+            ship.setVelocity(-trajectory.getBackwardVel(-nextIndex, temp).x, -temp.y);
             pathController.moveForward(nextIndex);
         }
 
@@ -1000,20 +1038,22 @@ public class LevelMode implements Screen, ContactListener {
             restrictShipToBounds();
         }
 
-        if (ship.getLinearVelocity() != 0)
+        if (worldSpace)
+            followShip();
+        else if (ship.getLinearVelocity() != 0)
             updateLocations();
 
         for (int i = 0; i < dynamicObs.size(); i++) {
             DynamicObstacle d = dynamicObs.get(i);
             d.move(dt);
-            d.setLocation(canvas, ship.getPos());
+            d.setLocation(canvas, physicsFrame());
         }
 
         // update minimap
+        profiler.begin(FrameProfiler.Phase.MINIMAP);
         minimap.loadPositions(objects);
         minimap.updateMap(ship, scale);
-
-        ai.updateGravity(resizables);
+        profiler.end(FrameProfiler.Phase.MINIMAP);
 
 
         /*
@@ -1058,6 +1098,115 @@ public class LevelMode implements Screen, ContactListener {
 
         }
     }
+
+    /**
+     * Advances the animation of the planet being resized, if any.
+     *
+     * The radius changes here, in the simulation step, rather than while drawing, so that it
+     * follows simulated time and also happens when nothing is drawn. The animation ends on the
+     * step after its last frame first shows.
+     *
+     * @param dt Number of seconds to advance by
+     */
+    private void animateResize(float dt) {
+        for (Planet p : resizables) {
+            if (!p.isGrowing() && !p.isShrinking()) {
+                continue;
+            }
+            if (resizeAnimation(p).getKeyFrame(planetResizeElapsedTime, true) == resizeTextures(p)[7]) {
+                if (p.isGrowing()) {
+                    p.setGrowing(false);
+                } else {
+                    p.setShrinking(false);
+                }
+                planetResizeElapsedTime = -1;
+                continue;
+            }
+            planetResizeElapsedTime += dt;
+            if (p.isGrowing() && p.getRadius() < p.getRadiusAfterChange()) {
+                p.resize(SIZE_RATE, ship);
+                //blastBackEnemies(p.getPosition(), PLANET_FORCE, p.getRadius() * 2f / p.getDrawScale().x, false);
+            } else if (p.isShrinking() && p.getRadius() > p.getRadiusAfterChange()) {
+                p.resize(-SIZE_RATE, ship);
+            }
+        }
+    }
+
+    /** Returns the resize animation of a planet for its color, reversed if it is shrinking */
+    private Animation resizeAnimation(Planet p) {
+        boolean grow = p.isGrowing();
+        switch (p.getColor()) {
+            case GREEN:
+                return grow ? greenPlanetResizeAnimation : greenPlanetResizeAnimationReverse;
+            case PINK:
+                return grow ? pinkPlanetResizeAnimation : pinkPlanetResizeAnimationReverse;
+            case PURPLE:
+                return grow ? purplePlanetResizeAnimation : purplePlanetResizeAnimationReverse;
+            case SUN:
+                return grow ? sunPlanetResizeAnimation : sunPlanetResizeAnimationReverse;
+            case YELLOW:
+                return grow ? yellowPlanetResizeAnimation : yellowPlanetResizeAnimationReverse;
+            default:
+                return grow ? bluePlanetResizeAnimation : bluePlanetResizeAnimationReverse;
+        }
+    }
+
+    /** Returns the frames of the resize animation of a planet, see resizeAnimation */
+    private TextureRegion[] resizeTextures(Planet p) {
+        boolean grow = p.isGrowing();
+        switch (p.getColor()) {
+            case GREEN:
+                return grow ? greenPlanetResizeTextures : greenPlanetResizeTexturesReverse;
+            case PINK:
+                return grow ? pinkPlanetResizeTextures : pinkPlanetResizeTexturesReverse;
+            case PURPLE:
+                return grow ? purplePlanetResizeTextures : purplePlanetResizeTexturesReverse;
+            case SUN:
+                return grow ? sunPlanetResizeTextures : sunPlanetResizeTexturesReverse;
+            case YELLOW:
+                return grow ? yellowPlanetResizeTextures : yellowPlanetResizeTexturesReverse;
+            default:
+                return grow ? bluePlanetResizeTextures : bluePlanetResizeTexturesReverse;
+        }
+    }
+
+    /**
+     * Brings the path up to date after a planet was resized.
+     *
+     * If the ship is in an orbit, the path is calculated again from the edge of that orbit,
+     * and the ship moved onto it. Otherwise only the part of the path the planet reaches is.
+     * Either way the predictor may already have the new path, in which case it is copied in.
+     *
+     * @param resizable the planet that was resized
+     * @param previousRadius the radius after change of the planet before the resize, in pixel units
+     * @param grown whether the planet grew
+     */
+    private void resizePath(Planet resizable, float previousRadius, boolean grown) {
+        profiler.begin(FrameProfiler.Phase.PATH);
+        if (!trajectory.forwardVelEquals(1, ship.getVelocity())) {
+            if (grown) {
+                pathController.calculateLastTwoPoints(resizable);
+            } else {
+                pathController.calculateLastTwoPointsBackwards(resizable);
+            }
+            Vector2 lastPt = pathController.lastOrbitPt;
+            Vector2 lastVel = pathController.lastOrbitVel;
+            Vector2 secondLastPt = pathController.secondLastOrbitPt;
+            Vector2 secondLastVel = pathController.secondLastOrbitVel;
+
+            if (!predictor.takeOrbit(resizable, resizable.getBoxRadiusAfterChange(), pathController)) {
+                pathController.calculatePath(lastPt, lastVel, secondLastPt, secondLastVel, planets);
+            }
+            pathController.moveForward(pathController.index);
+            ship.setPos(trajectory.forwardX(0), trajectory.forwardY(0));
+            ship.setVelocity(trajectory.getForwardVel(0, temp).x, temp.y);
+        } else if (!predictor.takeRecalculated(resizable, resizable.getBoxRadiusAfterChange(), trajectory)) {
+            pathController.recalculatePath(resizable, previousRadius, planets);
+        }
+        predictor.invalidate();
+        profiler.end(FrameProfiler.Phase.PATH);
+    }
+
     /**
      * Processes physics
      *
@@ -1074,23 +1223,32 @@ public class LevelMode implements Screen, ContactListener {
         }
 
         // Turn the physics engine crank.
+        profiler.begin(FrameProfiler.Phase.PHYSICS);
         world.step(worldStep,WORLD_VELOC,WORLD_POSIT);
+        profiler.end(FrameProfiler.Phase.PHYSICS);
 
         // Garbage collect the deleted objects.
         // Note how we use the linked list nodes to delete O(1) in place.
         // This is O(n) without copying.
+        profiler.begin(FrameProfiler.Phase.OBJECTS);
         Iterator<PooledList<GameObject>.Entry> iterator = objects.entryIterator();
         while (iterator.hasNext()) {
             PooledList<GameObject>.Entry entry = iterator.next();
             GameObject obj = entry.getValue();
             if (obj.isRemoved()) {
-                obj.deactivatePhysics(world);
+                if (obj instanceof Enemy) {
+                    // the body is kept for the next enemy spawned
+                    ai.recycle((Enemy) obj);
+                } else {
+                    obj.deactivatePhysics(world);
+                }
                 entry.remove();
             } else {
                 // Note that update is called last!
                 obj.update(dt);
             }
         }
+        profiler.end(FrameProfiler.Phase.OBJECTS);
     }
 
     /**
@@ -1103,40 +1261,45 @@ public class LevelMode implements Screen, ContactListener {
      * @param height The new height in pixels
      */
     public void resize(int width, int height) {
-        // IGNORE FOR NOW
+        post.resize();
     }
 
     @Override
     public void render(float delta) {
         if (active) {
-            if (preUpdate(delta)) {
-                update(delta); // This is the one that must be defined.
-                postUpdate(delta);
+            profiler.beginFrame();
+            // Simulate in fixed steps, as many as the elapsed time calls for
+            accumulator += delta;
+            // read once per frame, as the key stays just pressed for every step of the frame;
+            // a press is kept for the next frame if no step runs
+            if (Gdx.input.isKeyJustPressed(Input.Keys.SPACE)) {
+                requestStarBlast();
+            }
+            int steps = 0;
+            while (accumulator >= FIXED_STEP && steps < maxSteps) {
+                accumulator -= FIXED_STEP;
+                steps++;
+                if (!step()) {
+                    break;
+                }
+            }
+            // Too far behind to catch up, so let the game slow down instead
+            if (accumulator >= FIXED_STEP) {
+                accumulator = 0;
             }
             draw(delta);
+            profiler.endFrame(world.getBodyCount(), world.getContactCount(),
+                    canvas.getDrawCount(), canvas.getFlushCount());
         }
 
+        // the fades and brightness are applied by the post processor in draw
         if (opening) {
-            Gdx.gl.glEnable(Gdx.gl.GL_BLEND);
-            sr.setColor(0, 0, 0, alpha);
-            sr.begin(ShapeRenderer.ShapeType.Filled);
-            sr.rect(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
-            sr.end();
-            Gdx.gl.glDisable(Gdx.gl.GL_BLEND);
-
             if (alpha > 0) {
                 alpha -= 0.01;
             } else {
                 opening = false;
             }
         } else if (transition) {
-            Gdx.gl.glEnable(Gdx.gl.GL_BLEND);
-            sr.setColor(0, 0, 0, alpha);
-            sr.begin(ShapeRenderer.ShapeType.Filled);
-            sr.rect(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
-            sr.end();
-            Gdx.gl.glDisable(Gdx.gl.GL_BLEND);
-
             if (alpha < 1) {
                 alpha += 0.02;
             } else {
@@ -1152,36 +1315,101 @@ public class LevelMode implements Screen, ContactListener {
                     Gdx.input.setInputProcessor(end);
                 }
             }
-        } else if (theEnd && endScreenNum == 0) {
-            end.act(delta);
-            end.draw();
         }
+    }
 
-        // brightness
-        if (brightness < 1) {
-            Gdx.gl.glEnable(Gdx.gl.GL_BLEND);
-            game.shapeRenderer.setColor(0, 0, 0, 1-brightness);
-            game.shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
-            game.shapeRenderer.rect(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
-            game.shapeRenderer.end();
-            Gdx.gl.glDisable(Gdx.gl.GL_BLEND);
+    /**
+     * Advances the level by one fixed step, without drawing anything.
+     *
+     * This is all of the simulation in a frame, so the headless runner can drive a level
+     * through it as well.
+     *
+     * @return false if the level stopped processing updates, such as when it was paused
+     */
+    public boolean step() {
+        profiler.begin(FrameProfiler.Phase.INPUT);
+        boolean running = preUpdate(FIXED_STEP);
+        profiler.end(FrameProfiler.Phase.INPUT);
+        if (!running) {
+            return false;
         }
+        profiler.begin(FrameProfiler.Phase.UPDATE);
+        update(FIXED_STEP); // This is the one that must be defined.
+        profiler.end(FrameProfiler.Phase.UPDATE);
+        postUpdate(FIXED_STEP);
+        recordView();
+        return true;
     }
 
     public void updateLocations() {
+        Vector2 frame = physicsFrame();
         for (GameObject obj : objects) {
             if (obj instanceof Planet) {
-                ((Planet) obj).setLocation(canvas, ship.getPos());
+                ((Planet) obj).setLocation(canvas, frame);
             } else if (obj instanceof Checkpoint) {
-                ((Checkpoint) obj).setLocation(canvas, ship.getPos());
+                ((Checkpoint) obj).setLocation(canvas, frame);
             } else if (obj instanceof StaticObstacle && !obj.getName().equals("solarflare")) {
-                ((StaticObstacle) obj).setLocation(canvas, ship.getPos());
+                ((StaticObstacle) obj).setLocation(canvas, frame);
             } else if (obj instanceof Enemy) {
-                ((Enemy) obj).setLocation(ship.getPos());
+                ((Enemy) obj).setLocation(frame);
             }
         }
     }
 
+    /**
+     * Returns the ship position that body locations are computed against.
+     *
+     * This is the ship itself when every body follows the ship, and the position the ship
+     * started the level at in world space mode.
+     */
+    private Vector2 physicsFrame() {
+        return worldSpace ? physicsOrigin : ship.getPos();
+    }
+
+    /**
+     * Moves the ship body to the ship position and points the camera at it.
+     *
+     * Used in world space mode instead of updateLocations, so that only the ship body is
+     * moved each frame while every other body keeps its place.
+     */
+    private void followShip() {
+        Vector2 pos = ship.getPos();
+        cameraOffset.set(physicsOrigin).sub(pos);
+        cameraTrans.setToTranslation(cameraOffset);
+        ship.setPosition((canvas.getWidth() / 2 - cameraOffset.x) / scale.x,
+                (canvas.getHeight() / 2 - cameraOffset.y) / scale.y);
+        for (Planet p : resizables) {
+            if (p.getColor() == Planet.PlanetColor.SUN) {
+                p.setSolarFlareLocation(canvas, physicsOrigin);
+            }
+        }
+    }
+
+    /**
+     * Remembers where the ship was before and after a step, for drawing in between
+     */
+    private void recordView() {
+        if (snapView) {
+            ship.getPos(viewTo);
+            snapView = false;
+        }
+        viewFrom.set(viewTo);
+        ship.getPos(viewTo);
+    }
+
+    /**
+     * Computes how far the view trails the ship, as the rest of the current step has not
+     * been simulated yet. The bodies stay where the last step left them.
+     */
+    private void interpolateView() {
+        if (snapView) {
+            viewLag.setZero();
+        } else {
+            viewLag.set(viewTo).sub(viewFrom).scl(1 - accumulator / FIXED_STEP);
+        }
+        drawTrans.set(cameraTrans).translate(viewLag);
+    }
+
     /**
      * Dispose of all (non-static) resources allocated to this mode.
      */
@@ -1192,6 +1420,10 @@ public class LevelMode implements Screen, ContactListener {
         objects.clear();
         addQueue.clear();
         world.dispose();
+        minimap.dispose();
+        trajectoryMesh.dispose();
+        post.dispose();
+        predictor.dispose();
         objects = null;
         addQueue = null;
         bounds = null;
@@ -1292,7 +1524,7 @@ public class LevelMode implements Screen, ContactListener {
 
     public void gatherAssets(AssetDirectory directory) {
         AssetController.gatherAssets(directory, scale);
-        goalTile  = new TextureRegion(directory.getEntry( "shared:goal", Texture.class ));
+        goalTile  = directory.getEntry( "shared:goal", TextureRegion.class );
 
         minimap.gatherAssets(directory);
         // set failure if health decreases to 0
@@ -1330,7 +1562,8 @@ public class LevelMode implements Screen, ContactListener {
                 shipExplodeSound.stop();
             }
             shockwaveSound.play();
-            effects.triggerShock(center.cpy().scl(scale));
+            // from box2d units to the screen, as the HUD text is placed
+            effects.triggerShock(shockCenter.set(center.x * scale.x, center.y * scale.y).add(cameraOffset).add(viewLag));
         }
     }
 
@@ -1376,6 +1609,7 @@ public class LevelMode implements Screen, ContactListener {
         entryDoor.setSensor(true);
         entryDoor.setDrawScale(scale);
         entryDoor.setName("entry");
+        entryDoor.setCategory(ContactTable.ENTRY);
         addObject(entryDoor);
 
         // add goal in game geography
@@ -1394,6 +1628,7 @@ public class LevelMode implements Screen, ContactListener {
         goalDoor.setSensor(true);
         goalDoor.setDrawScale(scale);
         goalDoor.setName("goal");
+        goalDoor.setCategory(ContactTable.GOAL);
         addObject(goalDoor);
 
         // hardcoded planets for now
@@ -1403,30 +1638,16 @@ public class LevelMode implements Screen, ContactListener {
             resizables.add(level.getResizables().get(i));
         }
 
-        //movParticles
-        float ox = Gdx.graphics.getWidth() / 2 / scale.x;
-        float oy = Gdx.graphics.getHeight() / 2 / scale.y;
-        movParticles = new ArrayList<>();
-        MovParticle movParticle1 = new MovParticle(new Vector2(1200, 550), constants.get("movparticles"),ox,oy);
-        MovParticle movParticle2 = new MovParticle(new Vector2(1000, 450),constants.get("movparticles"),ox,oy);
-        MovParticle movParticle3 = new MovParticle(new Vector2(800, 350),constants.get("movparticles"),ox,oy);
-        MovParticle movParticle4 = new MovParticle(new Vector2(600, 250),constants.get("movparticles"),ox,oy);
-        movParticles.add(movParticle1);
-        movParticles.add(movParticle2);
-        movParticles.add(movParticle3);
-        movParticles.add(movParticle4);
-        for(int i = 0; i < movParticles.size(); i++){
-            movParticles.get(i).setDrawScale(scale);
-            movParticles.get(i).setTexture(particle);
-            movParticles.get(i).setDensity(constants.get("defaults").getFloat("density", 0.0f));
-            movParticles.get(i).setFriction(constants.get("defaults").getFloat("friction", 0.0f));
-            movParticles.get(i).setRestitution(constants.get("defaults").getFloat("restitution", 0.0f));
-            addObject(movParticles.get(i));
-        }
-        MovParticle movParticle5 = new MovParticle(new Vector2(400, 500),constants.get("movparticles"),ox,oy);
-        movParticle5.setDrawScale(scale);
-        movParticle5.setTexture(particle);
-        movParticles.add(movParticle5);
+        particles = new ParticleSystem(constants.get("emitters"));
+        JsonValue postSettings = constants.get("post");
+        post.setRenderScale(postSettings.getFloat("render_scale", 1));
+        post.setEnabled(PostProcessor.SHOCKWAVE, postSettings.getBoolean("shockwave", true));
+        post.setEnabled(PostProcessor.ALERT, postSettings.getBoolean("alert", true));
+        JsonValue profilerSettings = constants.get("profiler");
+        profiler.setVisible(profilerSettings.getBoolean("overlay", false));
+        profileFile = profilerSettings.getString("export", "profile.csv");
+        particles.setTexture(particle);
+        exhaust = particles.getEmitter("exhaust");
 
 
         JsonValue defaults = constants.get("defaults");
@@ -1489,6 +1710,8 @@ public class LevelMode implements Screen, ContactListener {
             p.setName("planet" + i);
             addObject(p);
         }
+        planets = new PlanetGrid(resizables);
+        predictor.setPlanets(planets);
 
         ship = new Rocket(checkpoint, 0.1f, ship1Textures[0], ship2Textures[0], ship3Textures[0], constants, scale, health);
 
@@ -1503,8 +1726,12 @@ public class LevelMode implements Screen, ContactListener {
         ship.setTexture(ship3Textures[0]);
         ship.setVelocity(checkpointVel);
         ship.setName("ship");
-        ship.getSprinkler().setTexture(particle);
         addObject(ship);
+        worldSpace = defaults.getBoolean("worldspace", false);
+        maxSteps = defaults.getInt("maxsteps", DEFAULT_MAX_STEPS);
+        physicsOrigin.set(ship.getPos());
+        cameraOffset.setZero();
+        cameraTrans.idt();
 
         staticObs = new ArrayList<>();
 //        staticObs.add(new StaticObstacle(new Vector2(Helper.worldCoordsToBoxCoords(scale, ship.getPos()).x-3,Helper.worldCoordsToBoxCoords(scale, ship.getPos()).y+3), 1f, ship.getPos(), false));
@@ -1534,6 +1761,7 @@ public class LevelMode implements Screen, ContactListener {
             r.setDrawScale(scale);
 //            r.setTexture(starCollectTextures[0]);
             r.setName("rewards");
+            r.setCategory(ContactTable.REWARD);
             addObject(r);
         }
 
@@ -1585,7 +1813,10 @@ public class LevelMode implements Screen, ContactListener {
         for (Enemy e : enemies) {
             addObject(e);
         }
-        ai = new AIController(enemies, ship, defaults, scale);
+        ai = new AIController(enemies, ship, world, defaults, constants.get("steering"), scale);
+        if (worldSpace) {
+            ai.setPhysicsOrigin(physicsOrigin);
+        }
 
 
 
@@ -1603,6 +1834,8 @@ public class LevelMode implements Screen, ContactListener {
 
 
         pathController = new Path();
+        pathController.setCache(pathCache);
+        trajectory = pathController.getTrajectory();
 
         selector = new ObstacleSelector(world);
         selector.setDrawScale(scale);
@@ -1643,11 +1876,10 @@ public class LevelMode implements Screen, ContactListener {
         enemyAreas = level.getEnemyAreas();
 
 
-        /** Declare a path shader (which draws the path) */
-        pathShader = new PathShader(pixel);
-        pathShader.setDrawScale(scale);
+        /** Declare the mesh which draws the path */
+        trajectoryMesh = new TrajectoryMesh();
 
-        pathController.calculatePath(checkpoint, checkpointVel, checkpoint, checkpointVel, resizables);
+        pathController.calculatePath(checkpoint, checkpointVel, checkpoint, checkpointVel, planets);
 
         updateLocations();
 
@@ -1655,114 +1887,65 @@ public class LevelMode implements Screen, ContactListener {
 
     /// CONTACT LISTENER METHODS
     /**
-     * Callback method for the start of a collision
-     *
-     * This method is called when we first get a collision between two objects.  We use
-     * this method to test if it is the "right" kind of collision.  In particular, we
-     * use it to test if we made it to the win door.
+     * Registers the contact handlers for every pair of collision categories we react to.
      *
-     * @param contact The two bodies that collided
+     * Each handler receives the objects in the order of the categories it is registered
+     * with, so it does not have to check both fixture orderings.
      */
-    public void beginContact(Contact contact) {
-        Body body1 = contact.getFixtureA().getBody();
-        Body body2 = contact.getFixtureB().getBody();
-
-        Object fd1 = body1.getUserData();
-        Object fd2 = body2.getUserData();
-
-        if (fd1 != null && fd2 != null) { // non-wall collision
-            if (fd1 == ship && fd2 == goalDoor || fd2 == ship && fd1 == goalDoor) {
+    private void registerContacts() {
+        contacts.register(ContactTable.SHIP, ContactTable.GOAL, new ContactTable.Handler() {
+            public void begin(GameObject a, GameObject b) {
                 exit.play(soundsVol);
                 setComplete(true);
                 pause();
                 Gdx.input.setInputProcessor(complete);
-            } else if (fd1 == ship && fd2 instanceof Planet) {
-                collisionSound.play(soundsVol);
-                health -= 1;
-                ship.setHealth(health);
-                ((Rocket)fd1).setInvincible(true);
-                shipHurtElapsedTime = 0;
-            } else if (fd2 == ship && fd1 instanceof Planet) {
-                collisionSound.play(soundsVol);
-                health -= 1;
-                ship.setHealth(health);
-                ship.setInvincible(true);
-                shipHurtElapsedTime = 0;
-            } else if (fd2 == ship && fd1 instanceof StaticObstacle && fd1 != entryDoor && fd1 != goalDoor) {
-                if(((StaticObstacle) fd1).getName().equals("rewards")){
-                    starCollectSound.play(soundsVol);
-                    ((StaticObstacle) fd1).setColleted(true);
-                    starCollectElpasedTime = 0;
-                    numStars++;
-                    rewards.remove(fd1);
-                    staticObs.remove(fd1);
-                    objects.remove(fd1);
-//                    float range = REWARD_BLAST_RANGE;
-//                    blastBackEnemies(((StaticObstacle) fd1).getPosition(), REWARD_FORCE, range);
-                }else{
-                    collisionSound.play(soundsVol);
-                    health -= 1;
-                    ship.setHealth(health);
-                    ship.setInvincible(true);
-                    shipHurtElapsedTime = 0;
+            }
+        });
+        contacts.register(ContactTable.SHIP, ContactTable.PLANET, new ContactTable.Handler() {
+            public void begin(GameObject a, GameObject b) {
+                damageShip(1);
+            }
+        });
+        contacts.register(ContactTable.SHIP, ContactTable.OBSTACLE, new ContactTable.Handler() {
+            public void begin(GameObject a, GameObject b) {
+                damageShip(1);
+            }
+        });
+        contacts.register(ContactTable.SHIP, ContactTable.REWARD, new ContactTable.Handler() {
+            public void begin(GameObject a, GameObject b) {
+                if (b.isRemoved()) {
+                    return;
                 }
-
-            } else if (fd1 == ship && fd2 instanceof StaticObstacle && fd2 != entryDoor && fd2 != goalDoor) {
-                if(((StaticObstacle) fd2).getName().equals("rewards")){
-                    starCollectSound.play(soundsVol);
-                    ((StaticObstacle) fd2).setColleted(true);
-                    starCollectElpasedTime = 0;
-                    numStars++;
-                    rewards.remove(fd2);
-                    staticObs.remove(fd2);
-                    objects.remove(fd2);
-
-//                    float range = REWARD_BLAST_RANGE;
-//                    blastBackEnemies(((StaticObstacle) fd2).getPosition(), REWARD_FORCE, range);
-                }else{
-                    collisionSound.play(soundsVol);
-                    health -= 1;
-                    ship.setHealth(health);
-                    ship.setInvincible(true);
-                    shipHurtElapsedTime = 0;
+                starCollectSound.play(soundsVol);
+                ((StaticObstacle) b).setColleted(true);
+                starCollectElpasedTime = 0;
+                numStars++;
+                // the garbage collection in postUpdate takes it out of the world
+                b.markRemoved(true);
+//                float range = REWARD_BLAST_RANGE;
+//                blastBackEnemies(((StaticObstacle) b).getPosition(), REWARD_FORCE, range);
+            }
+        });
+        contacts.register(ContactTable.SHIP, ContactTable.ENEMY, new ContactTable.Handler() {
+            public void begin(GameObject a, GameObject b) {
+                if (!ship.getInvincible()) {
+                    damageShip(0.333f);
+                    float range = SHIP_BLAST_RANGE;
+                    blastBackEnemies(ship.getPosition(), SHIP_FORCE, range, true);
+                }
+            }
+        });
+        contacts.register(ContactTable.SHIP, ContactTable.CHECKPOINT, new ContactTable.Handler() {
+            public void begin(GameObject a, GameObject b) {
+                Checkpoint c = (Checkpoint) b;
+                if (c.isCollected()) {
+                    return;
                 }
-
-            } else if (fd1 == ship && fd2 instanceof Enemy && !ship.getInvincible()) {
-                collisionSound.play(soundsVol);
-                health -= 0.333;
-                ship.setHealth(this.health);
-                ship.setInvincible(true);
-                shipHurtElapsedTime = 0;
-                float range = SHIP_BLAST_RANGE;
-                blastBackEnemies(ship.getPosition(), SHIP_FORCE, range, true);
-            } else if (fd2 == ship && fd1 instanceof Enemy && !ship.getInvincible()) {
-                collisionSound.play(soundsVol);
-                this.health -= 0.333;
-                ship.setHealth(this.health);
-                ship.setInvincible(true);
-                shipHurtElapsedTime = 0;
-                float range = SHIP_BLAST_RANGE;
-                blastBackEnemies(ship.getPosition(), SHIP_FORCE, range, true);
-            } else if (fd1 == ship && fd2 instanceof Checkpoint && !((Checkpoint)fd2).isCollected()) {
-                checkSound.play(soundsVol);
-                checkpointElapsedTime = 0;
-                checkpoint.set(((Checkpoint)fd2).getPos());
-                checkpointVel.set(ship.getVelocity());
-                hitCheckpoint = true;
-//                for (int i = 0; i< es.size(); i++){
-//                    ai.removeEnemy(es.get(i));
-//                }
-                enemyElapsedTime = 0;
-                removeAllEnemy = true;
-//                ai.removeAllEnemy();
-                enemies = ai.getEnemies();
-                ((Checkpoint)fd2).changeCollectAnimation(true);
-            } else if (fd2 == ship && fd1 instanceof Checkpoint && !((Checkpoint)fd1).isCollected()) {
                 checkSound.play(soundsVol);
                 checkpointElapsedTime = 0;
-                checkpoint.set(((Checkpoint)fd1).getPos());
+                checkpoint.set(c.getPos());
                 checkpointVel.set(ship.getVelocity());
-                ((Checkpoint)fd1).changeCollectAnimation(true);
+                c.changeCollectAnimation(true);
                 hitCheckpoint = true;
                 enemyElapsedTime = 0;
                 removeAllEnemy = true;
@@ -1775,42 +1958,65 @@ public class LevelMode implements Screen, ContactListener {
                     easyLoop.play();
                     easyLoop.setLooping(true);
                 }
-
-//                enemies = ai.getEnemies();
-            } else if (fd1 instanceof Enemy && fd2 instanceof Planet) {
-                ((Enemy) fd1).setExplode(true);
-                globalEnemy = ((Enemy) fd1);
-                shipExplodeSound.play();
-//                enemyElapsedTime=0;
-                ai.removeEnemy((Enemy) fd1);
-            } else if (fd2 instanceof Enemy && fd1 instanceof Planet) {
-                ((Enemy) fd2).setExplode(true);
-                globalEnemy = ((Enemy) fd2);
+                enemies = ai.getEnemies();
+            }
+        });
+        contacts.register(ContactTable.ENEMY, ContactTable.PLANET, new ContactTable.Handler() {
+            public void begin(GameObject a, GameObject b) {
+                if (a.isRemoved()) {
+                    return;
+                }
+                ((Enemy) a).setExplode(true);
+                globalEnemy = ((Enemy) a);
                 shipExplodeSound.play();
 //                enemyElapsedTime=0;
-                ai.removeEnemy((Enemy) fd2);
-            } else if (fd1 == ship && fd2 instanceof DynamicObstacle && !ship.getInvincible()) {
-                ((GameObject)fd2).setCollided(true);
-                collisionSound.play(soundsVol);
-                health -= 1;
-                ship.setHealth(health);
-                ship.setInvincible(true);
-                shipHurtElapsedTime = 0;
-            } else if (fd2 == ship && fd1 instanceof DynamicObstacle && !ship.getInvincible()) {
-                ((GameObject)fd1).setCollided(true);
-                collisionSound.play(soundsVol);
-                health -= 1;
-                ship.setHealth(health);
-                ship.setInvincible(true);
-                shipHurtElapsedTime = 0;
+                ai.removeEnemy((Enemy) a);
+            }
+        });
+        contacts.register(ContactTable.SHIP, ContactTable.DYNAMIC, new ContactTable.Handler() {
+            public void begin(GameObject a, GameObject b) {
+                if (!ship.getInvincible()) {
+                    b.setCollided(true);
+                    damageShip(1);
+                }
             }
-            else if (fd1 instanceof Planet && fd2 instanceof DynamicObstacle) {
-                ((GameObject)fd2).setCollided(true);
-            } else if (fd2 instanceof Planet && fd1 instanceof DynamicObstacle) {
-                ((GameObject)fd1).setCollided(true);
+        });
+        contacts.register(ContactTable.PLANET, ContactTable.DYNAMIC, new ContactTable.Handler() {
+            public void begin(GameObject a, GameObject b) {
+                b.setCollided(true);
             }
-        }
+        });
+    }
 
+    /**
+     * Hurts the ship and makes it invincible for a while
+     *
+     * @param amount the health to take away
+     */
+    private void damageShip(float amount) {
+        collisionSound.play(soundsVol);
+        health -= amount;
+        ship.setHealth(health);
+        ship.setInvincible(true);
+        shipHurtElapsedTime = 0;
+    }
+
+    /**
+     * Callback method for the start of a collision
+     *
+     * This method is called when we first get a collision between two objects.  We use
+     * this method to test if it is the "right" kind of collision.  In particular, we
+     * use it to test if we made it to the win door. The handler is looked up by the
+     * collision categories of both bodies, see {@link #registerContacts}.
+     *
+     * @param contact The two bodies that collided
+     */
+    public void beginContact(Contact contact) {
+        Body body1 = contact.getFixtureA().getBody();
+        Body body2 = contact.getFixtureB().getBody();
+
+        // walls have no user data
+        contacts.dispatch(body1.getUserData(), body2.getUserData());
     }
 
     /**
@@ -1879,26 +2085,28 @@ public class LevelMode implements Screen, ContactListener {
      * @param dt Timing values from parent loop
      */
     public void draw(float dt) {
-        canvas.shaderOff();
-        fbo.begin();
+        profiler.begin(FrameProfiler.Phase.DRAW);
+        post.begin();
         canvas.clear();
 
         // to prevent the blue background from showing in camera edge movement
         float backgroundOffsetX = -700f;
         float backgroundOffsetY = -400f;
+        interpolateView();
         temp.set((canvas.getWidth() / 2) - ship.getPos().x + backgroundOffsetX,
-                ((canvas.getHeight() / 2) - ship.getPos().y + backgroundOffsetY));
+                ((canvas.getHeight() / 2) - ship.getPos().y + backgroundOffsetY)).add(viewLag);
 
         // Draw background with camera translations
         moveCamera();
-        canvas.begin();
         level.drawLevel(canvas, scale, temp);
-        canvas.end();
-
-        canvas.begin();
 
+        // everything up to the HUD is queued and drawn sorted by layer and texture
+        canvas.beginQueue();
+        canvas.setLayer(LAYER_BOUNDS, drawTrans);
         drawBoundTextures();
 
+        // bodies are drawn where the physics world has them, seen through the camera
+
         checkpointElapsedTime += dt;
         holeElapsedTime += dt;
         shipHurtElapsedTime += dt;
@@ -1909,7 +2117,9 @@ public class LevelMode implements Screen, ContactListener {
         enemyElapsedTime += dt;
 
         for (GameObject obj : objects) {
+            canvas.setLayer(LAYER_ACTORS, drawTrans);
             if (obj instanceof Checkpoint) {
+                canvas.setLayer(LAYER_STATIC, drawTrans);
                 if (((Checkpoint) obj).isCollectedAnimation()) {
                     if ((checkpointCollectedAnimation.getKeyFrame(checkpointElapsedTime, true)) == checkpointCollectedTextures[11]) {
                         ((Checkpoint) obj).collect();
@@ -1921,6 +2131,7 @@ public class LevelMode implements Screen, ContactListener {
                 }
             }
             else if (obj instanceof StaticObstacle) {
+                canvas.setLayer(LAYER_STATIC, drawTrans);
                 StaticObstacle so = (StaticObstacle)obj;
                 if (obj.getName().equals("entry")) {
                     if (!so.getEntryAnimation()) {
@@ -1967,109 +2178,25 @@ public class LevelMode implements Screen, ContactListener {
             } else if (obj instanceof Rocket) {
                 continue;
 
-            } else if (obj instanceof MovParticle){
-//                Vector2 pos = Helper.boxCoordsToWorldCoords(scale, ship.getPosition());
-                for(int i=0; i< movParticles.size()-1; i++){
-                    movParticles.get(i).draw(canvas, new Vector2(640-1200+i*300, 360 -500 + (i+1)*250));
-
-                }
-                movParticles.get(movParticles.size()-1).draw(canvas, new Vector2(640+300, 360+250));
             } else if (obj instanceof Planet) {
                 Planet p = (Planet)obj;
                 float radius = p.getRadius() * 3.35f;
                 Vector2 position = Helper.boxCoordsToWorldCoords(scale, p.getPosition());
                 if (selected == p && (selected.changeSize(-1) || selected.changeSize(1))) {
+                    canvas.setLayer(LAYER_HIGHLIGHT, drawTrans);
                     canvas.draw(highlight, Color.WHITE, position.x - radius / 2, position.y - radius / 2, radius, radius);
                 }
+                canvas.setLayer(LAYER_RESIZE, drawTrans);
                 if (p.getColor() == Planet.PlanetColor.SUN) {
                     TextureRegion tr = (TextureRegion) (sunPlanetAnimation.getKeyFrame(planetElapsedTime, true));
                     p.setTexture(tr);
                 }
-                if (p.isGrowing()) {
-                    planetResizeElapsedTime += dt;
-
-                    if (p.getRadius() < p.getRadiusAfterChange()) {
-                        p.resize(SIZE_RATE, ship);
-                        //blastBackEnemies(p.getPosition(), PLANET_FORCE, p.getRadius() * 2f / p.getDrawScale().x, false);
-                    }
-
-                    Animation planetResizeAnimation = bluePlanetResizeAnimation;
-                    TextureRegion[] planetResizeTextures = bluePlanetResizeTextures;
-                    switch (p.getColor()) {
-                        case BLUE:
-                            planetResizeAnimation = bluePlanetResizeAnimation;
-                            planetResizeTextures = bluePlanetResizeTextures;
-                            break;
-                        case GREEN:
-                            planetResizeAnimation = greenPlanetResizeAnimation;
-                            planetResizeTextures = greenPlanetResizeTextures;
-                            break;
-                        case PINK:
-                            planetResizeAnimation = pinkPlanetResizeAnimation;
-                            planetResizeTextures = pinkPlanetResizeTextures;
-                            break;
-                        case PURPLE:
-                            planetResizeAnimation = purplePlanetResizeAnimation;
-                            planetResizeTextures = purplePlanetResizeTextures;
-                            break;
-                        case SUN:
-                            planetResizeAnimation = sunPlanetResizeAnimation;
-                            planetResizeTextures = sunPlanetResizeTextures;
-                            break;
-                        case YELLOW:
-                            planetResizeAnimation = yellowPlanetResizeAnimation;
-                            planetResizeTextures = yellowPlanetResizeTextures;
-                            break;
-                    }
-                    TextureRegion tr = (TextureRegion) (planetResizeAnimation.getKeyFrame(planetResizeElapsedTime, true));
+                if (p.isGrowing() || p.isShrinking()) {
+                    TextureRegion tr = (TextureRegion) (resizeAnimation(p).getKeyFrame(planetResizeElapsedTime, true));
                     canvas.draw(tr, Color.WHITE, position.x - radius / 2, position.y - radius / 2, radius, radius);
-                    if (tr == planetResizeTextures[7]) {
-                        p.setGrowing(false);
-                        planetResizeElapsedTime = -1;
-                    }
-                } else if (p.isShrinking()) {
-                    planetResizeElapsedTime += dt;
-
-                    if (p.getRadius() > p.getRadiusAfterChange()) {
-                        p.resize(-SIZE_RATE, ship);
-                    }
-
-                    Animation planetResizeAnimation = bluePlanetResizeAnimationReverse;
-                    TextureRegion[] planetResizeTextures = bluePlanetResizeTexturesReverse;
-                    switch (p.getColor()) {
-                        case BLUE:
-                            planetResizeAnimation = bluePlanetResizeAnimationReverse;
-                            planetResizeTextures = bluePlanetResizeTexturesReverse;
-                            break;
-                        case GREEN:
-                            planetResizeAnimation = greenPlanetResizeAnimationReverse;
-                            planetResizeTextures = greenPlanetResizeTexturesReverse;
-                            break;
-                        case PINK:
-                            planetResizeAnimation = pinkPlanetResizeAnimationReverse;
-                            planetResizeTextures = pinkPlanetResizeTexturesReverse;
-                            break;
-                        case PURPLE:
-                            planetResizeAnimation = purplePlanetResizeAnimationReverse;
-                            planetResizeTextures = purplePlanetResizeTexturesReverse;
-                            break;
-                        case SUN:
-                            planetResizeAnimation = sunPlanetResizeAnimationReverse;
-                            planetResizeTextures = sunPlanetResizeTexturesReverse;
-                            break;
-                        case YELLOW:
-                            planetResizeAnimation = yellowPlanetResizeAnimationReverse;
-                            planetResizeTextures = yellowPlanetResizeTexturesReverse;
-                            break;
-                    }
-                    TextureRegion tr = (TextureRegion) (planetResizeAnimation.getKeyFrame(planetResizeElapsedTime, true));
-                    canvas.draw(tr, Color.WHITE, position.x - radius / 2, position.y - radius / 2, radius, radius);
-                    if (tr == planetResizeTextures[7]) {
-                        p.setShrinking(false);
-                        planetResizeElapsedTime = -1;
-                    }
                 }
 
+                canvas.setLayer(LAYER_PLANETS, drawTrans);
                 if (p.getColor() != Planet.PlanetColor.SUN) {
                     p.draw(canvas, p.getRadius() * 1.5f, Color.WHITE);
                 } else {
@@ -2077,7 +2204,10 @@ public class LevelMode implements Screen, ContactListener {
                         p.getSolarFlare().setActive(true);
                         TextureRegion trFlare = (TextureRegion) (solarFlareAnimation.getKeyFrame(solarFlareElapsedTime, true));
                         p.setSolarFlareDistance(solarFlareAnimation.getKeyFrameIndex(solarFlareElapsedTime) + 1);
-                        p.draw(canvas, p.getRadius() * 1.5f, trFlare);
+                        p.draw(canvas, p.getRadius() * 1.5f, Color.WHITE);
+                        canvas.setLayer(LAYER_FLARES, drawTrans);
+                        p.drawFlare(canvas, trFlare);
+                        canvas.setLayer(LAYER_PLANET_TINT, drawTrans);
                         if (solarFlareElapsedTime <= SOLAR_FLARE_COOLDOWN/5) {
                             Color c = new Color(Color.RED);
                             c.a = 0.35f * (1-((solarFlareElapsedTime) / (SOLAR_FLARE_COOLDOWN/5f)));
@@ -2086,6 +2216,7 @@ public class LevelMode implements Screen, ContactListener {
                     } else {
                         p.getSolarFlare().setActive(false);
                         p.draw(canvas, p.getRadius() * 1.5f, Color.WHITE);
+                        canvas.setLayer(LAYER_PLANET_TINT, drawTrans);
                         if (solarFlareElapsedTime > SOLAR_FLARE_COOLDOWN-SOLAR_FLARE_TELE_TIME) {
                             Color c = new Color(Color.RED);
                             // 0.35f is the max opacity
@@ -2120,20 +2251,19 @@ public class LevelMode implements Screen, ContactListener {
                         ai.removeAllEnemy();
                     }
 //                    enemies = ai.getEnemies();
-                    else if(globalEnemy!=null){
-                        ai.removeEnemy(globalEnemy);
-                        if(obj!=globalEnemy){
-                            obj.draw(canvas);
-                        }
-                    } else obj.draw(canvas);
+                    // the enemy was already removed by the planet contact
+                    else if(obj!=globalEnemy || !globalEnemy.isRemoved()){
+                        obj.draw(canvas);
+                    }
                 }
             } else {
                 obj.draw(canvas);
             }
         }
-        canvas.end();
-        canvas.begin();
+        canvas.setLayer(LAYER_PARTICLES, null);
+        particles.draw(canvas, ship.getPos(particleOrigin), viewLag);
         // draw ship separately for level edge / camera purposes
+        canvas.setLayer(LAYER_SHIP, null);
         if (ship.getInvincible()) {
             if (shipHurtElapsedTime < INVINCIBILITY_LENGTH && (int)(shipHurtElapsedTime * 4) % 2 == 0) {
                 ship.draw(canvas);
@@ -2141,6 +2271,7 @@ public class LevelMode implements Screen, ContactListener {
                 ship.setInvincible(false);
             }
             if (shipHurtElapsedTime < 1) {
+                canvas.setLayer(LAYER_SHIP_HURT, null);
                 TextureRegion tr = (TextureRegion) (shipHurtAnimation.getKeyFrame(shipHurtElapsedTime, true));
                 canvas.draw(tr, canvas.getWidth() / 2 - tr.getRegionWidth() / 2, canvas.getHeight() / 2 - tr.getRegionHeight() / 2);
             }
@@ -2148,13 +2279,14 @@ public class LevelMode implements Screen, ContactListener {
             ship.draw(canvas);
         }
 
-        pathShader.drawPath(canvas, forwardPath, ship.getPos());
-        pathShader.drawPath(canvas, backwardPath, ship.getPos());
-        Vector2 position = Helper.boxCoordsToWorldCoords(scale, ship.getPosition());
-
         canvas.end();
-        canvas.begin();
 
+        // the path is one mesh drawn between the sprite passes, so the tutorial text goes over it
+        trajectoryMesh.draw(canvas, trajectory, ship.getPos(), viewLag);
+
+        // the HUD has text, which cannot be queued
+        canvas.begin();
+        Vector2 position = Helper.boxCoordsToWorldCoords(scale, ship.getPosition()).add(cameraOffset).add(viewLag);
         if (levelNum == 1) {
             canvas.draw(l1text, position.x-200, position.y-250);
         } else if (levelNum == 2) {
@@ -2198,12 +2330,12 @@ public class LevelMode implements Screen, ContactListener {
         }
 
         // draw minimap
-        TextureRegion minimapTex = minimap.generateMap();
         float mapWidth = canvas.getWidth()/6f; // these are for resizing the map
         float mapHeight = canvas.getHeight()/6f;
         float mapPadding = canvas.getHeight()/40f;
-        minimapTex.flip(false, true);
-        canvas.draw(minimapTex, Color.WHITE, canvas.getWidth()-mapWidth-mapPadding, canvas.getHeight()-mapHeight-mapPadding, mapWidth, mapHeight);
+        profiler.begin(FrameProfiler.Phase.MINIMAP);
+        minimap.draw(canvas, canvas.getWidth()-mapWidth-mapPadding, canvas.getHeight()-mapHeight-mapPadding, mapWidth, mapHeight);
+        profiler.end(FrameProfiler.Phase.MINIMAP);
 
         canvas.draw(starIcon, Color.WHITE, canvas.getWidth()*0.946f, canvas.getHeight()*0.766f, starIcon.getRegionWidth()*0.54f, starIcon.getRegionHeight()*0.54f);
         canvas.drawText(Integer.toString(numStars), ui.getFont(), canvas.getWidth()*0.97f, canvas.getHeight()*0.8f);
@@ -2296,32 +2428,51 @@ public class LevelMode implements Screen, ContactListener {
             }
         }
 
-        // fps
-//        String fps = "FPS: "+Double.toString((cycles-59)/sumDelta);
-//        canvas.drawText(fps, ui.getFont(), 0, canvas.getHeight()-10);
+        if (debug) {
+            canvas.drawText("sprites: " + canvas.getDrawCount() + "  flushes: " + canvas.getFlushCount(),
+                    ui.getFont(), 0, canvas.getHeight() - 10);
+        }
+
+        profiler.draw(canvas, ui.getFont(), 10, canvas.getHeight() * 0.75f);
 
         canvas.end();
-        fbo.end();
 
-        Texture texture = fbo.getColorBufferTexture();
-        TextureRegion textureRegion = new TextureRegion(texture);
-        textureRegion.flip(false, true);
+        if (theEnd && endScreenNum == 0 && !opening && !transition) {
+            end.act(dt);
+            end.draw();
+        }
 
-        canvas.clear();
-        canvas.begin();
-        canvas.shaderOn();
-        effects.draw(canvas, dt);
-        canvas.draw(textureRegion, 0, 0);
-        canvas.end();
+        profiler.begin(FrameProfiler.Phase.POST);
+        effects.apply(post, dt);
+        post.setBrightness(brightness);
+        post.setFade(opening || transition ? alpha : 0);
+        post.end();
+        profiler.end(FrameProfiler.Phase.POST);
 
 
         if (debug) {
-            canvas.beginDebug();
+            canvas.beginDebug(drawTrans);
             for(GameObject obj : objects) {
                 obj.drawDebug(canvas);
             }
             canvas.endDebug();
         }
+        // the counts of this frame are kept for the profiler and the next frame's debug text
+        canvas.resetStats();
+        profiler.end(FrameProfiler.Phase.DRAW);
+    }
+
+    /**
+     * Writes the frames the profiler has recorded to the profile file in the working directory
+     */
+    private void exportProfile() {
+        FileHandle file = Gdx.files.local(profileFile);
+        try {
+            profiler.write(file);
+            Gdx.app.log("LevelMode", "Wrote frame timings to " + file.path());
+        } catch (IOException e) {
+            Gdx.app.error("LevelMode", "Cannot write frame timings to " + file.path(), e);
+        }
     }
 
     /**
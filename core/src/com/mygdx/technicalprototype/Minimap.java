@@ -12,10 +12,8 @@ import com.mygdx.technicalprototype.util.PooledList;
 
 public class Minimap extends ScreenViewport {
 
-    /** The Pixmap for the minimap texture */
-    private Pixmap pmap;
-    /** The minimap texture */
-    private TextureRegion textureCache;
+    /** The markers that never move, drawn once when the positions are loaded */
+    private TextureRegion staticLayer;
     /** The minimap width in pixels, including padding */
     private int width;
     /** The minimap height in pixels, including padding */
@@ -48,7 +46,11 @@ public class Minimap extends ScreenViewport {
 //    private TextureRegion planetTexture;
 //    private TextureRegion checkpointTexture;
 
-    private Pixmap shipPix;
+    /** The ship marker, drawn over the static layer every frame */
+    private TextureRegion shipTexture;
+    /** The ship marker position in minimap pixels, y pointing up */
+    private Vector2 shipPos;
+
     private Pixmap goalPix;
     private Pixmap entryPix;
     private Pixmap planetPix;
@@ -66,7 +68,7 @@ public class Minimap extends ScreenViewport {
         this.width = width + 2 * padding;
         this.height = height + 2 * padding;
         this.loaded = false;
-        this.pmap = new Pixmap(this.width, this.height, Pixmap.Format.RGBA8888);
+        this.shipPos = new Vector2();
         this.planets = new PooledList<>();
         this.goals = new PooledList<>();
         this.entries = new PooledList<>();
@@ -162,12 +164,54 @@ public class Minimap extends ScreenViewport {
     }
 
     /**
-     * Redraws the map with updated position information from the ship
+     * Moves the ship marker to the current position of the ship
      *
      * @param rocket the ship to be drawn
      * @param scale  the ship draw scale
      */
     public void updateMap(Rocket rocket, Vector2 scale) {
+        rocket.getPos(shipPos);
+        shipPos.x /= scale.x;
+        shipPos.y /= scale.y;
+        shipPos.add(middleOffset);
+        shipPos.scl(posScale);
+        shipPos.set((int) shipPos.x + padding, (int) shipPos.y + padding);
+    }
+
+    /**
+     * Draws the minimap into the given screen rectangle.
+     *
+     * The static markers are blitted into a texture the first time the map is drawn, so each
+     * frame only draws that texture and the ship marker. Nothing is uploaded after that.
+     *
+     * @param canvas the canvas, which must be between begin and end
+     * @param x      the left edge of the map on screen
+     * @param y      the bottom edge of the map on screen
+     * @param w      the width of the map on screen
+     * @param h      the height of the map on screen
+     */
+    public void draw(GameCanvas canvas, float x, float y, float w, float h) {
+        if (!loaded) {
+            return;
+        }
+        if (staticLayer == null) {
+            staticLayer = buildStaticLayer();
+        }
+        canvas.draw(staticLayer, Color.WHITE, x, y, w, h);
+        // the layer is flipped to y up, so marker pixels map straight onto it
+        float sx = w / width;
+        float sy = h / height;
+        canvas.draw(shipTexture, Color.WHITE, x + shipPos.x * sx, y + shipPos.y * sy,
+                shipTexture.getRegionWidth() * sx, shipTexture.getRegionHeight() * sy);
+    }
+
+    /**
+     * Blits the background, border and every marker that never moves into a texture
+     *
+     * @return the static layer, flipped to y up
+     */
+    private TextureRegion buildStaticLayer() {
+        Pixmap pmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
         pmap.setColor(new Color(0, 0, 0, 0.5f));
         pmap.fill();
         // draw objects
@@ -183,32 +227,32 @@ public class Minimap extends ScreenViewport {
         for (Vector2 pos : checkpoints) {
             pmap.drawPixmap(checkpointPix,(int) pos.x, (int) pos.y);
         }
-        // draw ship
-        Vector2 shipPos = rocket.getPos();
-        shipPos.x /= scale.x;
-        shipPos.y /= scale.y;
-        shipPos.add(middleOffset);
-        shipPos.scl(posScale);
-        pmap.drawPixmap(shipPix, (int) shipPos.x + padding, (int) shipPos.y + padding);
 
         // draw border
         pmap.setColor(new Color(255, 255, 255, 0.5f));
         pmap.drawRectangle(0, 0, width, height);
         pmap.drawRectangle(1, 1, width-2, height-2);
 
+        TextureRegion layer = new TextureRegion(new Texture(pmap));
+        layer.flip(false, true);
+        pmap.dispose();
+        return layer;
     }
 
     /**
-     * Returns a new texture of the minimap
-     *
-     * @return the minimap texture
+     * Releases the static layer texture and the marker pixmaps
      */
-    public TextureRegion generateMap() {
-        if (textureCache != null) {
-            textureCache.getTexture().dispose();
+    public void dispose() {
+        if (staticLayer != null) {
+            staticLayer.getTexture().dispose();
+            staticLayer = null;
+        }
+        if (planetPix != null) {
+            planetPix.dispose();
+            goalPix.dispose();
+            checkpointPix.dispose();
+            planetPix = null;
         }
-        textureCache = new TextureRegion(new Texture(pmap));
-        return textureCache;
     }
 
     /**
@@ -216,21 +260,17 @@ public class Minimap extends ScreenViewport {
      * @param directory
      */
     public void gatherAssets(AssetDirectory directory) {
-        TextureRegion shipTexture = new TextureRegion(directory.getEntry("minimap:ship", Texture.class));
+        shipTexture = new TextureRegion(directory.getEntry("minimap:ship", Texture.class));
         TextureRegion planetTexture = new TextureRegion(directory.getEntry("minimap:planet", Texture.class));
         TextureRegion goalTexture = new TextureRegion(directory.getEntry("minimap:goal", Texture.class));
         TextureRegion entryTexture = new TextureRegion(directory.getEntry("minimap:goal", Texture.class));
         TextureRegion checkpointTexture = new TextureRegion(directory.getEntry("minimap:checkpoint", Texture.class));
 
-        TextureData shipTexData = shipTexture.getTexture().getTextureData();
         TextureData planetTexData = planetTexture.getTexture().getTextureData();
         TextureData goalTexData = goalTexture.getTexture().getTextureData();
         TextureData entryTexData = entryTexture.getTexture().getTextureData();
         TextureData checkpointTexData = checkpointTexture.getTexture().getTextureData();
 
-        if (!shipTexData.isPrepared()) {
-            shipTexData.prepare();
-        }
         if (!planetTexData.isPrepared()) {
             planetTexData.prepare();
         }
@@ -243,7 +283,6 @@ public class Minimap extends ScreenViewport {
         if (!checkpointTexData.isPrepared()) {
             checkpointTexData.prepare();
         }
-        shipPix = shipTexData.consumePixmap();
         goalPix = goalTexData.consumePixmap();
         planetPix = planetTexData.consumePixmap();
         entryPix = goalPix;
@@ -0,0 +1,252 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonValue;
+
+import java.util.Random;
+
+/**
+ * The particles of a level, from every emitter, in one set of primitive arrays.
+ *
+ * Emitters are declared in the "emitters" section of the rocket constants. A world emitter
+ * sprays from the ship position in world pixels, like the exhaust. A screen emitter has one or
+ * more fixed sources relative to the centre of the screen, like the ambient specks.
+ *
+ * Live particles are kept packed at the front of the arrays, and a dying particle is replaced
+ * by the last live one. Updating and drawing therefore only touch live particles, and nothing
+ * is allocated after construction.
+ */
+public class ParticleSystem {
+    /** A source of particles, with the settings shared by everything it emits */
+    public static class Emitter {
+        /** The name of the emitter in the constants */
+        private final String name;
+        /** The number of steps a particle lives, at least 1 */
+        private final int lifespan;
+        /** The number of steps between particles */
+        private final int cooldownTime;
+        /** The draw scale of a particle texture */
+        private final float size;
+        /**
+         * The most particles this emitter may have alive at once, for each of its sources. The
+         * constants keep the sizes of the old pools: 600 for the exhaust and 3 for each ambient
+         * source.
+         */
+        private final int max;
+        /** Standard deviation of the direction of a particle around the emitter angle */
+        private final float spread;
+        /** Whether the particles stay put on the screen instead of in the world */
+        private final boolean screen;
+        /** The source of a screen emitter, relative to the centre of the screen */
+        private final float sourceX;
+        private final float sourceY;
+
+        /** The direction particles drift in, in radians */
+        private float angle;
+        /** Whether the emitter is spraying */
+        private boolean active;
+        /** Steps until the next particle */
+        private int cooldown;
+        /** The number of live particles from this emitter */
+        private int count;
+
+        private Emitter(JsonValue data, boolean screen, float sourceX, float sourceY) {
+            name = data.name();
+            lifespan = data.getInt("lifespan", 0);
+            if (lifespan <= 0) {
+                throw new GdxRuntimeException("Emitter '" + name + "' needs a positive lifespan");
+            }
+            cooldownTime = data.getInt("cooldown", 0);
+            size = data.getFloat("size", 0);
+            max = data.getInt("max", 0);
+            spread = data.getFloat("spread", 0);
+            active = data.getBoolean("active", true);
+            this.screen = screen;
+            this.sourceX = sourceX;
+            this.sourceY = sourceY;
+        }
+
+        /**
+         * Sets the direction particles drift in. This turns live particles as well.
+         *
+         * @param value the angle in radians
+         */
+        public void setAngle(float value) {
+            angle = value;
+        }
+
+        /**
+         * Sets whether the emitter is spraying. Live particles are unaffected.
+         *
+         * @param value whether to emit new particles
+         */
+        public void setActive(boolean value) {
+            active = value;
+        }
+    }
+
+    /** The emitters, in the order of the constants file */
+    private final Array<Emitter> emitters = new Array<>();
+
+    /** Particle state, packed at the front of each array */
+    private final float[] posX;
+    private final float[] posY;
+    /** Direction of each particle relative to its emitter angle */
+    private final float[] turn;
+    /** Steps left to live */
+    private final int[] life;
+    /** The index of the emitter of each particle */
+    private final int[] owner;
+    /** The number of live particles */
+    private int live;
+
+    /** The particle image, drawn centred */
+    private TextureRegion texture;
+    /** Reused tint so that fading particles do not allocate */
+    private final Color tint = new Color(Color.WHITE);
+    private final Random random = new Random();
+
+    /**
+     * Creates the emitters declared in the constants
+     *
+     * @param data the "emitters" section, one child per emitter
+     */
+    public ParticleSystem(JsonValue data) {
+        int capacity = 0;
+        for (JsonValue entry = data.child; entry != null; entry = entry.next) {
+            JsonValue sources = entry.get("sources");
+            if (sources == null) {
+                emitters.add(new Emitter(entry, false, 0, 0));
+                capacity += entry.getInt("max", 0);
+            } else {
+                for (JsonValue source = sources.child; source != null; source = source.next) {
+                    emitters.add(new Emitter(entry, true, source.getFloat(0), source.getFloat(1)));
+                    capacity += entry.getInt("max", 0);
+                }
+            }
+        }
+        posX = new float[capacity];
+        posY = new float[capacity];
+        turn = new float[capacity];
+        life = new int[capacity];
+        owner = new int[capacity];
+    }
+
+    /**
+     * Returns the emitter with the given name. Screen emitters with several sources return
+     * their first source.
+     *
+     * @param name the name of the emitter in the constants
+     *
+     * @return the emitter, or null if there is none
+     */
+    public Emitter getEmitter(String name) {
+        for (Emitter e : emitters) {
+            if (e.name.equals(name)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    public void setTexture(TextureRegion value) {
+        texture = value;
+    }
+
+    /** Removes every particle */
+    public void clear() {
+        live = 0;
+        for (Emitter e : emitters) {
+            e.count = 0;
+            e.cooldown = 0;
+        }
+    }
+
+    /**
+     * Advances every particle one step, then lets the emitters spray
+     *
+     * @param shipPos the ship position in world pixels, where world emitters spray from
+     */
+    public void update(Vector2 shipPos) {
+        int i = 0;
+        while (i < live) {
+            Emitter e = emitters.get(owner[i]);
+            float a = turn[i] + e.angle;
+            posX[i] -= (float) Math.cos(a);
+            posY[i] += (float) Math.sin(a);
+            if (--life[i] <= 0) {
+                e.count--;
+                kill(i);
+            } else {
+                i++;
+            }
+        }
+
+        for (int j = 0; j < emitters.size; j++) {
+            Emitter e = emitters.get(j);
+            if (e.cooldown == 0 && e.active) {
+                if (e.count < e.max) {
+                    spawn(e, j, e.screen ? 0 : shipPos.x, e.screen ? 0 : shipPos.y);
+                }
+                e.cooldown = e.cooldownTime;
+            } else if (e.cooldown > 0) {
+                e.cooldown--;
+            }
+        }
+    }
+
+    private void spawn(Emitter e, int index, float x, float y) {
+        posX[live] = x;
+        posY[live] = y;
+        turn[live] = (float) (e.spread * random.nextGaussian());
+        life[live] = e.lifespan;
+        owner[live] = index;
+        e.count++;
+        live++;
+    }
+
+    /** Moves the last live particle into the slot of a dead one */
+    private void kill(int i) {
+        live--;
+        posX[i] = posX[live];
+        posY[i] = posY[live];
+        turn[i] = turn[live];
+        life[i] = life[live];
+        owner[i] = owner[live];
+    }
+
+    /**
+     * Draws every live particle, fading out over its lifespan. The canvas must be between
+     * begin and end with no camera transform.
+     *
+     * @param canvas  Drawing context
+     * @param shipPos the ship position in world pixels, which is drawn at the centre of the screen
+     * @param viewLag how far the view trails the ship, see LevelMode
+     */
+    public void draw(GameCanvas canvas, Vector2 shipPos, Vector2 viewLag) {
+        if (texture == null) {
+            return;
+        }
+        float cx = canvas.getWidth() / 2;
+        float cy = canvas.getHeight() / 2;
+        for (int i = 0; i < live; i++) {
+            Emitter e = emitters.get(owner[i]);
+            float x, y;
+            if (e.screen) {
+                x = cx + e.sourceX + posX[i];
+                y = cy + e.sourceY + posY[i];
+            } else {
+                x = cx + posX[i] - shipPos.x + viewLag.x;
+                y = cy + posY[i] - shipPos.y + viewLag.y;
+            }
+            float w = texture.getRegionWidth() * e.size;
+            float h = texture.getRegionHeight() * e.size;
+            tint.a = (float) life[i] / e.lifespan;
+            canvas.draw(texture, tint, w / 2, h / 2, x, y, w, h);
+        }
+    }
+}
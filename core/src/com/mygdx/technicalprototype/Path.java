@@ -3,72 +3,173 @@ package com.mygdx.technicalprototype;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
-import com.mygdx.technicalprototype.util.Helper;
-import org.w3c.dom.Text;
+import com.badlogic.gdx.utils.Array;
+
+import com.mygdx.technicalprototype.util.PathCache;
+import com.mygdx.technicalprototype.util.TrajectoryBuffer;
+import com.mygdx.technicalprototype.util.TrajectorySegments;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 
 public class Path {
     private final int MAX_POINTS = 5000;
     public static final int ORBIT_DISTANCE = 500;
     public static final float ORBIT_DIST_FACTOR = 1.7f;
 
-    public ArrayList<Vector2> forwardPts = new ArrayList<>();
-    public ArrayList<Vector2> backwardPts = new ArrayList<>();
-    public ArrayList<Vector2> forwardVels = new ArrayList<>();
-    public ArrayList<Vector2> backwardVels = new ArrayList<>();
+    /** The whole trajectory, both behind and ahead of the ship */
+    private final TrajectoryBuffer trajectory = new TrajectoryBuffer();
     public Vector2 lastOrbitPt = null;
     public Vector2 lastOrbitVel = null;
     public Vector2 secondLastOrbitPt = null;
     public Vector2 secondLastOrbitVel = null;
     public int index = -1;
+    /**
+     * Points kept ahead of and behind the ship by the last recalculatePath, or -1 where the
+     * resize did not reach the path
+     */
+    public int keptForward = -1;
+    public int keptBackward = -1;
     public TextureRegion pixel;
+    /** Paths already calculated from scratch, or null to always calculate them */
+    private PathCache cache;
+    /** Scratch vector for planet positions so the integration loops do not allocate */
+    private final Vector2 center = new Vector2();
+    /** Scratch vectors for the integration state */
+    private final Vector2 position = new Vector2();
+    private final Vector2 velocity = new Vector2();
+    /** Storage for the edge of the orbit, which the lastOrbit fields point at once it is found */
+    private final Vector2 orbitPt = new Vector2();
+    private final Vector2 orbitVel = new Vector2();
+    private final Vector2 secondOrbitPt = new Vector2();
+    private final Vector2 secondOrbitVel = new Vector2();
+    /**
+     * Points calculateLastTwoPointsBackwards puts in front of the backwards path, of which the
+     * first extensionSize are in use. The vectors are kept between calls.
+     */
+    private final ArrayList<Vector2> extension = new ArrayList<>();
+    private int extensionSize;
 
     public Path() {
     }
 
+    /**
+     * Sets the cache calculatePath looks paths up in. The cache must only be used on one thread.
+     *
+     * @param cache the cache, or null to always calculate paths
+     */
+    public void setCache(PathCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * Calculates the path of the ship using the gravitational force between the ship and the bodies,
      * but only when the ship is within the radius of the bodies. Otherwise, the ship moves straight.
      * 
      * @param forwardPathPos position of the path
      * @param forwardPathVel velocity of the path
-     * @param bodies List of bodies in the simulation
+     * @param bodies the planets of the level
      */
-    public void calculatePath(Vector2 forwardPathPos, Vector2 forwardPathVel, Vector2 backwardPathPos, Vector2 backwardPathVel, ArrayList<Planet> bodies) {
-        Vector2 forwardPathPosition = new Vector2(forwardPathPos);
-        Vector2 backwardPathPosition = new Vector2(backwardPathPos);
-        Vector2 forwardPathVelocity = new Vector2(forwardPathVel);
-        Vector2 backwardPathVelocity = new Vector2(-backwardPathVel.x, -backwardPathVel.y);
-        forwardPts.clear();
-        forwardPts.add(new Vector2(forwardPathPosition));
-        backwardPts.clear();
-        backwardPts.add(new Vector2(backwardPathPosition));
-        forwardVels.clear();
-        forwardVels.add(new Vector2(forwardPathVelocity));
-        backwardVels.clear();
-        backwardVels.add(new Vector2(backwardPathVelocity));
-
-        for (int i = 0; i < MAX_POINTS; i++) {
-            // calculate gravity attraction if planets nearby
-            for (Planet body : bodies) {
-                if (forwardPathPosition.dst(body.getPos()) <= body.getRadiusAfterChange() * ORBIT_DIST_FACTOR) {
-                    addOrbitingPath(forwardPathPosition, forwardPathVelocity, body, forwardPts, forwardVels, false);
-                }
-                if (backwardPathPosition.dst(body.getPos()) <= body.getRadiusAfterChange() * ORBIT_DIST_FACTOR) {
-                    addOrbitingPath(backwardPathPosition, backwardPathVelocity, body, backwardPts, backwardVels, true);
-                }
+    public void calculatePath(Vector2 forwardPathPos, Vector2 forwardPathVel, Vector2 backwardPathPos, Vector2 backwardPathVel, PlanetGrid bodies) {
+        float[] key = null;
+        if (cache != null) {
+            key = cacheKey(forwardPathPos, forwardPathVel, backwardPathPos, backwardPathVel, bodies);
+            TrajectoryBuffer cached = cache.get(key);
+            if (cached != null) {
+                trajectory.set(cached);
+                return;
+            }
+        }
+        trajectory.clear();
+        trajectory.addForward(forwardPathPos.x, forwardPathPos.y, forwardPathVel.x, forwardPathVel.y);
+        trajectory.addBackward(backwardPathPos.x, backwardPathPos.y, -backwardPathVel.x, -backwardPathVel.y);
+
+        position.set(forwardPathPos);
+        velocity.set(forwardPathVel);
+        integrate(position, velocity, MAX_POINTS, bodies, false);
+        position.set(backwardPathPos);
+        velocity.set(-backwardPathVel.x, -backwardPathVel.y);
+        integrate(position, velocity, MAX_POINTS, bodies, true);
+        if (cache != null) {
+            cache.put(key, trajectory);
+        }
+    }
+
+    /**
+     * Returns everything a path calculated from scratch depends on: the state it starts from
+     * and the radius of every planet, in level order
+     */
+    private float[] cacheKey(Vector2 forwardPathPos, Vector2 forwardPathVel, Vector2 backwardPathPos, Vector2 backwardPathVel, PlanetGrid bodies) {
+        ArrayList<Planet> planets = bodies.getPlanets();
+        float[] key = new float[8 + planets.size()];
+        key[0] = forwardPathPos.x;
+        key[1] = forwardPathPos.y;
+        key[2] = forwardPathVel.x;
+        key[3] = forwardPathVel.y;
+        key[4] = backwardPathPos.x;
+        key[5] = backwardPathPos.y;
+        key[6] = backwardPathVel.x;
+        key[7] = backwardPathVel.y;
+        for (int i = 0; i < planets.size(); i++) {
+            key[8 + i] = planets.get(i).getBoxRadiusAfterChange();
+        }
+        return key;
+    }
+
+    /**
+     * Steps the path on from the given state, turning into an orbit whenever it comes near a planet
+     *
+     * @param pathPosition the position to continue from, updated in place
+     * @param pathVelocity the velocity to continue with, updated in place
+     * @param steps the number of free-flight steps to take, or -1 to stop at MAX_POINTS points
+     * @param bodies the planets of the level
+     * @param back whether this is the backwards path
+     */
+    private void integrate(Vector2 pathPosition, Vector2 pathVelocity, int steps, PlanetGrid bodies, boolean back) {
+        for (int i = 0; steps < 0 ? size(back) < MAX_POINTS : i < steps; i++) {
+            // calculate gravity attraction if planets nearby, in level order
+            Planet body = nextInReach(pathPosition, bodies, -1);
+            while (body != null) {
+                addOrbitingPath(pathPosition, pathVelocity, body, back);
+                body = nextInReach(pathPosition, bodies, body.getGridIndex());
             }
             // move forwards if no nearby planets
-            forwardPathPosition.add(forwardPathVelocity);
-            forwardPts.add(new Vector2(forwardPathPosition));
-            backwardPathPosition.add(backwardPathVelocity);
-            backwardPts.add(new Vector2(backwardPathPosition));
+            pathPosition.add(pathVelocity);
+            push(pathPosition.x, pathPosition.y, pathVelocity.x, pathVelocity.y, back, TrajectorySegments.LINE);
+        }
+    }
+
+    /**
+     * Returns the first planet after the given one in level order whose orbit range holds a point.
+     * An orbit moves the path, so the lookup is repeated from the new point after each one.
+     *
+     * @param pos the path point in world pixels
+     * @param bodies the planets of the level
+     * @param after the level index to search after, or -1 to search from the start
+     * @return the planet capturing the point, or null if there is none
+     */
+    private Planet nextInReach(Vector2 pos, PlanetGrid bodies, int after) {
+        Array<Planet> near = bodies.nearPixel(pos);
+        if (near == null) {
+            return null;
+        }
+        for (int i = 0; i < near.size; i++) {
+            Planet body = near.get(i);
+            if (body.getGridIndex() > after && withinReach(pos, body, body.getRadiusAfterChange())) {
+                return body;
+            }
+        }
+        return null;
+    }
+
+    private int size(boolean back) {
+        return back ? trajectory.backwardSize() : trajectory.forwardSize();
+    }
 
-            forwardVels.add(new Vector2(forwardPathVelocity));
-            backwardVels.add(new Vector2(backwardPathVelocity));
+    private void push(float x, float y, float vx, float vy, boolean back, int kind) {
+        if (back) {
+            trajectory.addBackward(x, y, vx, vy, kind);
+        } else {
+            trajectory.addForward(x, y, vx, vy, kind);
         }
     }
 
@@ -78,79 +179,90 @@ public class Path {
      * @param pathPosition the position of the path
      * @param pathVelocity the velocity of the path (direction)
      * @param body the body of the planet
-     * @param posPts the ArrayList of positions along the path
-     * @param velPts the ArrayList of velocities along the path
+     * @param back whether the orbit is added to the backwards path
      */
-    private void addOrbitingPath(Vector2 pathPosition, Vector2 pathVelocity, Planet body, ArrayList<Vector2> posPts, ArrayList<Vector2> velPts, boolean back) {
-        Vector2 planetCenter = body.getPos();
+    private void addOrbitingPath(Vector2 pathPosition, Vector2 pathVelocity, Planet body, boolean back) {
+        Vector2 planetCenter = body.getPos(center);
+        float radius = body.getRadiusAfterChange();
         float angle, dist, posX = pathPosition.x, posY = pathPosition.y, newPosX, newPosY;
         // angle that the ship is coming in
         angle = (float) ((Math.toDegrees(Math.atan2(posX - planetCenter.x, posY - planetCenter.y)) + 630.0) % 360.0);
         // distance along the orbit that the ship is in
-        dist = (float) (angle * body.getRadiusAfterChange() * 2 * Math.PI / 360);
+        dist = (float) (angle * radius * 2 * Math.PI / 360);
         // calculates if the ship should turn clockwise in the orbit
         // rightTurn = 1 indicates true (Python truthy), -1 indicates false
-        Vector2 toPlanetCenter = new Vector2(planetCenter).sub(pathPosition);
-        Vector2 pathVelocityVector = Helper.boxCoordsToWorldCoords(body.getDrawScale(), new Vector2(pathVelocity)).scl(toPlanetCenter.len());
-        float newPosXClock = (float)(planetCenter.x + body.getRadiusAfterChange() * Math.cos(- (dist + 0.5) / body.getRadiusAfterChange()) * ORBIT_DIST_FACTOR);
-        float newPosYClock = (float)(planetCenter.y + body.getRadiusAfterChange() * Math.sin(- (dist + 0.5) / body.getRadiusAfterChange()) * ORBIT_DIST_FACTOR);
-        float newPosXAnti = (float)(planetCenter.x + body.getRadiusAfterChange() * Math.cos(- (dist - 0.5) / body.getRadiusAfterChange()) * ORBIT_DIST_FACTOR);
-        float newPosYAnti = (float)(planetCenter.y + body.getRadiusAfterChange() * Math.sin(- (dist - 0.5) / body.getRadiusAfterChange()) * ORBIT_DIST_FACTOR);
+        float toCenter = Vector2.dst(planetCenter.x, planetCenter.y, posX, posY);
+        float velX = pathVelocity.x * body.getDrawScale().x * toCenter;
+        float velY = pathVelocity.y * body.getDrawScale().y * toCenter;
+        float newPosXClock = (float)(planetCenter.x + radius * Math.cos(- (dist + 0.5) / radius) * ORBIT_DIST_FACTOR);
+        float newPosYClock = (float)(planetCenter.y + radius * Math.sin(- (dist + 0.5) / radius) * ORBIT_DIST_FACTOR);
+        float newPosXAnti = (float)(planetCenter.x + radius * Math.cos(- (dist - 0.5) / radius) * ORBIT_DIST_FACTOR);
+        float newPosYAnti = (float)(planetCenter.y + radius * Math.sin(- (dist - 0.5) / radius) * ORBIT_DIST_FACTOR);
         int clockwise;
-        if (new Vector2(newPosXClock, newPosYClock).sub(pathVelocityVector).len() < new Vector2(newPosXAnti, newPosYAnti).sub(pathVelocityVector).len()) {
+        if (Vector2.dst2(newPosXClock, newPosYClock, velX, velY) < Vector2.dst2(newPosXAnti, newPosYAnti, velX, velY)) {
             clockwise = 1;
         } else {
             clockwise = -1;
         }
+        float centerX = planetCenter.x, centerY = planetCenter.y;
+        float lastVelX = 0, lastVelY = 0;
         // adding to dist makes clockwise turns
         for (int i = 0; i < ORBIT_DISTANCE; i++) {
             dist += (float)(clockwise * 0.5);
-            newPosX = (float)(planetCenter.x + body.getRadiusAfterChange() * Math.cos(- dist / body.getRadiusAfterChange()) * ORBIT_DIST_FACTOR);
-            newPosY = (float)(planetCenter.y + body.getRadiusAfterChange() * Math.sin(- dist / body.getRadiusAfterChange()) * ORBIT_DIST_FACTOR);
-            velPts.add(new Vector2(newPosX - posX, newPosY - posY));
+            newPosX = (float)(centerX + radius * Math.cos(- dist / radius) * ORBIT_DIST_FACTOR);
+            newPosY = (float)(centerY + radius * Math.sin(- dist / radius) * ORBIT_DIST_FACTOR);
+            lastVelX = newPosX - posX;
+            lastVelY = newPosY - posY;
             posX = newPosX;
             posY = newPosY;
-            posPts.add(new Vector2(posX, posY));
+            push(posX, posY, lastVelX, lastVelY, back, TrajectorySegments.ARC);
         }
-        Vector2 lastVel = velPts.get(velPts.size() - 1);
-        Vector2 lastPt = new Vector2(0, 0);
+        // the path carries on from the second to last of these points, as it always has, so the
+        // first point after the orbit repeats the last one here
+        float exitX = posX, exitY = posY;
         for (int i = 0; i < 100; i++) {
-            lastPt = posPts.get(posPts.size() - 1);
-            velPts.add(new Vector2(lastVel));
-            posPts.add(new Vector2(lastPt.x + lastVel.x, lastPt.y + lastVel.y));
+            exitX = posX;
+            exitY = posY;
+            posX += lastVelX;
+            posY += lastVelY;
+            push(posX, posY, lastVelX, lastVelY, back, TrajectorySegments.LINE);
         }
-        pathPosition.set(lastPt);
-        pathVelocity.set(lastVel);
+        pathPosition.set(exitX, exitY);
+        pathVelocity.set(lastVelX, lastVelY);
+    }
+
+    /**
+     * Returns whether a path point lies inside the orbit range of a planet of the given radius
+     *
+     * @param pos the path point in world pixels
+     * @param body the planet to test against
+     * @param radius the planet radius in pixel units
+     * @return true if the point would be captured by the planet
+     */
+    private boolean withinReach(Vector2 pos, Planet body, float radius) {
+        Vector2 c = body.getPos(center);
+        float reach = radius * ORBIT_DIST_FACTOR;
+        return Vector2.dst2(pos.x, pos.y, c.x, c.y) <= reach * reach;
     }
 
+    /**
+     * Moves the ship along the path. Positive amounts move forwards, negative ones backwards.
+     *
+     * @param amount number of points to move by
+     */
     public void moveForward(int amount) {
-        if (amount < 0) {
-            for (int i = 0; i < -amount; i++) {
-                Vector2 backwardsVel = backwardVels.remove(0);
-                Vector2 backwardsPt = backwardPts.remove(0);
-                forwardPts.add(0, backwardsPt);
-                forwardVels.add(0, new Vector2(-backwardsVel.x, -backwardsVel.y));
-            }
-        } else if (amount > 0) {
-            for (int i = 0; i < amount; i++) {
-                Vector2 forwardsVel = forwardVels.remove(0);
-                Vector2 forwardsPt = forwardPts.remove(0);
-                backwardPts.add(0, forwardsPt);
-                backwardVels.add(0, new Vector2(-forwardsVel.x, -forwardsVel.y));
-            }
-        }
+        trajectory.moveForward(amount);
     }
 
     public void calculateLastTwoPoints(Planet p) {
-        for (int i = 0; i < backwardPts.size(); i++) {
-            if (backwardPts.get(i + 1).dst(p.getPos()) > p.getRadiusAfterChange() * ORBIT_DIST_FACTOR + 1) {
-                lastOrbitPt = backwardPts.get(i);
-                lastOrbitVel = new Vector2(backwardVels.get(i)).scl(-1);
-                secondLastOrbitPt = backwardPts.get(i + 2);
-                secondLastOrbitVel = new Vector2(backwardVels.get(i + 2)).scl(-1);
-//                LevelMode.debugPts.clear();
-//                LevelMode.debugPts.add(new Vector2(lastOrbitPt));
-//                LevelMode.debugPts.add(new Vector2(secondLastOrbitPt));
+        float reach = p.getRadiusAfterChange() * ORBIT_DIST_FACTOR + 1;
+        Vector2 planetCenter = p.getPos(center);
+        for (int i = 0; i < trajectory.backwardSize() - 2; i++) {
+            if (Vector2.dst(trajectory.backwardX(i + 1), trajectory.backwardY(i + 1), planetCenter.x, planetCenter.y) > reach) {
+                lastOrbitPt = trajectory.getBackward(i, orbitPt);
+                lastOrbitVel = trajectory.getBackwardVel(i, orbitVel).scl(-1);
+                secondLastOrbitPt = trajectory.getBackward(i + 2, secondOrbitPt);
+                secondLastOrbitVel = trajectory.getBackwardVel(i + 2, secondOrbitVel).scl(-1);
                 index = i;
                 if (index >= ORBIT_DISTANCE - 10) {
                     index -= 10;
@@ -161,124 +273,206 @@ public class Path {
     }
 
     public void calculateLastTwoPointsBackwards(Planet p) {
-        for (int i = 0; i < backwardPts.size() - 1; i++) {
-            if (backwardVels.get(0).equals(backwardVels.get(1))) {
-                Vector2 lastPos = new Vector2(backwardPts.get(0));
-                Vector2 lastVel = new Vector2(backwardVels.get(0)).scl(-1);
-                index = i;
-                if (index >= ORBIT_DISTANCE - 10) {
-                    index -= 10;
-                }
-                while (backwardPts.get(0).dst(p.getPos()) > p.getRadiusAfterChange() * ORBIT_DIST_FACTOR &&
-                    backwardPts.get(0).dst(p.getPos()) < backwardPts.get(1).dst(p.getPos())) {
-                    lastPos.add(lastVel);
-                    backwardPts.add(0, new Vector2(lastPos));
-                    backwardVels.add(0, new Vector2(lastVel).scl(-1));
+        Vector2 planetCenter = p.getPos(center);
+        float reach = p.getRadiusAfterChange() * ORBIT_DIST_FACTOR;
+        int size = trajectory.backwardSize();
+        // skip ahead to the first point of the backwards path that is in free flight
+        int start = 0;
+        while (start < size - 1 - start && !trajectory.backwardVelsEqual(start, start + 1)) {
+            start++;
+        }
+        // extend the free flight towards the planet until it reaches the orbit, for as long as
+        // every step brings it closer
+        extensionSize = 0;
+        if (start < size - 1 - start) {
+            index = start;
+            if (index >= ORBIT_DISTANCE - 10) {
+                index -= 10;
+            }
+            Vector2 lastPos = trajectory.getBackward(start, position);
+            Vector2 lastVel = trajectory.getBackwardVel(start, velocity).scl(-1);
+            float front = lastPos.dst(planetCenter);
+            float next = Vector2.dst(trajectory.backwardX(start + 1), trajectory.backwardY(start + 1), planetCenter.x, planetCenter.y);
+            while (front > reach && front < next) {
+                lastPos.add(lastVel);
+                if (extensionSize == extension.size()) {
+                    extension.add(new Vector2());
                 }
-                break;
+                extension.get(extensionSize++).set(lastPos);
+                next = front;
+                front = lastPos.dst(planetCenter);
             }
-            backwardPts.remove(0);
-            backwardVels.remove(0);
         }
 
-        for (int i = 0; i < backwardPts.size() - 2; i++) {
-            if (backwardPts.get(i + 1).dst(p.getPos()) > p.getRadiusAfterChange() * ORBIT_DIST_FACTOR + 1) {
-                lastOrbitPt = backwardPts.get(i);
-                lastOrbitVel = new Vector2(backwardVels.get(i)).scl(-1);
-                secondLastOrbitPt = backwardPts.get(i + 2);
-                secondLastOrbitVel = new Vector2(backwardVels.get(i + 2)).scl(-1);
+        int count = extensionSize + size - start;
+        for (int i = 0; i < count - 2; i++) {
+            if (backwardPoint(i + 1, start).dst(planetCenter) > reach + 1) {
+                lastOrbitPt = orbitPt.set(backwardPoint(i, start));
+                lastOrbitVel = backwardVel(i, start, orbitVel).scl(-1);
+                secondLastOrbitPt = secondOrbitPt.set(backwardPoint(i + 2, start));
+                secondLastOrbitVel = backwardVel(i + 2, start, secondOrbitVel).scl(-1);
                 return;
             }
         }
     }
 
-    public void addPath(Vector2 pathPosition, Vector2 pathVelocity, ArrayList<Planet> bodies) {
-        if (forwardPts.size() > MAX_POINTS + 500) {
-            forwardPts.subList(forwardPts.size() - 50, forwardPts.size()).clear();
-            forwardVels.subList(forwardVels.size() - 50, forwardVels.size()).clear();
-        }
-        if (backwardPts.size() > MAX_POINTS + 500) {
-            backwardPts.subList(backwardPts.size() - 50, backwardPts.size()).clear();
-            backwardVels.subList(backwardVels.size() - 50, backwardVels.size()).clear();
+    /**
+     * Returns a point of the backwards path with the extension from
+     * calculateLastTwoPointsBackwards in front of it.
+     */
+    private Vector2 backwardPoint(int i, int start) {
+        int extra = extensionSize;
+        if (i < extra) {
+            return extension.get(extra - 1 - i);
         }
-        Vector2 forwardPathPosition = forwardPts.get(forwardPts.size() - 1);
-        Vector2 backwardPathPosition = backwardPts.get(backwardPts.size() - 1);
-        Vector2 forwardPathVelocity = forwardVels.get(forwardVels.size() - 1);
-        Vector2 backwardPathVelocity = backwardVels.get(backwardVels.size() - 1);
-        while (forwardPts.size() < MAX_POINTS) {
-            // calculate gravity attraction if planets nearby
-            for (Planet body : bodies) {
-                if (forwardPathPosition.dst(body.getPos()) < body.getRadiusAfterChange() * ORBIT_DIST_FACTOR) {
-                    addOrbitingPath(forwardPathPosition, forwardPathVelocity, body, forwardPts, forwardVels, false);
-                }
-            }
-            // move forwards if no nearby planets
-            forwardPathPosition.add(forwardPathVelocity);
-            forwardPts.add(new Vector2(forwardPathPosition));
+        return trajectory.getBackward(start + i - extra, position);
+    }
 
-            forwardVels.add(new Vector2(forwardPathVelocity));
-        }
-        while (backwardPts.size() < MAX_POINTS) {
-            // calculate gravity attraction if planets nearby
-            for (Planet body : bodies) {
-                if (backwardPathPosition.dst(body.getPos()) < body.getRadiusAfterChange() * ORBIT_DIST_FACTOR) {
-                    addOrbitingPath(backwardPathPosition, backwardPathVelocity, body, backwardPts, backwardVels, true);
-                }
-            }
-            // move forwards if no nearby planets
-            backwardPathPosition.add(backwardPathVelocity);
-            backwardPts.add(new Vector2(backwardPathPosition));
+    /**
+     * Returns the velocity at a point of the backwards path with the extension from
+     * calculateLastTwoPointsBackwards in front of it.
+     */
+    private Vector2 backwardVel(int i, int start, Vector2 out) {
+        int extra = extensionSize;
+        return trajectory.getBackwardVel(i < extra ? start : start + i - extra, out);
+    }
 
-            backwardVels.add(new Vector2(backwardPathVelocity));
+    public void addPath(Vector2 pathPosition, Vector2 pathVelocity, PlanetGrid bodies) {
+        if (trajectory.forwardSize() > MAX_POINTS + 500) {
+            trajectory.truncateForward(trajectory.forwardSize() - 50);
+        }
+        if (trajectory.backwardSize() > MAX_POINTS + 500) {
+            trajectory.truncateBackward(trajectory.backwardSize() - 50);
         }
+        extendPath(bodies, false);
+        extendPath(bodies, true);
     }
 
     /**
-     * Given the Vector2 velocity, scales it down such that the magnitude
-     * is 0.5
-     * 
-     * @param velocity Vector2 to scale down
-     * @return Scaled Vector2
+     * Updates the path after a single planet has changed size.
+     *
+     * Only the part of the path downstream of the first point that either the old or the new
+     * orbit range of the planet reaches is thrown away and integrated again. Everything before
+     * that point cannot be influenced by the resize, so it is kept as is.
+     *
+     * @param changed the planet that was resized
+     * @param previousRadius the radius after change of the planet before the resize, in pixel units
+     * @param bodies the planets of the level
      */
-    private Vector2 scaleVelocity(Vector2 velocity) {
-        float magnitude = velocity.len();
-        return velocity.scl(0.5f/magnitude);
+    public void recalculatePath(Planet changed, float previousRadius, PlanetGrid bodies) {
+        float radius = Math.max(previousRadius, changed.getRadiusAfterChange()) + 1;
+        keptForward = truncateAt(firstAffected(changed, radius, false), bodies, false);
+        keptBackward = truncateAt(firstAffected(changed, radius, true), bodies, true);
+        extendPath(bodies, false);
+        extendPath(bodies, true);
+    }
+
+    private Vector2 point(int i, boolean back) {
+        return back ? trajectory.getBackward(i, position) : trajectory.getForward(i, position);
     }
 
     /**
-     * Returns list of forwards points that draw out the path.
-     *
-     * @return list of Vector2 objects representing the points that draw out the path
+     * Returns the index of the first point of the path inside the reach of the planet,
+     * or -1 if the path never comes close to it. Only the points of segments that pass near
+     * the planet are tested.
      */
-    public ArrayList<Vector2> getAllForwardPoints() {
-        return forwardPts;
+    private int firstAffected(Planet body, float radius, boolean back) {
+        TrajectorySegments segments = trajectory.getSegments();
+        int head = trajectory.getHead();
+        Vector2 c = body.getPos(center);
+        float cx = c.x, cy = c.y;
+        float reach = radius * ORBIT_DIST_FACTOR;
+        float reach2 = reach * reach;
+        int first = segments.find(back ? head - 1 : head);
+        if (first < 0) {
+            return -1;
+        }
+        int step = back ? -1 : 1;
+        for (int k = first; k >= 0 && k < segments.size(); k += step) {
+            if (segments.distance2(k, cx, cy) > reach2) {
+                continue;
+            }
+            if (back) {
+                for (int i = Math.min(segments.getTo(k), head) - 1; i >= segments.getFrom(k); i--) {
+                    if (Vector2.dst2(trajectory.getX(i), trajectory.getY(i), cx, cy) <= reach2) {
+                        return head - 1 - i;
+                    }
+                }
+            } else {
+                for (int i = Math.max(segments.getFrom(k), head); i < segments.getTo(k); i++) {
+                    if (Vector2.dst2(trajectory.getX(i), trajectory.getY(i), cx, cy) <= reach2) {
+                        return i - head;
+                    }
+                }
+            }
+        }
+        return -1;
     }
 
     /**
-     * Returns list of backwards points that draw out the path.
+     * Drops every point from index on. The cut is moved back until the last kept point is
+     * in free flight, so that integrating again from it gives the same result as before.
      *
-     * @return list of Vector2 objects representing the points that draw out the path
+     * @return the number of points kept, or -1 if index is -1 and nothing was dropped
      */
-    public ArrayList<Vector2> getAllBackwardPoints() {
-        return backwardPts;
+    private int truncateAt(int index, PlanetGrid bodies, boolean back) {
+        if (index < 0) {
+            return -1;
+        }
+        int last = index - 1;
+        while (last > 0 && insideAnyOrbit(point(last, back), bodies)) {
+            last--;
+        }
+        last = Math.max(last, 0);
+        if (back) {
+            trajectory.truncateBackward(last + 1);
+        } else {
+            trajectory.truncateForward(last + 1);
+        }
+        return last + 1;
+    }
+
+    private boolean insideAnyOrbit(Vector2 pos, PlanetGrid bodies) {
+        return nextInReach(pos, bodies, -1) != null;
     }
 
     /**
-     * Returns forwards velocities that draw out the path.
+     * Integrates the path onwards from its last point until it holds MAX_POINTS points
      *
-     * @return vector2 of the next velocity backwards movement
+     * @param bodies the planets of the level
+     * @param back whether this is the backwards path
      */
-    public ArrayList<Vector2> getAllForwardVels() {
-        return forwardVels;
+    private void extendPath(PlanetGrid bodies, boolean back) {
+        int last = size(back) - 1;
+        if (back) {
+            trajectory.getBackward(last, position);
+            trajectory.getBackwardVel(last, velocity);
+        } else {
+            trajectory.getForward(last, position);
+            trajectory.getForwardVel(last, velocity);
+        }
+        integrate(position, velocity, -1, bodies, back);
+    }
+
+    /**
+     * Given the Vector2 velocity, scales it down such that the magnitude
+     * is 0.5
+     * 
+     * @param velocity Vector2 to scale down
+     * @return Scaled Vector2
+     */
+    private Vector2 scaleVelocity(Vector2 velocity) {
+        float magnitude = velocity.len();
+        return velocity.scl(0.5f/magnitude);
     }
 
     /**
-     * Returns backwards velocities that draw out the path.
+     * Returns the trajectory around the ship. Forward points lead the ship, backward points trail it.
      *
-     * @return vector2 of the next velocity forwards movement
+     * @return the trajectory store backing this path
      */
-    public ArrayList<Vector2> getAllBackwardVels() {
-        return backwardVels;
+    public TrajectoryBuffer getTrajectory() {
+        return trajectory;
     }
 
 }
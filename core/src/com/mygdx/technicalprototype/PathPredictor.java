@@ -0,0 +1,428 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import com.mygdx.technicalprototype.util.TrajectoryBuffer;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Works out on a background thread what the path will be after the next planet resize, so that
+ * the frame the player resizes a planet on does not have to integrate the whole path again.
+ *
+ * A resize only ever grows or shrinks one planet by one step, and it is nearly always the
+ * selected planet or one close to the ship. While nothing changes, the predictor keeps the paths
+ * for both resizes of those planets ready. When a resize matches one of them, LevelMode copies
+ * the finished path in; any other resize integrates the path on the spot, as before.
+ *
+ * The worker never reads the planets of the level, which the frame changes as they animate. It
+ * runs on stand-in planets with a grid of their own and on a copy of the path, which are only
+ * brought up to date on the main thread while no job is running. A finished batch replaces the
+ * last one whole, and only if no resize happened while it ran.
+ */
+public class PathPredictor {
+    /** Number of planets whose resizes are predicted */
+    private static final int CANDIDATES = 4;
+    /** Seconds the worker thread waits for a job before it ends */
+    private static final long KEEP_ALIVE = 2;
+
+    /** One hypothetical resize and the path it gives */
+    private static class Prediction {
+        /** The level index of the planet */
+        int planet;
+        /** 1 to grow the planet, -1 to shrink it */
+        int change;
+        /** The radius after change the resize sets, in Box2D units */
+        float radius;
+        /** Whether the path could be predicted */
+        boolean valid;
+        /** The edge of the orbit the path is calculated from, when the ship is in one */
+        final Vector2 lastPt = new Vector2();
+        final Vector2 lastVel = new Vector2();
+        final Vector2 secondLastPt = new Vector2();
+        final Vector2 secondLastVel = new Vector2();
+        /** The absolute indices the head of the path may be at for the result to hold */
+        int low, high;
+        final TrajectoryBuffer result = new TrajectoryBuffer();
+    }
+
+    /** The predictions of one job, along with the path they were made from */
+    private static class Batch {
+        final Prediction[] predictions = new Prediction[2 * CANDIDATES];
+        int count;
+        /** The version of the predictor the batch was made for */
+        int version = -1;
+        /** Whether the ship was in an orbit */
+        boolean orbiting;
+        /** Absolute index and generation of the head of the live path */
+        int head;
+        int generation;
+        /** The range of heads every free flight prediction holds for */
+        int low, high;
+        /** Planets left out because they were animating, which cannot be resized yet */
+        final Planet[] waiting = new Planet[CANDIDATES];
+        int waitingCount;
+        /** The selected planet when the batch was made */
+        Planet selected;
+
+        Batch() {
+            for (int i = 0; i < predictions.length; i++) {
+                predictions[i] = new Prediction();
+            }
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    /** The change in radius of one resize step in pixel units */
+    private final float step;
+
+    /** The planets of the level, only ever read on the main thread */
+    private PlanetGrid planets;
+    /** Copies of the planets the worker resizes, in level order */
+    private final ArrayList<Planet> standIns = new ArrayList<>();
+    private PlanetGrid standInGrid;
+    /** The path the worker integrates, and the copy of the live path it starts from */
+    private final Path path = new Path();
+    private final TrajectoryBuffer snapshot = new TrajectoryBuffer();
+
+    /** The batch being worked on, and the last one finished */
+    private Batch pending = new Batch();
+    private Batch ready = new Batch();
+    private Future<?> job;
+    /** Bumped on every change that makes a batch out of date */
+    private int version;
+
+    private final Vector2 shipWorld = new Vector2();
+    private final Vector2 planetWorld = new Vector2();
+    private final Planet[] candidates = new Planet[CANDIDATES];
+
+    /**
+     * Creates a predictor with its worker thread
+     *
+     * @param step the change in radius of one resize step in pixel units
+     */
+    public PathPredictor(float step) {
+        this.step = step;
+        executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "path-predictor");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        // levels are not always disposed when the next one loads, so an idle worker goes away
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Starts predicting for the planets of a new level. Any batch made for the last one is dropped.
+     *
+     * @param planets the planets of the level
+     */
+    public void setPlanets(PlanetGrid planets) {
+        finish();
+        this.planets = planets;
+        standIns.clear();
+        for (Planet p : planets.getPlanets()) {
+            Planet standIn = new Planet(p.getWorldPosition(new Vector2()), p.getRadius() / p.getDrawScale().x,
+                    Vector2.Zero, p.getColor(), p.MAX_INCREASE, p.MAX_DECREASE, 0);
+            standIn.setDrawScale(p.getDrawScale());
+            standIn.setRadiusAfterChange(p.getBoxRadiusAfterChange());
+            standIns.add(standIn);
+        }
+        standInGrid = new PlanetGrid(standIns);
+        invalidate();
+    }
+
+    /** Drops every prediction. Called whenever a planet is resized or the path recalculated. */
+    public void invalidate() {
+        version++;
+    }
+
+    /**
+     * Collects the job that finished and starts a new one if the predictions went out of date.
+     * Called once a frame, after any resize.
+     *
+     * @param live     the path of the ship
+     * @param shipPos  the position of the ship body
+     * @param shipVel  the velocity of the ship
+     * @param selected the planet the keys resize
+     */
+    public void update(TrajectoryBuffer live, Vector2 shipPos, Vector2 shipVel, Planet selected) {
+        if (planets == null || standIns.isEmpty()) {
+            return;
+        }
+        if (job != null) {
+            if (!job.isDone()) {
+                return;
+            }
+            finish();
+            if (pending.version == version) {
+                Batch done = ready;
+                ready = pending;
+                pending = done;
+            }
+        }
+        if (isStale(live, shipVel, selected)) {
+            submit(live, shipPos, shipVel, selected);
+        }
+    }
+
+    /**
+     * Takes the predicted path for a resize made while the ship is in an orbit. The edge of the
+     * orbit must already have been found on the live path, and must be the one the prediction
+     * started from.
+     *
+     * @param planet the planet that was resized
+     * @param radius the radius after change it was given, in Box2D units
+     * @param live   the path of the ship, with the edge of the orbit found
+     *
+     * @return whether the path was taken; if not, it still has to be calculated
+     */
+    public boolean takeOrbit(Planet planet, float radius, Path live) {
+        if (ready.version != version || !ready.orbiting) {
+            return false;
+        }
+        Prediction p = find(planet, radius);
+        if (p == null || !p.lastPt.equals(live.lastOrbitPt) || !p.lastVel.equals(live.lastOrbitVel)
+                || !p.secondLastPt.equals(live.secondLastOrbitPt) || !p.secondLastVel.equals(live.secondLastOrbitVel)) {
+            return false;
+        }
+        live.getTrajectory().set(p.result);
+        return true;
+    }
+
+    /**
+     * Takes the predicted path for a resize made while the ship is in free flight. The path
+     * is moved on to where the ship is now.
+     *
+     * @param planet the planet that was resized
+     * @param radius the radius after change it was given, in Box2D units
+     * @param live   the path of the ship
+     *
+     * @return whether the path was taken; if not, it still has to be recalculated
+     */
+    public boolean takeRecalculated(Planet planet, float radius, TrajectoryBuffer live) {
+        if (ready.version != version || ready.orbiting || live.getGeneration() != ready.generation) {
+            return false;
+        }
+        Prediction p = find(planet, radius);
+        int head = live.getHead();
+        if (p == null || head < p.low || head > p.high
+                || head <= p.result.getStart() || head >= p.result.getEnd() - 1) {
+            return false;
+        }
+        live.set(p.result);
+        live.moveForward(head - ready.head);
+        return true;
+    }
+
+    /** Stops the worker thread */
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    /** Returns the valid prediction of the ready batch for a resize, or null if there is none */
+    private Prediction find(Planet planet, float radius) {
+        for (int i = 0; i < ready.count; i++) {
+            Prediction p = ready.predictions[i];
+            if (p.valid && p.planet == planet.getGridIndex() && p.radius == radius) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    /** Returns whether the ready batch no longer holds for the state of the level */
+    private boolean isStale(TrajectoryBuffer live, Vector2 shipVel, Planet selected) {
+        boolean orbiting = !live.forwardVelEquals(1, shipVel);
+        if (ready.version != version || ready.orbiting != orbiting || ready.selected != selected
+                || ready.generation != live.getGeneration()) {
+            return true;
+        }
+        for (int i = 0; i < ready.waitingCount; i++) {
+            if (!ready.waiting[i].isAnimating()) {
+                return true;
+            }
+        }
+        // the edge of the orbit moves on as the ship does, so orbits are predicted again and again
+        int head = live.getHead();
+        return orbiting ? head != ready.head : head < ready.low || head > ready.high;
+    }
+
+    /** Waits for the running job, if any */
+    private void finish() {
+        if (job == null) {
+            return;
+        }
+        try {
+            job.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new GdxRuntimeException("Path prediction failed", e.getCause());
+        } finally {
+            job = null;
+        }
+    }
+
+    /** Brings the stand-ins up to date and starts a job for the resizes near the ship */
+    private void submit(TrajectoryBuffer live, Vector2 shipPos, Vector2 shipVel, Planet selected) {
+        ArrayList<Planet> level = planets.getPlanets();
+        for (int i = 0; i < level.size(); i++) {
+            float radius = level.get(i).getBoxRadiusAfterChange();
+            if (standIns.get(i).getBoxRadiusAfterChange() != radius) {
+                standIns.get(i).setRadiusAfterChange(radius);
+            }
+        }
+        snapshot.set(live);
+
+        final Batch batch = pending;
+        batch.version = version;
+        batch.orbiting = !live.forwardVelEquals(1, shipVel);
+        batch.head = live.getHead();
+        batch.generation = live.getGeneration();
+        batch.selected = selected;
+        batch.count = 0;
+        batch.waitingCount = 0;
+        int found = nearest(selected, planets.toWorld(shipPos, shipWorld));
+        for (int i = 0; i < found; i++) {
+            Planet c = candidates[i];
+            if (c.isAnimating()) {
+                batch.waiting[batch.waitingCount++] = c;
+                continue;
+            }
+            for (int change = 1; change >= -1; change -= 2) {
+                Prediction p = batch.predictions[batch.count++];
+                p.planet = c.getGridIndex();
+                p.change = change;
+                p.radius = c.getResizedRadius(change, step);
+                p.valid = false;
+            }
+        }
+        job = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                predict(batch);
+            }
+        });
+    }
+
+    /**
+     * Fills candidates with the selected planet and the planets nearest the ship
+     *
+     * @return the number of candidates
+     */
+    private int nearest(Planet selected, Vector2 ship) {
+        ArrayList<Planet> level = planets.getPlanets();
+        int found = 0;
+        if (selected != null) {
+            candidates[found++] = selected;
+        }
+        while (found < CANDIDATES) {
+            Planet best = null;
+            float bestDist = Float.MAX_VALUE;
+            for (int i = 0; i < level.size(); i++) {
+                Planet p = level.get(i);
+                if (isCandidate(p, found)) {
+                    continue;
+                }
+                float d = p.getWorldPosition(planetWorld).dst2(ship);
+                if (d < bestDist) {
+                    best = p;
+                    bestDist = d;
+                }
+            }
+            if (best == null) {
+                break;
+            }
+            candidates[found++] = best;
+        }
+        return found;
+    }
+
+    private boolean isCandidate(Planet p, int found) {
+        for (int i = 0; i < found; i++) {
+            if (candidates[i] == p) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Runs on the worker thread; reads nothing but the stand-ins, the snapshot and the batch */
+    private void predict(Batch batch) {
+        TrajectoryBuffer trajectory = path.getTrajectory();
+        batch.low = Integer.MIN_VALUE;
+        batch.high = Integer.MAX_VALUE;
+        for (int i = 0; i < batch.count; i++) {
+            Prediction p = batch.predictions[i];
+            Planet standIn = standIns.get(p.planet);
+            float saved = standIn.getBoxRadiusAfterChange();
+            float previousRadius = standIn.getRadiusAfterChange();
+            standIn.setRadiusAfterChange(p.radius);
+            trajectory.set(snapshot);
+            if (batch.orbiting) {
+                p.valid = predictOrbit(p, standIn);
+            } else {
+                predictRecalculated(p, standIn, previousRadius, batch.head);
+                p.valid = true;
+                batch.low = Math.max(batch.low, p.low);
+                batch.high = Math.min(batch.high, p.high);
+            }
+            if (p.valid) {
+                p.result.set(trajectory);
+            }
+            standIn.setRadiusAfterChange(saved);
+        }
+    }
+
+    /** Calculates the path from the edge of the orbit the ship is in, as LevelMode does */
+    private boolean predictOrbit(Prediction p, Planet standIn) {
+        path.lastOrbitPt = null;
+        path.lastOrbitVel = null;
+        path.secondLastOrbitPt = null;
+        path.secondLastOrbitVel = null;
+        if (p.change > 0) {
+            path.calculateLastTwoPoints(standIn);
+        } else {
+            path.calculateLastTwoPointsBackwards(standIn);
+        }
+        if (path.lastOrbitPt == null) {
+            return false;
+        }
+        p.lastPt.set(path.lastOrbitPt);
+        p.lastVel.set(path.lastOrbitVel);
+        p.secondLastPt.set(path.secondLastOrbitPt);
+        p.secondLastVel.set(path.secondLastOrbitVel);
+        path.calculatePath(p.lastPt, p.lastVel, p.secondLastPt, p.secondLastVel, standInGrid);
+        return true;
+    }
+
+    /**
+     * Recalculates the part of the path the planet reaches, and works out how far the ship may
+     * move before the result stops matching what recalculating from there would give. That holds
+     * as long as the cut on either side stays in free flight ahead of the ship. A cut at the ship
+     * itself depends on exactly where the ship is.
+     */
+    private void predictRecalculated(Prediction p, Planet standIn, float previousRadius, int head) {
+        path.recalculatePath(standIn, previousRadius, standInGrid);
+        int forward = path.keptForward, backward = path.keptBackward;
+        if (forward == 1 || backward == 1) {
+            p.low = head;
+            p.high = head;
+        } else {
+            p.low = backward < 0 ? Integer.MIN_VALUE : head - backward + 1;
+            p.high = forward < 0 ? Integer.MAX_VALUE : head + forward - 1;
+        }
+    }
+}
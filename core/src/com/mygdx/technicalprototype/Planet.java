@@ -26,6 +26,9 @@ public class Planet extends WheelObstacle {
     private StaticObstacle solarFlare;
     private float solarFlareAngle;
     private float solarFlareDistance;
+    /** The grid this planet is indexed in, told whenever the radius changes */
+    private PlanetGrid grid;
+    private int gridIndex;
 
 
     enum PlanetColor {
@@ -41,6 +44,7 @@ public class Planet extends WheelObstacle {
         super(((Gdx.graphics.getWidth() / 2) - shipPos.x) + pos.x,
                 ((Gdx.graphics.getHeight() / 2) - shipPos.y) + pos.y, radius);
         worldPosition = new Vector2(pos.x, pos.y);
+        setCategory(ContactTable.PLANET);
         solarFlare = new StaticObstacle(radius / FLARE_SCALE);
         color = c;
         solarFlareAngle = (float)(Math.PI / 180 * degrees);
@@ -69,6 +73,32 @@ public class Planet extends WheelObstacle {
         return new Vector2(worldPosition);
     }
 
+    /**
+     * Writes the planet position in Box2D world units into out, without allocating
+     *
+     * @param out the vector to store the position in
+     * @return out, for chaining
+     */
+    public Vector2 getWorldPosition(Vector2 out) {
+        return out.set(worldPosition);
+    }
+
+    /**
+     * Sets the grid this planet is indexed in
+     *
+     * @param grid the grid holding the planet
+     * @param index the position of the planet in the level
+     */
+    public void setGrid(PlanetGrid grid, int index) {
+        this.grid = grid;
+        gridIndex = index;
+    }
+
+    /** Returns the position of the planet in the level, as set by its grid */
+    public int getGridIndex() {
+        return gridIndex;
+    }
+
     public float getMass() {
         return (float)(1000 + Math.pow(getRadius(), 1.2));
     }
@@ -91,8 +121,31 @@ public class Planet extends WheelObstacle {
         return radiusAfterChange * drawScale.x;
     }
 
+    /**
+     * Returns the radius after change of the planet in Box2D units
+     *
+     * @return the radius after change of the planet
+     */
+    public float getBoxRadiusAfterChange() {
+        return radiusAfterChange;
+    }
+
+    /**
+     * Returns the radius after change that resizing the planet by one step gives
+     *
+     * @param change 1 to grow the planet, -1 to shrink it
+     * @param step the change in radius in pixel units
+     * @return the new radius after change in Box2D units
+     */
+    public float getResizedRadius(int change, float step) {
+        return (getRadius() + change * step) / drawScale.x;
+    }
+
     public void setRadiusAfterChange(float f) {
         radiusAfterChange = f;
+        if (grid != null) {
+            grid.update(this);
+        }
     }
 
     public Vector2 getDrawScale() { return drawScale; }
@@ -106,6 +159,15 @@ public class Planet extends WheelObstacle {
     public void setLocation(GameCanvas canvas, Vector2 shipPos) {
         super.setPosition(((canvas.getWidth() / 2) - shipPos.x) / drawScale.x + worldPosition.x,
                 ((canvas.getHeight() / 2) - shipPos.y) / drawScale.y + worldPosition.y);
+        setSolarFlareLocation(canvas, shipPos);
+    }
+
+    /**
+     * Updates only the solar flare location relative to ship, for when the planet itself
+     * does not move but the flare grows or the planet is resized
+     *
+     */
+    public void setSolarFlareLocation(GameCanvas canvas, Vector2 shipPos) {
         solarFlare.setPosition((float) (((canvas.getWidth() / 2) - shipPos.x) / drawScale.x + worldPosition.x + (super.getRadius() + solarFlareDistance) * Math.sin(solarFlareAngle)),
                 (float) (((canvas.getHeight() / 2) - shipPos.y) / drawScale.y + worldPosition.y + (super.getRadius() + solarFlareDistance) * Math.cos(solarFlareAngle)));
     }
@@ -123,6 +185,16 @@ public class Planet extends WheelObstacle {
         return Helper.boxCoordsToWorldCoords(drawScale, worldPosition);
     }
 
+    /**
+     * Writes the planet position in world pixels into out, without allocating
+     *
+     * @param out the vector to store the position in
+     * @return out, for chaining
+     */
+    public Vector2 getPos(Vector2 out) {
+        return out.set(worldPosition.x * drawScale.x, worldPosition.y * drawScale.y);
+    }
+
     public void setGrowing(boolean b) {
         super.setAnimating(b);
         isGrowing = b;
@@ -142,15 +214,19 @@ public class Planet extends WheelObstacle {
     }
 
     /**
-     * Resize the planet by change
+     * Resize the planet by change. The fixtures of the planet and its flare are changed in
+     * place, as this runs every step of the resize animation.
      *
      * @param change the amount to change the planet size
      */
     public void resize(float change, Rocket ship) {
         float newRadius = super.getRadius() + change;
-        this.setRadius(newRadius);
+        setRadiusInPlace(newRadius);
 
-        solarFlare.setRadius(newRadius / FLARE_SCALE);
+        solarFlare.setRadiusInPlace(newRadius / FLARE_SCALE);
+        if (grid != null) {
+            grid.update(this);
+        }
     }
 
     /**
@@ -176,6 +252,16 @@ public class Planet extends WheelObstacle {
         float scale = 3f * super.getRadius() * drawScale.x / this.getTexture().getRegionWidth();
         canvas.draw(texture, c, origin.x, origin.y, getX()*drawScale.x - offset,
                 getY()*drawScale.y - offset, 0.0f, scale, scale);
+        drawFlare(canvas, flare);
+    }
+
+    /**
+     * Draws only the solar flare, so that it can go on a layer above the planets
+     *
+     * @param canvas Drawing context
+     * @param flare the current frame of the flare
+     */
+    public void drawFlare(GameCanvas canvas, TextureRegion flare) {
         solarFlare.drawFlare(canvas, flare, super.getRadius(), new Vector2((float)((super.getRadius() - solarFlareDistance) * Math.sin(solarFlareAngle) * drawScale.x / 5), (float)((super.getRadius() - solarFlareDistance) * Math.cos(solarFlareAngle) * drawScale.y / 5)), solarFlareAngle);
     }
 }
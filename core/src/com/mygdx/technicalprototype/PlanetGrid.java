@@ -0,0 +1,238 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+
+import java.util.ArrayList;
+
+/**
+ * Uniform grid over the planets of a level, for proximity queries that would otherwise scan
+ * every planet.
+ *
+ * Planets are indexed by their world position in Box2D units, which never changes, so the grid
+ * survives both the ship moving and the screen space layout shifting every body. Each planet is
+ * put in every cell its influence could reach, that is its larger radius (current or after
+ * change) times MAX_REACH plus PADDING. Any point within reach of a planet then finds it in the
+ * single cell the point lies in. Planets call {@link #update} whenever their radius changes.
+ *
+ * Cells keep their planets in level order, so callers that stop at the first planet in reach
+ * pick the same planet as a scan over the level list would.
+ */
+public class PlanetGrid {
+    /** Side of a cell in Box2D units */
+    private static final float CELL_SIZE = 4;
+    /** Reach of a planet in radii; covers the path orbit range and enemy gravity range */
+    private static final float MAX_REACH = 2;
+    /** Slack in Box2D units; covers the enemy radius and the rounding of path reach */
+    private static final float PADDING = 1;
+
+    /** The planets in level order */
+    private final ArrayList<Planet> planets;
+    /** The cells, keyed by packed cell coordinates */
+    private final IntMap<Array<Planet>> cells = new IntMap<>();
+    /** The cell range each planet is in, as minX, minY, maxX, maxY */
+    private final int[] ranges;
+    /** Cell range covered by any planet, bounds the nearest planet search */
+    private int minCellX, minCellY, maxCellX, maxCellY;
+    /** Scratch vector for world positions */
+    private final Vector2 world = new Vector2();
+
+    /**
+     * Indexes the given planets. The planets must have their draw scale set.
+     *
+     * @param planets the planets of the level, in level order
+     */
+    public PlanetGrid(ArrayList<Planet> planets) {
+        this.planets = planets;
+        ranges = new int[planets.size() * 4];
+        for (int i = 0; i < planets.size(); i++) {
+            Planet p = planets.get(i);
+            p.setGrid(this, i);
+            computeRange(p, i);
+            insert(p, i);
+        }
+        computeBounds();
+    }
+
+    /** Returns the planets in level order */
+    public ArrayList<Planet> getPlanets() {
+        return planets;
+    }
+
+    /**
+     * Moves a planet to the cells its current radii reach. Called by the planet on every change.
+     *
+     * @param p the planet that changed size
+     */
+    public void update(Planet p) {
+        int i = p.getGridIndex();
+        int minX = ranges[4 * i], minY = ranges[4 * i + 1];
+        int maxX = ranges[4 * i + 2], maxY = ranges[4 * i + 3];
+        computeRange(p, i);
+        if (minX == ranges[4 * i] && minY == ranges[4 * i + 1]
+                && maxX == ranges[4 * i + 2] && maxY == ranges[4 * i + 3]) {
+            return;
+        }
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                Array<Planet> cell = cells.get(key(x, y));
+                cell.removeValue(p, true);
+                if (cell.size == 0) {
+                    cells.remove(key(x, y));
+                }
+            }
+        }
+        insert(p, i);
+        computeBounds();
+    }
+
+    /**
+     * Returns the planets whose influence may reach a point, in level order. Callers still
+     * have to test each of them exactly. The array is owned by the grid and must not be changed.
+     *
+     * @param x the x coordinate in Box2D world units
+     * @param y the y coordinate in Box2D world units
+     *
+     * @return the planets near the point, or null if there are none
+     */
+    public Array<Planet> near(float x, float y) {
+        return cells.get(key(cell(x), cell(y)));
+    }
+
+    /**
+     * Returns the planets whose influence may reach a point in world pixels, as used by the path
+     *
+     * @param pos the point in world pixels
+     *
+     * @return the planets near the point, or null if there are none
+     */
+    public Array<Planet> nearPixel(Vector2 pos) {
+        if (planets.isEmpty()) {
+            return null;
+        }
+        Vector2 scale = planets.get(0).getDrawScale();
+        return near(pos.x / scale.x, pos.y / scale.y);
+    }
+
+    /**
+     * Converts a body position into Box2D world units. Bodies are laid out relative to the ship
+     * in screen space mode, so the offset is taken from the planets, which all share it.
+     *
+     * @param bodyPos the position of a body in the physics world
+     * @param out the vector to store the world position in
+     *
+     * @return out, for chaining
+     */
+    public Vector2 toWorld(Vector2 bodyPos, Vector2 out) {
+        if (planets.isEmpty()) {
+            return out.set(bodyPos);
+        }
+        Planet p = planets.get(0);
+        Vector2 body = p.getPosition();
+        p.getWorldPosition(world);
+        return out.set(bodyPos.x - body.x + world.x, bodyPos.y - body.y + world.y);
+    }
+
+    /**
+     * Returns the planet with the least Manhattan distance to a body position. Ties go to the
+     * planet that comes last in the level, as with the old linear scan.
+     *
+     * @param bodyPos the position of a body in the physics world
+     *
+     * @return the nearest planet, or null if the level has none
+     */
+    public Planet nearest(Vector2 bodyPos) {
+        if (planets.isEmpty()) {
+            return null;
+        }
+        toWorld(bodyPos, world);
+        float wx = world.x, wy = world.y;
+        int cx = cell(wx), cy = cell(wy);
+        int rings = Math.max(Math.max(cx - minCellX, maxCellX - cx), Math.max(cy - minCellY, maxCellY - cy));
+        Planet best = null;
+        int bestIndex = -1;
+        float bestDist = Float.MAX_VALUE;
+        for (int k = 0; k <= rings; k++) {
+            for (int x = cx - k; x <= cx + k; x++) {
+                for (int y = cy - k; y <= cy + k; y++) {
+                    if (Math.max(Math.abs(x - cx), Math.abs(y - cy)) != k) {
+                        continue;
+                    }
+                    Array<Planet> cell = cells.get(key(x, y));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < cell.size; i++) {
+                        Planet p = cell.get(i);
+                        p.getWorldPosition(world);
+                        float d = Math.abs(wx - world.x) + Math.abs(wy - world.y);
+                        int index = p.getGridIndex();
+                        if (d < bestDist || (d == bestDist && index > bestIndex)) {
+                            best = p;
+                            bestDist = d;
+                            bestIndex = index;
+                        }
+                    }
+                }
+            }
+            // every planet centre in a further ring is at least this far away
+            if (best != null && k * CELL_SIZE > bestDist) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /** Computes the cell range the influence of a planet covers */
+    private void computeRange(Planet p, int i) {
+        p.getWorldPosition(world);
+        Vector2 scale = p.getDrawScale();
+        // path reach is a circle in pixels, so it stretches in world units on uneven scales
+        float stretch = Math.max(scale.x / scale.y, scale.y / scale.x);
+        float reach = Math.max(p.getRadius(), p.getRadiusAfterChange()) / scale.x * MAX_REACH * stretch + PADDING;
+        ranges[4 * i] = cell(world.x - reach);
+        ranges[4 * i + 1] = cell(world.y - reach);
+        ranges[4 * i + 2] = cell(world.x + reach);
+        ranges[4 * i + 3] = cell(world.y + reach);
+    }
+
+    /** Adds a planet to every cell of its range, keeping each cell in level order */
+    private void insert(Planet p, int i) {
+        for (int x = ranges[4 * i]; x <= ranges[4 * i + 2]; x++) {
+            for (int y = ranges[4 * i + 1]; y <= ranges[4 * i + 3]; y++) {
+                int key = key(x, y);
+                Array<Planet> cell = cells.get(key);
+                if (cell == null) {
+                    cell = new Array<>(true, 4);
+                    cells.put(key, cell);
+                }
+                int at = 0;
+                while (at < cell.size && cell.get(at).getGridIndex() < i) {
+                    at++;
+                }
+                cell.insert(at, p);
+            }
+        }
+    }
+
+    /** Recomputes the cell range covered by any planet */
+    private void computeBounds() {
+        minCellX = minCellY = Integer.MAX_VALUE;
+        maxCellX = maxCellY = Integer.MIN_VALUE;
+        for (int i = 0; i < planets.size(); i++) {
+            minCellX = Math.min(minCellX, ranges[4 * i]);
+            minCellY = Math.min(minCellY, ranges[4 * i + 1]);
+            maxCellX = Math.max(maxCellX, ranges[4 * i + 2]);
+            maxCellY = Math.max(maxCellY, ranges[4 * i + 3]);
+        }
+    }
+
+    private static int cell(float coord) {
+        return (int) Math.floor(coord / CELL_SIZE);
+    }
+
+    private static int key(int x, int y) {
+        return (x << 16) ^ (y & 0xffff);
+    }
+}
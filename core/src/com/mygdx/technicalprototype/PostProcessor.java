@@ -0,0 +1,205 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Renders a level into an offscreen buffer and puts it on screen with every screen effect in
+ * a single full screen pass.
+ *
+ * The effects are the shockwave, the alert vignette, and the exposure, which is the brightness
+ * setting times whatever light a fade to black has left. Rather than one pass each, they are
+ * merged into one fragment shader. A variant of that shader is compiled for every combination
+ * of effects, so the ones which are off this frame cost nothing.
+ *
+ * The scene may be rendered at a lower internal resolution, which the final pass scales up.
+ * This saves fill rate on weak graphics cards at high resolutions.
+ */
+public class PostProcessor {
+    /** Distorts the scene in a ring expanding from a point */
+    public static final int SHOCKWAVE = 1;
+    /** Tints the edges of the screen around a point */
+    public static final int ALERT = 2;
+    /** Preprocessor symbols of the effects, by bit position */
+    private static final String[] DEFINES = {"SHOCKWAVE", "ALERT"};
+
+    /** The shader of every combination of effects, indexed by the effect bits */
+    private final ShaderProgram[] variants = new ShaderProgram[1 << DEFINES.length];
+    /** The full screen quad */
+    private final Mesh quad;
+    /** Buffer the scene is rendered into */
+    private FrameBuffer buffer;
+    /** Size of the buffer relative to the screen */
+    private float renderScale = 1;
+
+    /** Effects the player allows */
+    private int enabled = SHOCKWAVE | ALERT;
+    /** Effects running this frame */
+    private int active;
+
+    private final Vector2 shockCenter = new Vector2();
+    private float shockTime;
+    private final Color alertColor = new Color();
+    private final Vector2 alertCenter = new Vector2();
+    private float alertSize;
+    private float brightness = 1;
+    private float fade;
+
+    public PostProcessor() {
+        String vert = Gdx.files.internal("troy/shaders/post.vert").readString();
+        String frag = Gdx.files.internal("troy/shaders/post.frag").readString();
+        for (int mask = 0; mask < variants.length; mask++) {
+            StringBuilder defines = new StringBuilder();
+            for (int i = 0; i < DEFINES.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    defines.append("#define ").append(DEFINES[i]).append('\n');
+                }
+            }
+            variants[mask] = GameCanvas.createShader(vert, defines + frag);
+        }
+
+        quad = new Mesh(true, 4, 0,
+                new VertexAttribute(VertexAttributes.Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE),
+                new VertexAttribute(VertexAttributes.Usage.TextureCoordinates, 2, ShaderProgram.TEXCOORD_ATTRIBUTE + "0"));
+        // buffer textures start at the bottom left, like clip space
+        quad.setVertices(new float[] {
+                -1, -1, 0, 0,
+                 1, -1, 1, 0,
+                -1,  1, 0, 1,
+                 1,  1, 1, 1});
+        allocate();
+    }
+
+    /**
+     * Sets the size of the internal resolution relative to the screen
+     *
+     * @param scale the fraction of the screen size, between 0.25 and 1
+     */
+    public void setRenderScale(float scale) {
+        scale = MathUtils.clamp(scale, 0.25f, 1);
+        if (scale != renderScale) {
+            renderScale = scale;
+            allocate();
+        }
+    }
+
+    public float getRenderScale() {
+        return renderScale;
+    }
+
+    /** Recreates the buffer for the current screen size */
+    public void resize() {
+        allocate();
+    }
+
+    /**
+     * Sets whether the player allows an effect
+     *
+     * @param effect  SHOCKWAVE or ALERT
+     * @param enabled whether the effect may run
+     */
+    public void setEnabled(int effect, boolean enabled) {
+        this.enabled = enabled ? this.enabled | effect : this.enabled & ~effect;
+    }
+
+    public boolean isEnabled(int effect) {
+        return (enabled & effect) != 0;
+    }
+
+    /**
+     * Runs the shockwave this frame
+     *
+     * @param center the centre of the wave in screen pixels
+     * @param time   the time since the wave started
+     */
+    public void setShockwave(Vector2 center, float time) {
+        shockCenter.set(center);
+        shockTime = time;
+        active |= SHOCKWAVE;
+    }
+
+    /**
+     * Runs the alert this frame
+     *
+     * @param color  the tint of the screen edges
+     * @param center the centre of the clear area in screen pixels
+     * @param size   the radius of the clear area, as a fraction of the screen diagonal
+     */
+    public void setAlert(Color color, Vector2 center, float size) {
+        alertColor.set(color);
+        alertCenter.set(center);
+        alertSize = size;
+        active |= ALERT;
+    }
+
+    /** Sets the brightness setting, 1 leaving the scene as it is */
+    public void setBrightness(float brightness) {
+        this.brightness = brightness;
+    }
+
+    /** Sets how far the screen has faded to black, from 0 to 1 */
+    public void setFade(float fade) {
+        this.fade = fade;
+    }
+
+    /** Starts rendering the scene into the buffer */
+    public void begin() {
+        buffer.begin();
+    }
+
+    /**
+     * Stops rendering into the buffer and draws it to the screen with all the running effects.
+     * The effects have to be set again for the next frame.
+     */
+    public void end() {
+        buffer.end();
+
+        ShaderProgram shader = variants[active & enabled];
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+        buffer.getColorBufferTexture().bind(0);
+        shader.bind();
+        shader.setUniformi("u_texture", 0);
+        shader.setUniformf("iResolution", Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        shader.setUniformf("iExposure", MathUtils.clamp(brightness, 0, 1) * (1 - MathUtils.clamp(fade, 0, 1)));
+        if ((active & enabled & SHOCKWAVE) != 0) {
+            shader.setUniformf("iTime", shockTime);
+            shader.setUniformf("iCenter", shockCenter);
+        }
+        if ((active & enabled & ALERT) != 0) {
+            shader.setUniformf("iAlertColor", alertColor.r, alertColor.g, alertColor.b);
+            shader.setUniformf("iAlertCenter", alertCenter);
+            shader.setUniformf("iAlertInnerSize", alertSize);
+        }
+        quad.render(shader, GL20.GL_TRIANGLE_STRIP);
+        active = 0;
+    }
+
+    private void allocate() {
+        if (buffer != null) {
+            buffer.dispose();
+        }
+        int width = Math.max(1, Math.round(Gdx.graphics.getWidth() * renderScale));
+        int height = Math.max(1, Math.round(Gdx.graphics.getHeight() * renderScale));
+        buffer = new FrameBuffer(Pixmap.Format.RGBA8888, width, height, false);
+        Texture.TextureFilter filter = renderScale < 1 ? Texture.TextureFilter.Linear : Texture.TextureFilter.Nearest;
+        buffer.getColorBufferTexture().setFilter(filter, filter);
+    }
+
+    public void dispose() {
+        buffer.dispose();
+        quad.dispose();
+        for (ShaderProgram shader : variants) {
+            shader.dispose();
+        }
+    }
+}
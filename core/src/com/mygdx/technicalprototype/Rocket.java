@@ -13,6 +13,9 @@ public class Rocket extends WheelObstacle {
     private Vector2 pos;
     /** Velocity of the ship */
     private Vector2 vel;
+    /** Vectors owned by the ship for positions copied out of the trajectory */
+    private final Vector2 pathPos = new Vector2();
+    private final Vector2 pathVel = new Vector2();
     /** The angle of the ship for drawing */
     private float drawAngle;
     /** Linear velocity of the ship */
@@ -29,8 +32,6 @@ public class Rocket extends WheelObstacle {
     /** If the rocket is invincible after being hurt */
     boolean invincible;
 
-    private Sprinkler sprinkler;
-
     /**
      * Initializes the variables
      */
@@ -45,20 +46,8 @@ public class Rocket extends WheelObstacle {
         this.ship1Texture = ship1Texture;
         this.ship2Texture = ship2Texture;
         this.ship3Texture = ship3Texture;
-        float ox = Gdx.graphics.getWidth() / 2 / scale.x;
-        float oy = Gdx.graphics.getHeight() / 2 / scale.y;
-        sprinkler = new Sprinkler(data.get("particles"),ox,oy);
-        sprinkler.setDrawScale(scale);
         this.health = health;
-    }
-
-    /**
-     * Returns the bubble generator welded to the mask
-     *
-     * @return the bubble generator welded to the mask
-     */
-    public Sprinkler getSprinkler() {
-        return sprinkler;
+        setCategory(ContactTable.SHIP);
     }
 
     /** */
@@ -74,6 +63,16 @@ public class Rocket extends WheelObstacle {
         return new Vector2(pos);
     }
 
+    /**
+     * Writes the position of the ship into out, without allocating
+     *
+     * @param out the vector to store the position in
+     * @return out, for chaining
+     */
+    public Vector2 getPos(Vector2 out) {
+        return out.set(pos);
+    }
+
     /**
      * Updates the ship location in the world
      *
@@ -82,6 +81,14 @@ public class Rocket extends WheelObstacle {
         pos = position;
     }
 
+    /**
+     * Updates the ship location in the world without allocating
+     *
+     */
+    public void setPos(float x, float y) {
+        pos = pathPos.set(x, y);
+    }
+
     public boolean getInvincible() {
         return invincible;
     }
@@ -114,6 +121,15 @@ public class Rocket extends WheelObstacle {
         this.vel = vel;
     }
 
+    /**
+     * Setter for velocity of ship that does not allocate
+     * @param x x velocity of ship
+     * @param y y velocity of ship
+     */
+    public void setVelocity(float x, float y) {
+        vel = pathVel.set(x, y);
+    }
+
     /**
      * Getter for linear velocity of ship
      * @return float velocity of ship
@@ -167,7 +183,6 @@ public class Rocket extends WheelObstacle {
         } else {
             drawAngle = (float)(Math.atan(vel.y / vel.x) + Math.PI);
         }
-        sprinkler.draw(canvas, pos);
         if (getHealth() == 1) {
             canvas.draw(ship1Texture, Color.WHITE, origin.x, origin.y, canvasWidth / 2,
                     canvasHeight / 2, drawAngle, scale, scale);
@@ -19,6 +19,7 @@ public class StaticObstacle extends WheelObstacle {
         super((Gdx.graphics.getWidth() / 2) - shipPos.x + pos.x,
                 (Gdx.graphics.getHeight() / 2) - shipPos.y + pos.y, radius);
         worldPosition = new Vector2(pos.x, pos.y);
+        setCategory(ContactTable.OBSTACLE);
         if (hasEntranceAnimation) {
             entryAnimationOver = false;
         } else {
@@ -28,6 +29,7 @@ public class StaticObstacle extends WheelObstacle {
 
     public StaticObstacle(float radius) {
         super(radius);
+        setCategory(ContactTable.OBSTACLE);
     }
 
     public Vector2 getWorldPosition() {
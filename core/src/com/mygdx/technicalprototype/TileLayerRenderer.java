@@ -0,0 +1,151 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Draws the tile layers of a level from geometry that is built once.
+ *
+ * Every tile layer is put into its own SpriteCache cache, one row of cells after another, so
+ * the tiles of a row that are on screen are always a single run of sprites. Each frame only the
+ * visible part of every visible row is drawn, against the view rectangle of that layer after its
+ * parallax offset. The cost no longer depends on the size of the map, only on what is on screen.
+ */
+public class TileLayerRenderer implements Disposable {
+    private final SpriteCache cache;
+    /** Cache id of every layer, or -1 for layers without tiles */
+    private final int[] cacheIds;
+    /** For every layer, the index of the sprite of every cell in its cache, or -1 when empty */
+    private final int[][] spriteIndex;
+
+    private final int mapWidth;
+    private final int mapHeight;
+    private final int tileWidth;
+    private final int tileHeight;
+
+    /**
+     * Builds the cached geometry for the given tile layers
+     *
+     * @param layers the tile ids of each layer, as read from the level file
+     * @param tiles the texture of every tile id, offset by one
+     * @param mapWidth map width in tiles
+     * @param mapHeight map height in tiles
+     * @param tileWidth tile width in pixels
+     * @param tileHeight tile height in pixels
+     */
+    public TileLayerRenderer(ArrayList<int[]> layers, Array<TextureRegion> tiles,
+                             int mapWidth, int mapHeight, int tileWidth, int tileHeight) {
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+
+        int total = 0;
+        for (int[] layer : layers) {
+            for (int k = 0; layer != null && k < layer.length; k++) {
+                if (tileAt(layer, k, tiles) != null) {
+                    total++;
+                }
+            }
+        }
+        cache = new SpriteCache(Math.max(total, 1), true);
+        cacheIds = new int[layers.size()];
+        spriteIndex = new int[layers.size()][];
+
+        for (int k = 0; k < layers.size(); k++) {
+            int[] layer = layers.get(k);
+            cacheIds[k] = -1;
+            spriteIndex[k] = new int[mapWidth * mapHeight];
+            Arrays.fill(spriteIndex[k], -1);
+            if (layer == null) {
+                continue;
+            }
+            int count = 0;
+            cache.beginCache();
+            for (int i = 0; i < mapHeight; i++) {
+                for (int j = 0; j < mapWidth; j++) {
+                    TextureRegion region = tileAt(layer, i * mapHeight + j, tiles);
+                    if (region != null) {
+                        cache.add(region, j * tileWidth, tileHeight * (mapHeight - 1) - i * tileHeight,
+                                tileWidth, tileHeight);
+                        spriteIndex[k][i * mapWidth + j] = count++;
+                    }
+                }
+            }
+            int id = cache.endCache();
+            cacheIds[k] = count > 0 ? id : -1;
+        }
+    }
+
+    /** Returns the texture of the cell at index, or null if the cell is empty */
+    private static TextureRegion tileAt(int[] layer, int index, Array<TextureRegion> tiles) {
+        if (index < 0 || index >= layer.length) {
+            return null;
+        }
+        int tile = layer[index];
+        if (tile == -1 || tile == 0 || tile > tiles.size) {
+            return null;
+        }
+        return tiles.get(tile - 1);
+    }
+
+    /**
+     * Draws the part of one layer that is inside the view. The canvas must not be active.
+     *
+     * @param canvas the canvas whose camera and size define the view
+     * @param k the layer to draw
+     * @param offsetX x offset of the layer in pixels, parallax included
+     * @param offsetY y offset of the layer in pixels, parallax included
+     */
+    public void drawLayer(GameCanvas canvas, int k, float offsetX, float offsetY) {
+        int id = cacheIds[k];
+        if (id == -1) {
+            return;
+        }
+        int firstCol = Math.max(0, (int) Math.floor(-offsetX / tileWidth));
+        int lastCol = Math.min(mapWidth - 1, (int) Math.ceil((canvas.getWidth() - offsetX) / tileWidth) - 1);
+        // rows count down from the top of the map
+        int firstRow = Math.max(0, mapHeight - (int) Math.ceil((canvas.getHeight() - offsetY) / tileHeight));
+        int lastRow = Math.min(mapHeight - 1, mapHeight - 1 - (int) Math.floor(-offsetY / tileHeight));
+        if (firstCol > lastCol || firstRow > lastRow) {
+            return;
+        }
+
+        cache.setProjectionMatrix(canvas.getCamera().combined);
+        cache.getTransformMatrix().setToTranslation(offsetX, offsetY, 0);
+        // the sprite cache does not blend on its own, and the parallax layers are transparent
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        cache.begin();
+        int[] index = spriteIndex[k];
+        for (int i = firstRow; i <= lastRow; i++) {
+            int start = -1, end = -1;
+            for (int j = firstCol; j <= lastCol; j++) {
+                int s = index[i * mapWidth + j];
+                if (s != -1) {
+                    if (start == -1) {
+                        start = s;
+                    }
+                    end = s;
+                }
+            }
+            if (start != -1) {
+                cache.draw(id, start, end - start + 1);
+            }
+        }
+        cache.end();
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+    }
+
+    @Override
+    public void dispose() {
+        cache.dispose();
+    }
+}
@@ -0,0 +1,254 @@
+package com.mygdx.technicalprototype;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.TextureLoader;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.mygdx.technicalprototype.assets.AtlasIndex;
+
+/**
+ * Process-wide cache of the tileset textures listed in tilesets.json.
+ *
+ * Levels acquire the tilesets their map references and release them when they are replaced.
+ * A tileset is loaded the first time it is acquired and stays resident while any level holds
+ * it. Released tilesets are kept for a while longer, so restarting a level or moving between
+ * levels that share tilesets does not load the same textures again. Texture files are shared
+ * between tilesets and only unloaded once no resident tileset uses them.
+ */
+public class TilesetCache implements Disposable {
+    /** The index of tilesets and their textures */
+    private static final String DIRECTORY = "tilesets.json";
+    /** Number of released tilesets kept resident, enough for a level or two */
+    private static final int MAX_IDLE = 12;
+
+    /** The singleton instance of the cache */
+    private static TilesetCache theCache = null;
+
+    /**
+     * Return the singleton instance of the tileset cache
+     *
+     * @return the singleton instance of the tileset cache
+     */
+    public static TilesetCache getInstance() {
+        if (theCache == null) {
+            theCache = new TilesetCache();
+        }
+        return theCache;
+    }
+
+    /** The textures of one tileset, in tile id order */
+    private static class Tileset {
+        String name;
+        /** Texture or atlas file of every tile, or null for tiles missing from the index */
+        String[] files;
+        /** Atlas region of every tile, or null when the tile is a whole texture */
+        String[] regions;
+        /** The resolved tiles, built once the files are loaded */
+        Array<TextureRegion> tiles;
+        /** Number of levels holding this tileset */
+        int refs;
+    }
+
+    private final AssetManager manager;
+    private final JsonValue directory;
+    private final AtlasIndex atlases;
+    private final JsonReader reader = new JsonReader();
+
+    private final ObjectMap<String, Tileset> resident = new ObjectMap<>();
+    /** Released tilesets that are still loaded, least recently used first */
+    private final Array<Tileset> idle = new Array<>();
+    /** Number of resident tilesets using each file */
+    private final ObjectIntMap<String> fileRefs = new ObjectIntMap<>();
+
+    private TilesetCache() {
+        manager = new AssetManager();
+        directory = reader.parse(Gdx.files.internal(DIRECTORY));
+        atlases = new AtlasIndex(directory, manager.getFileHandleResolver());
+    }
+
+    /**
+     * Takes a reference to a tileset, queueing its textures if it is not resident.
+     *
+     * The textures are available once {@link #update} returns true or {@link #finishLoading}
+     * returns.
+     *
+     * @param name the tileset key, as level:tileset
+     *
+     * @return false if the tileset is not in the index
+     */
+    public boolean acquire(String name) {
+        Tileset set = resident.get(name);
+        if (set == null) {
+            set = create(name);
+            if (set == null) {
+                return false;
+            }
+            resident.put(name, set);
+            for (int i = 0; i < set.files.length; i++) {
+                if (set.files[i] != null && firstUse(set, i)) {
+                    retain(set.files[i], set.regions[i] != null);
+                }
+            }
+        }
+        if (set.refs == 0) {
+            idle.removeValue(set, true);
+        }
+        set.refs++;
+        return true;
+    }
+
+    /**
+     * Gives back a reference taken with {@link #acquire}
+     *
+     * @param name the tileset key, as level:tileset
+     */
+    public void release(String name) {
+        Tileset set = resident.get(name);
+        if (set == null || set.refs == 0) {
+            return;
+        }
+        set.refs--;
+        if (set.refs == 0) {
+            idle.add(set);
+            while (idle.size > MAX_IDLE) {
+                evict(idle.removeIndex(0));
+            }
+        }
+    }
+
+    /**
+     * Loads queued textures for up to the given time
+     *
+     * @param millis the time budget in milliseconds
+     *
+     * @return true if every acquired tileset is loaded
+     */
+    public boolean update(int millis) {
+        return manager.update(millis);
+    }
+
+    /** Returns the loading progress of the queued textures, from 0 to 1 */
+    public float getProgress() {
+        return manager.getProgress();
+    }
+
+    /** Blocks until every acquired tileset is loaded */
+    public void finishLoading() {
+        manager.finishLoading();
+    }
+
+    /**
+     * Returns the tiles of an acquired tileset, in tile id order.
+     *
+     * Tiles missing from the index are null. The tileset must be loaded.
+     *
+     * @param name the tileset key, as level:tileset
+     *
+     * @return the tiles of the tileset
+     */
+    public Array<TextureRegion> getTiles(String name) {
+        Tileset set = resident.get(name);
+        if (set.tiles == null) {
+            set.tiles = new Array<>(set.files.length);
+            for (int i = 0; i < set.files.length; i++) {
+                if (set.files[i] == null) {
+                    set.tiles.add(null);
+                } else if (set.regions[i] != null) {
+                    set.tiles.add(manager.get(set.files[i], TextureAtlas.class).findRegion(set.regions[i]));
+                } else {
+                    set.tiles.add(new TextureRegion(manager.get(set.files[i], Texture.class)));
+                }
+            }
+        }
+        return set.tiles;
+    }
+
+    /** Reads the tile files of a tileset from the index, or returns null if it is not listed */
+    private Tileset create(String name) {
+        String json = directory.get("jsons").getString(name, null);
+        if (json == null) {
+            return null;
+        }
+        int count = reader.parse(Gdx.files.internal(json)).getInt("tilecount");
+        JsonValue textures = directory.get("textures");
+
+        Tileset set = new Tileset();
+        set.name = name;
+        set.files = new String[count];
+        set.regions = new String[count];
+        for (int i = 0; i < count; i++) {
+            JsonValue entry = textures.get(count == 1 ? name : name + (i + 1));
+            if (entry == null) {
+                System.out.println("Texture: " + (count == 1 ? name : name + (i + 1)) + "was not found. This is likely due to an absence in tilesets.json");
+                continue;
+            }
+            String packed = atlases.lookup(entry);
+            if (packed != null) {
+                int split = packed.lastIndexOf(':');
+                set.files[i] = packed.substring(0, split);
+                set.regions[i] = packed.substring(split + 1);
+            } else {
+                set.files[i] = entry.asString();
+            }
+        }
+        return set;
+    }
+
+    /** Returns whether tile i is the first tile of the set that uses its file */
+    private static boolean firstUse(Tileset set, int i) {
+        for (int j = 0; j < i; j++) {
+            if (set.files[i].equals(set.files[j])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void retain(String file, boolean atlas) {
+        int refs = fileRefs.getAndIncrement(file, 0, 1);
+        if (refs > 0) {
+            return;
+        }
+        if (atlas) {
+            manager.load(file, TextureAtlas.class);
+        } else {
+            // Same settings TextureParser uses for plain texture entries
+            TextureLoader.TextureParameter params = new TextureLoader.TextureParameter();
+            params.minFilter = Texture.TextureFilter.Linear;
+            params.magFilter = Texture.TextureFilter.Linear;
+            params.format = Pixmap.Format.RGBA8888;
+            manager.load(file, Texture.class, params);
+        }
+    }
+
+    private void evict(Tileset set) {
+        resident.remove(set.name);
+        for (int i = 0; i < set.files.length; i++) {
+            if (set.files[i] != null && firstUse(set, i)) {
+                int refs = fileRefs.getAndIncrement(set.files[i], 0, -1);
+                if (refs == 1) {
+                    fileRefs.remove(set.files[i], 0);
+                    manager.unload(set.files[i]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        manager.dispose();
+        resident.clear();
+        idle.clear();
+        fileRefs.clear();
+        theCache = null;
+    }
+}
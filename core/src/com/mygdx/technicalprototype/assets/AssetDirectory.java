@@ -151,6 +151,7 @@ public class AssetDirectory extends AssetManager {
         setLoader( FilmStrip.class, new FilmStripLoader( resolver ) );
 
         setLoader( JsonValue.class, new JsonValueLoader( resolver ) );
+        setLoader( LevelData.class, new LevelDataLoader( resolver ) );
 
         // Why not?
         setLoader( Skin.class, new SkinLoader( resolver ) );
@@ -159,8 +160,10 @@ public class AssetDirectory extends AssetManager {
 
         // And now the default parsers
         topLoader.addParser( new JsonValueParser() );
+        topLoader.addParser( new LevelDataParser() );
         topLoader.addParser( new TextureParser() );
         topLoader.addParser( new TextureRegionParser() );
+        topLoader.addParser( new AtlasParser() );
         topLoader.addParser( new FilmStripParser() );
         topLoader.addParser( new FreetypeFontParser() );
         topLoader.addParser( new SoundParser() );
@@ -0,0 +1,84 @@
+package com.mygdx.technicalprototype.assets;
+
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ObjectSet;
+
+/**
+ * The texture atlases listed in the "atlases" section of an asset directory.
+ *
+ * Each atlas is packed from a source folder by the packTextures Gradle task, and names every
+ * region after the path of its image relative to that folder, without the extension. A texture
+ * entry whose file was packed is then read from the atlas instead of being loaded on its own.
+ * Atlases that have not been packed yet are skipped, so their images still load as textures.
+ */
+public class AtlasIndex {
+    /** The atlas files that exist */
+    private final Array<String> atlases = new Array<String>();
+    /** The folder each atlas was packed from, ending in a slash */
+    private final Array<String> sources = new Array<String>();
+    /** The region names of each atlas */
+    private final Array<ObjectSet<String>> regions = new Array<ObjectSet<String>>();
+
+    /**
+     * Reads the atlases of the given directory
+     *
+     * @param directory the JSON representation of the asset directory
+     * @param resolver  the resolver to find the atlas files with
+     */
+    public AtlasIndex(JsonValue directory, FileHandleResolver resolver) {
+        JsonValue entry = directory.getChild( "atlases" );
+        for (; entry != null; entry = entry.next()) {
+            String file = entry.getString( "file", null );
+            String source = entry.getString( "source", null );
+            if (file == null || source == null) {
+                continue;
+            }
+            FileHandle handle = resolver.resolve( file );
+            if (!handle.exists()) {
+                continue;
+            }
+            TextureAtlas.TextureAtlasData data = new TextureAtlas.TextureAtlasData( handle, handle.parent(), false );
+            ObjectSet<String> names = new ObjectSet<String>();
+            for (TextureAtlas.TextureAtlasData.Region region : data.getRegions()) {
+                names.add( region.name );
+            }
+            atlases.add( file );
+            sources.add( source.endsWith( "/" ) ? source : source+"/" );
+            regions.add( names );
+        }
+    }
+
+    /**
+     * Returns the region a texture entry was packed into, or null if it must be loaded as is.
+     *
+     * The region is given as atlas:name, which is also its asset name. Entries that cut their
+     * own regions out of the texture, or that set "packed" to false because they need the
+     * whole texture, are never read from an atlas.
+     *
+     * @param entry a texture entry of the directory
+     *
+     * @return the region a texture entry was packed into, or null
+     */
+    public String lookup(JsonValue entry) {
+        String file = entry.isString() ? entry.asString() : entry.getString( "file", null );
+        if (file == null || entry.hasChild( "atlas" ) || !entry.getBoolean( "packed", true )) {
+            return null;
+        }
+        for (int i = 0; i < atlases.size; i++) {
+            String source = sources.get( i );
+            if (!file.startsWith( source )) {
+                continue;
+            }
+            int dot = file.lastIndexOf( '.' );
+            String name = file.substring( source.length(), dot > source.length() ? dot : file.length() );
+            if (regions.get( i ).contains( name )) {
+                return atlases.get( i )+":"+name;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.mygdx.technicalprototype.assets;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * This class gives every texture entry of a directory a {@link TextureRegion} under the same key.
+ *
+ * Textures that were packed into one of the atlases of the directory (see {@link AtlasIndex})
+ * resolve to their atlas region, so sprites drawn from them share a few page textures. All other
+ * textures resolve to a region covering the whole texture.
+ */
+public class AtlasParser implements AssetParser<TextureRegion> {
+    /** The directory being parsed */
+    private JsonValue directory;
+    /** The current texture entry in the JSON directory */
+    private JsonValue root;
+    /** The packed atlases of the directory, read on the first entry */
+    private AtlasIndex index;
+
+    public Class<TextureRegion> getType() {
+        return TextureRegion.class;
+    }
+
+    public void reset(JsonValue directory) {
+        this.directory = directory;
+        root = directory.getChild( "textures" );
+        index = null;
+    }
+
+    public boolean hasNext() {
+        return root != null;
+    }
+
+    public void processNext(AssetManager manager, ObjectMap<String,String> keymap) {
+        if (index == null) {
+            index = new AtlasIndex( directory, manager.getFileHandleResolver() );
+        }
+        String packed = index.lookup( root );
+        TextureRegionLoader.TextureRegionParameters params;
+        String region;
+        if (packed != null) {
+            int split = packed.lastIndexOf( ':' );
+            params = new TextureRegionLoader.TextureRegionParameters( packed.substring( 0,split ) );
+            params.region = packed.substring( split+1 );
+            region = packed;
+        } else {
+            String file = root.isString() ? root.asString() : root.getString( "file", null );
+            if (file == null || root.hasChild( "atlas" )) {
+                root = root.next();
+                return;
+            }
+            params = new TextureRegionLoader.TextureRegionParameters( file );
+            region = file+":texture";
+        }
+        keymap.put( root.name(),region );
+        manager.load( region,TextureRegion.class, params );
+        root = root.next();
+    }
+
+    public boolean equals(Object o) {
+        return o instanceof AtlasParser;
+    }
+}
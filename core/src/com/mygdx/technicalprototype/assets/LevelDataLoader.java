@@ -0,0 +1,76 @@
+package com.mygdx.technicalprototype.assets;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonReader;
+import com.mygdx.technicalprototype.util.LevelCompiler;
+import com.mygdx.technicalprototype.util.LevelData;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class is an {@link AssetLoader} to load {@link LevelData} assets.
+ *
+ * A level asset is named by its .tmj file. If the compiled blob next to it is present, not
+ * older than the .tmj and of the current blob version, the blob is mapped and read instead,
+ * so no JSON is parsed.
+ */
+public class LevelDataLoader extends AsynchronousAssetLoader<LevelData, LevelDataLoader.LevelDataParameters> {
+    /** The asynchronously read level */
+    private LevelData cachedData;
+
+    public static class LevelDataParameters extends AssetLoaderParameters<LevelData> {
+        // Since everything is defined in the file, nothing to do here
+    }
+
+    public LevelDataLoader() {
+        this(new InternalFileHandleResolver());
+    }
+
+    public LevelDataLoader(FileHandleResolver resolver) {
+        super(resolver);
+    }
+
+    @Override
+    public void loadAsync(AssetManager manager, String fileName, FileHandle file, LevelDataParameters params) {
+        FileHandle blob = file.sibling(file.nameWithoutExtension() + "." + LevelCompiler.EXTENSION);
+        if (blob.exists() && (!file.exists() || blob.lastModified() >= file.lastModified())) {
+            ByteBuffer data = map(blob);
+            // a blob left over from an older build is as good as missing
+            if (LevelData.isCurrent(data) || !file.exists()) {
+                cachedData = LevelData.read(data);
+                return;
+            }
+        }
+        cachedData = LevelData.fromJson(new JsonReader().parse(file));
+    }
+
+    @Override
+    public LevelData loadSync(AssetManager manager, String fileName, FileHandle file, LevelDataParameters params) {
+        LevelData data = cachedData;
+        cachedData = null;
+        return data;
+    }
+
+    @Override
+    public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, LevelDataParameters params) {
+        return null;
+    }
+
+    /** Maps the blob into memory, or reads it whole when it is packed in the jar */
+    private static ByteBuffer map(FileHandle blob) {
+        try {
+            return blob.map(FileChannel.MapMode.READ_ONLY);
+        } catch (GdxRuntimeException e) {
+            return ByteBuffer.wrap(blob.readBytes());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.mygdx.technicalprototype.assets;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.mygdx.technicalprototype.util.LevelData;
+
+/**
+ * This class parses the "levels" section of a directory into {@link LevelData} assets.
+ *
+ * Each entry maps a key to the .tmj file of a level, which {@link LevelDataLoader} reads
+ * from its compiled blob when there is one.
+ */
+public class LevelDataParser implements AssetParser<LevelData> {
+    private JsonValue root;
+
+    public Class<LevelData> getType() {
+        return LevelData.class;
+    }
+
+    public void reset(JsonValue directory) {
+        root = directory;
+        root = root.getChild( "levels" );
+    }
+
+    public boolean hasNext() {
+        return root != null;
+    }
+
+    public void processNext(AssetManager manager, ObjectMap<String,String> keymap) {
+        String file = root.asString();
+        keymap.put(root.name(), file);
+        manager.load( file, LevelData.class, null );
+        root = root.next();
+    }
+
+    public boolean equals(Object o) {
+        return o instanceof LevelDataParser;
+    }
+}
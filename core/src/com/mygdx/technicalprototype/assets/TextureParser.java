@@ -31,6 +31,10 @@ import com.badlogic.gdx.utils.ObjectMap;
 public class TextureParser implements AssetParser<Texture> {
     /** The current font entry in the JSON directory */
     private JsonValue root;
+    /** The directory being parsed */
+    private JsonValue directory;
+    /** The packed atlases of the directory, read on the first entry */
+    private AtlasIndex atlases;
 
     /**
      * Returns the asset type generated by this parser
@@ -50,6 +54,8 @@ public class TextureParser implements AssetParser<Texture> {
      * @param directory    The JSON representation of the asset directory
      */
     public void reset(JsonValue directory) {
+        this.directory = directory;
+        atlases = null;
         root = directory;
         root = root.getChild( "textures" );
     }
@@ -73,12 +79,22 @@ public class TextureParser implements AssetParser<Texture> {
      * If the JSON value is a string and not an object, it will interpret that
      * string as the file and use the default settings.
      *
+     * Textures that were packed into an atlas of the directory are skipped, as they are
+     * read from the atlas by {@link AtlasParser} instead.
+     *
      * This method fails silently if there are no available assets to process.
      *
      * @param manager	The asset manager to load an asset
      * @param keymap    The mapping of JSON keys to asset file names
      */
     public void processNext(AssetManager manager, ObjectMap<String,String> keymap) {
+        if (atlases == null) {
+            atlases = new AtlasIndex( directory, manager.getFileHandleResolver() );
+        }
+        if (atlases.lookup( root ) != null) {
+            root = root.next();
+            return;
+        }
         TextureLoader.TextureParameter params = new TextureLoader.TextureParameter();
         if (root.isString()) {
             params.genMipMaps = false;
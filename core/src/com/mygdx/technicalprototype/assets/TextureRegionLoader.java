@@ -16,6 +16,7 @@ import com.badlogic.gdx.assets.loaders.*;
 import com.badlogic.gdx.assets.loaders.resolvers.*;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.GdxRuntimeException;
@@ -50,6 +51,8 @@ public class TextureRegionLoader extends AsynchronousAssetLoader<TextureRegion,
         public int width  = -1;
         /** The pixel height of the texture region; use -1 for "remaining" height */
         public int height = -1;
+        /** The region name when the source is a {@link TextureAtlas}; null for a texture */
+        public String region = null;
 
         /**
          * Creates texture region parameters for the give texture.
@@ -131,6 +134,15 @@ public class TextureRegionLoader extends AsynchronousAssetLoader<TextureRegion,
      */
     @Override
     public void loadAsync(AssetManager manager, String fileName, FileHandle file, TextureRegionParameters params) {
+        if (params != null && params.region != null) {
+            TextureAtlas atlas = manager.get( params.source, TextureAtlas.class );
+            TextureRegion region = atlas.findRegion( params.region );
+            if (region == null) {
+                throw new GdxRuntimeException( "Region "+params.region+" is not in "+params.source );
+            }
+            cachedRegion = new TextureRegion( region );
+            return;
+        }
         Texture texture = manager.get(manager.getDependencies(fileName).first());
         cachedRegion = load(texture, params);
     }
@@ -193,7 +205,11 @@ public class TextureRegionLoader extends AsynchronousAssetLoader<TextureRegion,
             params = new TextureRegionParameters( prefix );
         }
         Array<AssetDescriptor> deps = new Array<AssetDescriptor>(1);
-        deps.add(new AssetDescriptor<Texture>( params.source, Texture.class));
+        if (params.region != null) {
+            deps.add(new AssetDescriptor<TextureAtlas>( params.source, TextureAtlas.class));
+        } else {
+            deps.add(new AssetDescriptor<Texture>( params.source, Texture.class));
+        }
         return deps;
     }
 
@@ -304,7 +304,7 @@ public abstract class GameMode implements Screen {
 	 */
 	public void gatherAssets(AssetDirectory directory) {
 		// Allocate the tiles
-		goalTile  = new TextureRegion(directory.getEntry( "shared:goal", Texture.class ));
+		goalTile  = directory.getEntry( "shared:goal", TextureRegion.class );
 		displayFont = directory.getEntry( "shared:retro" ,BitmapFont.class);
 	}
 
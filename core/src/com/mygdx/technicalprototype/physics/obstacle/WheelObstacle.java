@@ -45,6 +45,29 @@ public class WheelObstacle extends SimpleObstacle {
 		shape.setRadius(value);
 		markDirty(true);
 	}
+
+	/**
+	 * Sets the radius of this circle without recreating the fixture
+	 *
+	 * The circle of the existing fixture is changed in place and the broadphase is told of
+	 * its new bounds, so contacts survive the change and nothing is allocated. Use this for
+	 * radii that change every step. Without a fixture, this is the same as setRadius.
+	 *
+	 * @param value  the radius of this circle
+	 */
+	public void setRadiusInPlace(float value) {
+		shape.setRadius(value);
+		if (body == null || geometry == null || isDirty()) {
+			markDirty(true);
+			return;
+		}
+		geometry.getShape().setRadius(value);
+		if (body.getType() == BodyDef.BodyType.DynamicBody) {
+			body.resetMassData();
+		}
+		// moving the body onto itself refreshes the proxies of its fixtures
+		body.setTransform(body.getPosition(), body.getAngle());
+	}
 	
 	/**
 	 * Creates a new circle at the origin.
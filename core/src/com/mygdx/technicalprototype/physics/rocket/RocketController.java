@@ -6,7 +6,6 @@ import com.badlogic.gdx.utils.JsonValue;
 import com.mygdx.technicalprototype.assets.AssetDirectory;
 
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.World;
@@ -52,8 +51,8 @@ public class RocketController extends GameMode implements ContactListener {
 	 */
 	public void gatherAssets(AssetDirectory directory) {
 		constants  = directory.getEntry( "rocket:constants", JsonValue.class );
-		rocketTexture = new TextureRegion( directory.getEntry( "prototype:ship", Texture.class ) );
-		backgroundTexture = new TextureRegion(directory.getEntry( "prototype:background", Texture.class ));
+		rocketTexture = directory.getEntry( "prototype:ship", TextureRegion.class );
+		backgroundTexture = directory.getEntry( "prototype:background", TextureRegion.class );
 
 		super.gatherAssets(directory);
 	}
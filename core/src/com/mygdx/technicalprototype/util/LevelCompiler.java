@@ -0,0 +1,49 @@
+package com.mygdx.technicalprototype.util;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.JsonReader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Compiles Tiled .tmj levels into the binary blobs read by {@link LevelData#read}.
+ *
+ * This runs at build time through the compileLevels Gradle task, without a libGDX backend.
+ * Every .tmj in the given folder gets a .lvl next to it.
+ */
+public class LevelCompiler {
+    /** Extension of the compiled level blobs */
+    public static final String EXTENSION = "lvl";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: LevelCompiler <levels folder>");
+            System.exit(1);
+        }
+        File[] files = new File(args[0]).listFiles();
+        if (files == null) {
+            throw new IOException("Not a folder: " + args[0]);
+        }
+        JsonReader reader = new JsonReader();
+        for (File file : files) {
+            if (!file.getName().endsWith(".tmj")) {
+                continue;
+            }
+            FileHandle source = new FileHandle(file);
+            LevelData level = LevelData.fromJson(reader.parse(source));
+            File target = new File(file.getParentFile(), source.nameWithoutExtension() + "." + EXTENSION);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(target)));
+            try {
+                level.write(out);
+            } finally {
+                out.close();
+            }
+            System.out.println("Compiled " + file.getName() + ": " + level.objects.size + " objects, "
+                    + file.length() + " -> " + target.length() + " bytes");
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.mygdx.technicalprototype.util;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonValue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.regex.Pattern;
+
+/**
+ * The contents of a level file, with every object already read into a typed record.
+ *
+ * Levels are authored as Tiled .tmj files. {@link LevelCompiler} turns them into compact
+ * binary blobs at build time, which {@link #read} loads without any JSON parsing. The same
+ * records are built from the JSON when a level has not been compiled.
+ *
+ * Object coordinates are in map pixels, with the compression of the level applied and y
+ * pointing up. Only the division by the drawing scale, which depends on the window size,
+ * is left to the level loader.
+ */
+public class LevelData {
+    /** Identifies a compiled level blob */
+    private static final int MAGIC = 0x54524f59;
+    /** Version of the blob layout, increase on every change */
+    private static final int VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Object kinds, in the order of the Tiled object types */
+    public static final byte RESIZEABLE = 0;
+    public static final byte STATIC_OBSTACLE = 1;
+    public static final byte TRIGGER_AREA = 2;
+    public static final byte PATH_POINT = 3;
+    public static final byte DYNAMIC_OBSTACLE = 4;
+    public static final byte REWARD = 5;
+    public static final byte ENEMY = 6;
+
+    /** A single object of the level. Only the fields of its kind are meaningful. */
+    public static class ObjectRecord {
+        public byte kind;
+        public float x;
+        public float y;
+        /** Size of trigger areas */
+        public float width;
+        public float height;
+        public float radius = 1;
+        public int id = -1;
+        /** Planet color or static obstacle type, null if unset */
+        public String type;
+        /** Planet size range and angle */
+        public int minRadius = -1;
+        public int maxRadius = 2;
+        public int angle = 180;
+        /** Trigger area swarm settings */
+        public int amount = 100;
+        public float distance = 50;
+        public float speed = 5f;
+        public boolean respawn = true;
+        /** Dynamic obstacle period */
+        public float period = 1.0f;
+    }
+
+    /** Map size in tiles */
+    public int mapWidth;
+    public int mapHeight;
+    /** Tile size in pixels, compression included */
+    public int tileWidth;
+    public int tileHeight;
+    /** The compression of the level art */
+    public int backgroundScale = 2;
+    /** The display name of the level, empty if unset */
+    public String fancyName = "";
+    /** The tileset names the tile ids refer to, in id order */
+    public String[] tilesets;
+    /** The tile ids of every tile layer */
+    public int[][] layers;
+    /** Every object of the level, in the order of the file */
+    public final Array<ObjectRecord> objects = new Array<>();
+
+    public int getMapPixelWidth() {
+        return mapWidth * tileWidth;
+    }
+
+    public int getMapPixelHeight() {
+        return mapHeight * tileHeight;
+    }
+
+    /**
+     * Reads the level from its Tiled JSON
+     *
+     * @param levelFile the parsed .tmj file
+     *
+     * @return the level data
+     */
+    public static LevelData fromJson(JsonValue levelFile) {
+        LevelData level = new LevelData();
+        int cLevel = levelFile.getInt("compressionlevel");
+        if (cLevel != -1) {
+            level.backgroundScale = cLevel;
+        }
+        level.mapHeight = levelFile.getInt("height");
+        level.mapWidth = levelFile.getInt("width");
+        level.tileWidth = levelFile.getInt("tilewidth") / level.backgroundScale;
+        level.tileHeight = levelFile.getInt("tileheight") / level.backgroundScale;
+
+        try {
+            if (levelFile.get("properties") != null) {
+                JsonValue jv = levelFile.get("properties").get(0);
+                if (jv.getString("name") != null) {
+                    level.fancyName = jv.getString("value");
+                }
+            }
+        } catch (IllegalArgumentException e) {
+        }
+
+        JsonValue tsets = levelFile.get("tilesets");
+        level.tilesets = new String[tsets.size];
+        for (int i = 0; i < tsets.size; i++) {
+            String[] t1 = tsets.get(i).getString("source").split(Pattern.quote("."));
+            String[] t2 = t1[t1.length - 2].split(Pattern.quote("/"));
+            level.tilesets[i] = t2[t2.length - 1];
+        }
+
+        Array<int[]> layers = new Array<>();
+        for (JsonValue layer = levelFile.get("layers").child; layer != null; layer = layer.next) {
+            String type = layer.getString("type");
+            if (type.equals("tilelayer")) {
+                JsonValue data = layer.get("data");
+                int[] ids = new int[level.mapWidth * level.mapHeight];
+                for (int j = 0; j < ids.length; j++) {
+                    ids[j] = data.getInt(j);
+                }
+                layers.add(ids);
+            } else if (type.equals("objectgroup")) {
+                for (JsonValue object = layer.get("objects").child; object != null; object = object.next) {
+                    ObjectRecord record = level.readObject(object);
+                    if (record != null) {
+                        level.objects.add(record);
+                    }
+                }
+            }
+        }
+        level.layers = layers.toArray(int[].class);
+        return level;
+    }
+
+    /** Reads one Tiled object, or returns null if it is of a type the game does not use */
+    private ObjectRecord readObject(JsonValue object) {
+        ObjectRecord record = new ObjectRecord();
+        switch (object.getString("type")) {
+            case "Resizeable":
+                record.kind = RESIZEABLE;
+                record.type = getProperty(object, "PlanetColor");
+                record.minRadius = getInt(object, "MinRadius", record.minRadius);
+                record.maxRadius = getInt(object, "MaxRadius", record.maxRadius);
+                record.angle = getInt(object, "angle", record.angle);
+                break;
+            case "StaticObstacle":
+                record.kind = STATIC_OBSTACLE;
+                record.type = getProperty(object, "StaticType");
+                break;
+            case "TriggerArea":
+                record.kind = TRIGGER_AREA;
+                record.amount = getInt(object, "SwarmNumber", record.amount);
+                record.distance = getFloat(object, "distance", record.distance);
+                record.speed = getFloat(object, "speed", record.speed);
+                String respawn = getProperty(object, "respawn");
+                if (respawn != null) {
+                    record.respawn = Boolean.parseBoolean(respawn);
+                }
+                break;
+            case "PathPoint":
+                record.kind = PATH_POINT;
+                break;
+            case "DynamicObstacle":
+                record.kind = DYNAMIC_OBSTACLE;
+                record.period = getFloat(object, "Period", record.period);
+                break;
+            case "Reward":
+                record.kind = REWARD;
+                break;
+            case "Enemy":
+                record.kind = ENEMY;
+                break;
+            default:
+                return null;
+        }
+        record.id = getInt(object, "id", record.id);
+        record.radius = getFloat(object, "Radius", record.radius);
+
+        int mapPixelHeight = getMapPixelHeight();
+        record.x = object.getFloat("x") / backgroundScale;
+        if (record.kind == TRIGGER_AREA) {
+            record.width = object.getFloat("width") / backgroundScale;
+            record.height = object.getFloat("height") / backgroundScale;
+            record.y = (mapPixelHeight - object.getFloat("y") / backgroundScale) - record.height;
+        } else {
+            record.y = mapPixelHeight - object.getFloat("y") / backgroundScale;
+        }
+        return record;
+    }
+
+    /** Returns the value of a custom property of a Tiled object, or null if it has none */
+    private static String getProperty(JsonValue object, String propertyname) {
+        JsonValue properties = object.get("properties");
+        try {
+            if (properties != null) {
+                for (int i = 0; i < properties.size; i++) {
+                    if (properties.get(i).getString("name").equals(propertyname)) {
+                        return properties.get(i).getString("value");
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unable to load object due to unassigned property: " + propertyname);
+        }
+        return null;
+    }
+
+    private static int getInt(JsonValue object, String propertyname, int defaultValue) {
+        String value = getProperty(object, propertyname);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static float getFloat(JsonValue object, String propertyname, float defaultValue) {
+        String value = getProperty(object, propertyname);
+        return value == null ? defaultValue : Float.parseFloat(value);
+    }
+
+    /**
+     * Writes the level as a compiled blob
+     *
+     * @param out the stream to write to
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(mapWidth);
+        out.writeInt(mapHeight);
+        out.writeInt(tileWidth);
+        out.writeInt(tileHeight);
+        out.writeInt(backgroundScale);
+        writeString(out, fancyName);
+        out.writeInt(tilesets.length);
+        for (String name : tilesets) {
+            writeString(out, name);
+        }
+        out.writeInt(layers.length);
+        for (int[] layer : layers) {
+            for (int id : layer) {
+                out.writeInt(id);
+            }
+        }
+        out.writeInt(objects.size);
+        for (ObjectRecord record : objects) {
+            out.writeByte(record.kind);
+            out.writeFloat(record.x);
+            out.writeFloat(record.y);
+            out.writeFloat(record.radius);
+            out.writeInt(record.id);
+            switch (record.kind) {
+                case RESIZEABLE:
+                    writeString(out, record.type);
+                    out.writeInt(record.minRadius);
+                    out.writeInt(record.maxRadius);
+                    out.writeInt(record.angle);
+                    break;
+                case STATIC_OBSTACLE:
+                    writeString(out, record.type);
+                    break;
+                case TRIGGER_AREA:
+                    out.writeFloat(record.width);
+                    out.writeFloat(record.height);
+                    out.writeInt(record.amount);
+                    out.writeFloat(record.distance);
+                    out.writeFloat(record.speed);
+                    out.writeBoolean(record.respawn);
+                    break;
+                case DYNAMIC_OBSTACLE:
+                    out.writeFloat(record.period);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns whether a compiled blob was written by this version of {@link #write}. The blob
+     * is left where it is.
+     *
+     * @param in the blob, positioned at its start
+     *
+     * @return true if the blob can be read
+     */
+    public static boolean isCurrent(ByteBuffer in) {
+        int start = in.position();
+        return in.remaining() >= 8 && in.getInt(start) == MAGIC && in.getInt(start + 4) == VERSION;
+    }
+
+    /**
+     * Reads a compiled blob written by {@link #write}
+     *
+     * @param in the blob, positioned at its start
+     *
+     * @return the level data
+     */
+    public static LevelData read(ByteBuffer in) {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new GdxRuntimeException("Level blob is not of version " + VERSION);
+        }
+        LevelData level = new LevelData();
+        level.mapWidth = in.getInt();
+        level.mapHeight = in.getInt();
+        level.tileWidth = in.getInt();
+        level.tileHeight = in.getInt();
+        level.backgroundScale = in.getInt();
+        level.fancyName = readString(in);
+        level.tilesets = new String[in.getInt()];
+        for (int i = 0; i < level.tilesets.length; i++) {
+            level.tilesets[i] = readString(in);
+        }
+        level.layers = new int[in.getInt()][level.mapWidth * level.mapHeight];
+        for (int[] layer : level.layers) {
+            in.asIntBuffer().get(layer);
+            in.position(in.position() + 4 * layer.length);
+        }
+        int count = in.getInt();
+        level.objects.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            ObjectRecord record = new ObjectRecord();
+            record.kind = in.get();
+            record.x = in.getFloat();
+            record.y = in.getFloat();
+            record.radius = in.getFloat();
+            record.id = in.getInt();
+            switch (record.kind) {
+                case RESIZEABLE:
+                    record.type = readString(in);
+                    record.minRadius = in.getInt();
+                    record.maxRadius = in.getInt();
+                    record.angle = in.getInt();
+                    break;
+                case STATIC_OBSTACLE:
+                    record.type = readString(in);
+                    break;
+                case TRIGGER_AREA:
+                    record.width = in.getFloat();
+                    record.height = in.getFloat();
+                    record.amount = in.getInt();
+                    record.distance = in.getFloat();
+                    record.speed = in.getFloat();
+                    record.respawn = in.get() != 0;
+                    break;
+                case DYNAMIC_OBSTACLE:
+                    record.period = in.getFloat();
+                    break;
+                default:
+                    break;
+            }
+            level.objects.add(record);
+        }
+        return level;
+    }
+
+    /** Writes a length-prefixed UTF-8 string, with -1 standing for null */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, UTF8);
+    }
+}
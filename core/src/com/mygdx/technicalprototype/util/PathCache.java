@@ -0,0 +1,109 @@
+package com.mygdx.technicalprototype.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the last few paths calculated from scratch, so a path the level has already seen does
+ * not have to be integrated again.
+ *
+ * A path is keyed by everything it is calculated from: the state it starts in and the size of
+ * every planet, as floats. Keys match only when every value is bit for bit the same, so a path
+ * taken from the cache is the one calculating it would give. The least recently used path goes
+ * when the cache is full, and its buffer is reused for the new one.
+ */
+public class PathCache {
+    /** A key that compares the values of its array */
+    private static class Key {
+        private final float[] values;
+        private final int hash;
+
+        Key(float[] values) {
+            this.values = values;
+            hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(values, ((Key) o).values);
+        }
+    }
+
+    private final int capacity;
+    /** The paths, least recently used first */
+    private final LinkedHashMap<Key, TrajectoryBuffer> entries;
+    private int hits;
+    private int misses;
+
+    /**
+     * Creates an empty cache
+     *
+     * @param capacity the number of paths kept
+     */
+    public PathCache(int capacity) {
+        this.capacity = capacity;
+        entries = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+    }
+
+    /**
+     * Returns the path stored under a key, and counts the lookup as a hit or a miss
+     *
+     * @param key the values the path is calculated from
+     *
+     * @return the path, which must not be changed, or null if it is not stored
+     */
+    public TrajectoryBuffer get(float[] key) {
+        TrajectoryBuffer path = entries.get(new Key(key));
+        if (path == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return path;
+    }
+
+    /**
+     * Stores a copy of a path, dropping the least recently used one if the cache is full
+     *
+     * @param key  the values the path is calculated from, which must not be changed afterwards
+     * @param path the path to copy
+     */
+    public void put(float[] key, TrajectoryBuffer path) {
+        if (capacity <= 0) {
+            return;
+        }
+        TrajectoryBuffer copy = null;
+        if (entries.size() >= capacity) {
+            Iterator<Map.Entry<Key, TrajectoryBuffer>> eldest = entries.entrySet().iterator();
+            copy = eldest.next().getValue();
+            eldest.remove();
+        }
+        if (copy == null) {
+            copy = new TrajectoryBuffer(path.capacity());
+        }
+        copy.set(path);
+        entries.put(new Key(key), copy);
+    }
+
+    /** Drops every path; the counters are kept */
+    public void clear() {
+        entries.clear();
+    }
+
+    /** Returns the number of lookups that found a path */
+    public int getHits() {
+        return hits;
+    }
+
+    /** Returns the number of lookups that found nothing */
+    public int getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,375 @@
+package com.mygdx.technicalprototype.util;
+
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Stores the predicted trajectory of the ship in primitive float rings.
+ *
+ * The trajectory is a single line of points running from the far end of the backwards path,
+ * through the ship, to the far end of the forwards path. A head index marks the point the ship
+ * is on, so moving the ship along the path only moves the head and never shifts or allocates.
+ * Forward point 0 is the head, backward point 0 is the point just behind it.
+ *
+ * Velocities are stored in the forwards direction. Backward velocities are negated on the way
+ * in and out, so callers see the same values the old backwards lists held.
+ *
+ * Points also have an absolute index, which only changes when the buffer is cleared, so readers
+ * that mirror the path can update just the points that were added since they last looked. See
+ * {@link #getStart}, {@link #getEnd} and {@link #markSynced}.
+ *
+ * The points are also grouped into the lines and arcs they lie on, see {@link #getSegments}.
+ */
+public class TrajectoryBuffer {
+    /** Initial capacity, enough for both directions of the path plus a few orbits */
+    private static final int DEFAULT_CAPACITY = 16384;
+
+    private float[] posX;
+    private float[] posY;
+    private float[] velX;
+    private float[] velY;
+    /** Capacity - 1; the capacity is always a power of two */
+    private int mask;
+    /** Physical index of the far end of the backwards path */
+    private int first;
+    /** Number of points behind the head */
+    private int backCount;
+    /** Number of points from the head onwards */
+    private int forwardCount;
+    /** Absolute index of the far end of the backwards path; first is this masked */
+    private int start;
+    /** Bumped whenever points may have changed without being added, such as on clear */
+    private int generation;
+    /** The range of absolute indices left untouched since the last call to markSynced */
+    private int syncedStart, syncedEnd;
+    /** The lines and arcs the points lie on */
+    private final TrajectorySegments segments = new TrajectorySegments();
+
+    public TrajectoryBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty trajectory
+     *
+     * @param capacity initial number of points, rounded up to a power of two
+     */
+    public TrajectoryBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        posX = new float[size];
+        posY = new float[size];
+        velX = new float[size];
+        velY = new float[size];
+        mask = size - 1;
+    }
+
+    /** Removes every point in both directions */
+    public void clear() {
+        first = 0;
+        start = 0;
+        backCount = 0;
+        forwardCount = 0;
+        segments.clear();
+        generation++;
+    }
+
+    /**
+     * Makes this buffer a copy of another, with every point at the same absolute index
+     *
+     * @param other the trajectory to copy
+     */
+    public void set(TrajectoryBuffer other) {
+        int total = other.backCount + other.forwardCount;
+        if (mask < other.mask) {
+            posX = new float[other.mask + 1];
+            posY = new float[other.mask + 1];
+            velX = new float[other.mask + 1];
+            velY = new float[other.mask + 1];
+            mask = other.mask;
+        }
+        if (mask == other.mask) {
+            System.arraycopy(other.posX, 0, posX, 0, mask + 1);
+            System.arraycopy(other.posY, 0, posY, 0, mask + 1);
+            System.arraycopy(other.velX, 0, velX, 0, mask + 1);
+            System.arraycopy(other.velY, 0, velY, 0, mask + 1);
+        } else {
+            for (int i = other.start; i < other.start + total; i++) {
+                posX[i & mask] = other.posX[i & other.mask];
+                posY[i & mask] = other.posY[i & other.mask];
+                velX[i & mask] = other.velX[i & other.mask];
+                velY[i & mask] = other.velY[i & other.mask];
+            }
+        }
+        start = other.start;
+        first = start & mask;
+        backCount = other.backCount;
+        forwardCount = other.forwardCount;
+        segments.set(other.segments);
+        generation++;
+    }
+
+    /** Returns the number of points the buffer can hold before it grows */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Returns a counter that changes whenever a reader has to copy the whole path again */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /** Returns the absolute index of the far end of the backwards path */
+    public int getStart() {
+        return start;
+    }
+
+    /** Returns the absolute index just past the far end of the forwards path */
+    public int getEnd() {
+        return start + backCount + forwardCount;
+    }
+
+    /** Returns the absolute index of the point the ship is on */
+    public int getHead() {
+        return start + backCount;
+    }
+
+    /** Returns the lines and arcs the points lie on, by absolute index */
+    public TrajectorySegments getSegments() {
+        return segments;
+    }
+
+    /** Returns the x coordinate of the point at an absolute index */
+    public float getX(int index) {
+        return posX[index & mask];
+    }
+
+    /** Returns the y coordinate of the point at an absolute index */
+    public float getY(int index) {
+        return posY[index & mask];
+    }
+
+    /**
+     * Returns the start of the range of absolute indices whose points are unchanged since the
+     * last call to markSynced, provided the generation is also unchanged
+     */
+    public int getSyncedStart() {
+        return syncedStart;
+    }
+
+    /** Returns the end of the range of unchanged points, see getSyncedStart */
+    public int getSyncedEnd() {
+        return syncedEnd;
+    }
+
+    /** Records that a reader has copied every point currently in the path */
+    public void markSynced() {
+        syncedStart = start;
+        syncedEnd = getEnd();
+    }
+
+    public int forwardSize() {
+        return forwardCount;
+    }
+
+    public int backwardSize() {
+        return backCount;
+    }
+
+    private int forwardSlot(int i) {
+        return (first + backCount + i) & mask;
+    }
+
+    private int backwardSlot(int i) {
+        return (first + backCount - 1 - i) & mask;
+    }
+
+    public float forwardX(int i) {
+        return posX[forwardSlot(i)];
+    }
+
+    public float forwardY(int i) {
+        return posY[forwardSlot(i)];
+    }
+
+    public float backwardX(int i) {
+        return posX[backwardSlot(i)];
+    }
+
+    public float backwardY(int i) {
+        return posY[backwardSlot(i)];
+    }
+
+    /**
+     * Copies the i-th point ahead of the ship into out
+     *
+     * @return out, for chaining
+     */
+    public Vector2 getForward(int i, Vector2 out) {
+        int s = forwardSlot(i);
+        return out.set(posX[s], posY[s]);
+    }
+
+    /**
+     * Copies the velocity at the i-th point ahead of the ship into out
+     *
+     * @return out, for chaining
+     */
+    public Vector2 getForwardVel(int i, Vector2 out) {
+        int s = forwardSlot(i);
+        return out.set(velX[s], velY[s]);
+    }
+
+    /**
+     * Copies the i-th point behind the ship into out
+     *
+     * @return out, for chaining
+     */
+    public Vector2 getBackward(int i, Vector2 out) {
+        int s = backwardSlot(i);
+        return out.set(posX[s], posY[s]);
+    }
+
+    /**
+     * Copies the velocity at the i-th point behind the ship into out. The velocity points
+     * backwards, away from the ship.
+     *
+     * @return out, for chaining
+     */
+    public Vector2 getBackwardVel(int i, Vector2 out) {
+        int s = backwardSlot(i);
+        return out.set(-velX[s], -velY[s]);
+    }
+
+    /**
+     * Returns whether the forwards velocity at point i equals the given velocity
+     */
+    public boolean forwardVelEquals(int i, Vector2 vel) {
+        int s = forwardSlot(i);
+        return velX[s] == vel.x && velY[s] == vel.y;
+    }
+
+    /**
+     * Returns whether the backwards velocities at points i and j are equal
+     */
+    public boolean backwardVelsEqual(int i, int j) {
+        int a = backwardSlot(i);
+        int b = backwardSlot(j);
+        return velX[a] == velX[b] && velY[a] == velY[b];
+    }
+
+    /**
+     * Appends a point in free flight to the far end of the forwards path
+     *
+     * @param vx x velocity, in the forwards direction
+     * @param vy y velocity, in the forwards direction
+     */
+    public void addForward(float x, float y, float vx, float vy) {
+        addForward(x, y, vx, vy, TrajectorySegments.LINE);
+    }
+
+    /**
+     * Appends a point to the far end of the forwards path
+     *
+     * @param vx x velocity, in the forwards direction
+     * @param vy y velocity, in the forwards direction
+     * @param kind whether the point is on a TrajectorySegments.LINE or ARC
+     */
+    public void addForward(float x, float y, float vx, float vy, int kind) {
+        ensureCapacity(backCount + forwardCount + 1);
+        int s = (first + backCount + forwardCount) & mask;
+        posX[s] = x;
+        posY[s] = y;
+        velX[s] = vx;
+        velY[s] = vy;
+        segments.addForward(getEnd(), x, y, kind);
+        forwardCount++;
+    }
+
+    /**
+     * Appends a point in free flight to the far end of the backwards path
+     *
+     * @param vx x velocity, in the backwards direction
+     * @param vy y velocity, in the backwards direction
+     */
+    public void addBackward(float x, float y, float vx, float vy) {
+        addBackward(x, y, vx, vy, TrajectorySegments.LINE);
+    }
+
+    /**
+     * Appends a point to the far end of the backwards path
+     *
+     * @param vx x velocity, in the backwards direction
+     * @param vy y velocity, in the backwards direction
+     * @param kind whether the point is on a TrajectorySegments.LINE or ARC
+     */
+    public void addBackward(float x, float y, float vx, float vy, int kind) {
+        ensureCapacity(backCount + forwardCount + 1);
+        first = (first - 1) & mask;
+        start--;
+        posX[first] = x;
+        posY[first] = y;
+        velX[first] = -vx;
+        velY[first] = -vy;
+        segments.addBackward(start, x, y, kind);
+        backCount++;
+    }
+
+    /** Keeps only the first size points ahead of the ship */
+    public void truncateForward(int size) {
+        forwardCount = Math.max(0, Math.min(size, forwardCount));
+        syncedEnd = Math.min(syncedEnd, getEnd());
+        segments.truncateForward(getEnd());
+    }
+
+    /** Keeps only the first size points behind the ship */
+    public void truncateBackward(int size) {
+        int keep = Math.max(0, Math.min(size, backCount));
+        first = (first + backCount - keep) & mask;
+        start += backCount - keep;
+        backCount = keep;
+        syncedStart = Math.max(syncedStart, start);
+        segments.truncateBackward(start);
+    }
+
+    /**
+     * Moves the ship along the path. Positive amounts move forwards, negative ones backwards.
+     * At least one point is always left on either side of the head.
+     *
+     * @param amount number of points to move by
+     * @return the number of points actually moved, which is limited by the path length
+     */
+    public int moveForward(int amount) {
+        if (amount > 0) {
+            amount = Math.max(0, Math.min(amount, forwardCount - 1));
+        } else {
+            amount = -Math.max(0, Math.min(-amount, backCount - 1));
+        }
+        backCount += amount;
+        forwardCount -= amount;
+        return amount;
+    }
+
+    /** Grows the rings when a path becomes longer than anything seen so far */
+    private void ensureCapacity(int size) {
+        if (size <= mask + 1) {
+            return;
+        }
+        int capacity = (mask + 1) << 1;
+        int total = backCount + forwardCount;
+        posX = unroll(posX, capacity, total);
+        posY = unroll(posY, capacity, total);
+        velX = unroll(velX, capacity, total);
+        velY = unroll(velY, capacity, total);
+        first = start & (capacity - 1);
+        mask = capacity - 1;
+        generation++;
+    }
+
+    /** Copies a ring into a larger one, keeping each point at its absolute index */
+    private float[] unroll(float[] ring, int capacity, int total) {
+        float[] result = new float[capacity];
+        for (int i = 0; i < total; i++) {
+            result[(start + i) & (capacity - 1)] = ring[(first + i) & mask];
+        }
+        return result;
+    }
+}
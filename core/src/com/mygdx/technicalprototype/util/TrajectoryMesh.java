@@ -0,0 +1,211 @@
+package com.mygdx.technicalprototype.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.mygdx.technicalprototype.GameCanvas;
+
+/**
+ * Draws the predicted trajectory as one triangle strip.
+ *
+ * The mesh mirrors the ring of the {@link TrajectoryBuffer}: the point at absolute index i
+ * always has its two vertices in slot i modulo the capacity. Points the path adds at either
+ * end are therefore written in place, and only those are sent to the graphics card. The whole
+ * mesh is only rebuilt when the path is cleared or grows. The index buffer runs around the
+ * ring twice, so the live part of the path is one contiguous range of indices even when it
+ * wraps, and draws in a single call.
+ *
+ * Vertices are in world pixels, so the mesh does not change as the ship moves. The shader
+ * shifts them to the screen, widens the line along the normals, fades it out with the distance
+ * from the ship and cuts it into dashes.
+ */
+public class TrajectoryMesh {
+    /** Floats per vertex: position, normal and distance along the path */
+    private static final int VERTEX_SIZE = 5;
+    /** Floats per path point, one vertex on either side */
+    private static final int POINT_SIZE = 2 * VERTEX_SIZE;
+    /** The most points the 16 bit indices can address */
+    private static final int MAX_POINTS = 1 << 15;
+
+    /** Width of the line in pixels */
+    private static final float WIDTH = 2;
+    /** Distance from the ship, in pixels along the path, at which the line has faded out */
+    private static final float FADE = 2400;
+    /** Length of a dash and the gap after it, in pixels */
+    private static final float DASH = 12;
+    /** Fraction of the dash length that is drawn */
+    private static final float DUTY = 0.35f;
+
+    private final ShaderProgram shader;
+    private final Color color = new Color(Color.WHITE);
+
+    private Mesh mesh;
+    /** Copy of the vertices, which the changed ranges are uploaded from */
+    private float[] vertices;
+    /** Distance along the path of every point, by slot */
+    private float[] distance;
+    /** Capacity - 1 of the mirrored ring */
+    private int mask = -1;
+    /** Generation of the buffer when it was last copied */
+    private int generation;
+    /** The range of absolute indices the mesh holds */
+    private int start, end;
+
+    private final Vector2 normal = new Vector2();
+
+    public TrajectoryMesh() {
+        shader = GameCanvas.createShader(
+                Gdx.files.internal("troy/shaders/trajectory.vert").readString(),
+                Gdx.files.internal("troy/shaders/trajectory.frag").readString());
+    }
+
+    /**
+     * Draws the trajectory. The sprite batch of the canvas must not be active.
+     *
+     * @param canvas  Drawing context
+     * @param path    the trajectory to draw
+     * @param shipPos the ship position in world pixels, which is drawn at the centre of the screen
+     * @param viewLag the offset of the view on frames between simulation steps, in pixels
+     */
+    public void draw(GameCanvas canvas, TrajectoryBuffer path, Vector2 shipPos, Vector2 viewLag) {
+        sync(path);
+        if (end - start < 2) {
+            return;
+        }
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        shader.bind();
+        shader.setUniformMatrix("u_projTrans", canvas.getCamera().combined);
+        shader.setUniformf("u_offset", canvas.getWidth() / 2 - shipPos.x + viewLag.x,
+                canvas.getHeight() / 2 - shipPos.y + viewLag.y);
+        shader.setUniformf("u_width", WIDTH);
+        shader.setUniformf("u_head", distance[path.getHead() & mask]);
+        shader.setUniformf("u_fade", FADE);
+        shader.setUniformf("u_dash", DASH);
+        shader.setUniformf("u_duty", DUTY);
+        shader.setUniformf("u_color", color);
+        mesh.render(shader, GL20.GL_TRIANGLE_STRIP, 2 * (start & mask), 2 * (end - start));
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+    }
+
+    /** Brings the mesh up to date with the path, uploading only the points that changed */
+    private void sync(TrajectoryBuffer path) {
+        int newStart = path.getStart();
+        int newEnd = path.getEnd();
+        if (mask != path.capacity() - 1) {
+            allocate(path.capacity());
+        }
+
+        if (generation != path.getGeneration() || end <= start) {
+            generation = path.getGeneration();
+            start = newStart;
+            end = newEnd;
+            if (end > start) {
+                distance[start & mask] = 0;
+                for (int i = start + 1; i < end; i++) {
+                    distance[i & mask] = distance[(i - 1) & mask] + segment(path, i - 1, i);
+                }
+                write(path, start, end);
+            }
+        } else {
+            // points in the kept range are unchanged, everything outside it was added
+            int keptStart = Math.max(start, path.getSyncedStart());
+            int keptEnd = Math.min(end, path.getSyncedEnd());
+            if (keptEnd <= keptStart) {
+                generation = path.getGeneration() - 1;
+                sync(path);
+                return;
+            }
+            start = newStart;
+            end = newEnd;
+            for (int i = keptEnd; i < end; i++) {
+                distance[i & mask] = distance[(i - 1) & mask] + segment(path, i - 1, i);
+            }
+            for (int i = keptStart - 1; i >= start; i--) {
+                distance[i & mask] = distance[(i + 1) & mask] - segment(path, i, i + 1);
+            }
+            // the normals of the old end points change once they have a new neighbour
+            if (start < keptStart) {
+                write(path, start, Math.min(keptStart + 1, end));
+            }
+            if (keptEnd < end) {
+                write(path, Math.max(keptEnd - 1, start), end);
+            }
+        }
+        path.markSynced();
+    }
+
+    /** Creates the mesh for a ring of the given number of points */
+    private void allocate(int capacity) {
+        if (capacity > MAX_POINTS) {
+            throw new GdxRuntimeException("Trajectory of " + capacity + " points is too long for the mesh");
+        }
+        if (mesh != null) {
+            mesh.dispose();
+        }
+        mesh = new Mesh(false, 2 * capacity, 4 * capacity,
+                new VertexAttribute(VertexAttributes.Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE),
+                new VertexAttribute(VertexAttributes.Usage.Normal, 2, ShaderProgram.NORMAL_ATTRIBUTE),
+                new VertexAttribute(VertexAttributes.Usage.Generic, 1, "a_distance"));
+        short[] indices = new short[4 * capacity];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = (short) (i % (2 * capacity));
+        }
+        mesh.setIndices(indices);
+        vertices = new float[capacity * POINT_SIZE];
+        mesh.setVertices(vertices);
+        distance = new float[capacity];
+        mask = capacity - 1;
+        end = start;
+    }
+
+    /** Computes the vertices of the points in [from, to) and uploads them */
+    private void write(TrajectoryBuffer path, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int prev = Math.max(i - 1, start);
+            int next = Math.min(i + 1, end - 1);
+            normal.set(path.getY(prev) - path.getY(next), path.getX(next) - path.getX(prev)).nor();
+            float x = path.getX(i);
+            float y = path.getY(i);
+            float d = distance[i & mask];
+            int idx = (i & mask) * POINT_SIZE;
+            vertices[idx    ] = x;
+            vertices[idx + 1] = y;
+            vertices[idx + 2] = normal.x;
+            vertices[idx + 3] = normal.y;
+            vertices[idx + 4] = d;
+            vertices[idx + 5] = x;
+            vertices[idx + 6] = y;
+            vertices[idx + 7] = -normal.x;
+            vertices[idx + 8] = -normal.y;
+            vertices[idx + 9] = d;
+        }
+        // the range may wrap around the end of the ring
+        int first = from & mask;
+        int count = to - from;
+        int head = Math.min(count, mask + 1 - first);
+        mesh.updateVertices(first * POINT_SIZE, vertices, first * POINT_SIZE, head * POINT_SIZE);
+        if (head < count) {
+            mesh.updateVertices(0, vertices, 0, (count - head) * POINT_SIZE);
+        }
+    }
+
+    private static float segment(TrajectoryBuffer path, int a, int b) {
+        return Vector2.len(path.getX(b) - path.getX(a), path.getY(b) - path.getY(a));
+    }
+
+    public void dispose() {
+        if (mesh != null) {
+            mesh.dispose();
+            mesh = null;
+        }
+        shader.dispose();
+    }
+}
@@ -0,0 +1,230 @@
+package com.mygdx.technicalprototype.util;
+
+/**
+ * Splits a trajectory into the straight lines and orbit arcs it is made of, so that queries
+ * about where the path goes can skip whole stretches of it instead of testing every point.
+ *
+ * Each segment is a run of consecutive points of one kind, by absolute index, together with
+ * the bounding box of those points. Long runs are split every MAX_LENGTH points to keep the
+ * boxes tight around diagonal lines. A box is never smaller than the points it covers, so a
+ * point can only be near a segment whose box is near it; points still have to be tested one by
+ * one inside the segments that pass. Segments are kept in order of absolute index, from the far
+ * end of the backwards path to the far end of the forwards path, and are maintained by the
+ * {@link TrajectoryBuffer} that owns them.
+ */
+public class TrajectorySegments {
+    /** Points in free flight, on a straight line */
+    public static final int LINE = 0;
+    /** Points in an orbit, on an arc around a planet */
+    public static final int ARC = 1;
+
+    /** Most points in one segment */
+    private static final int MAX_LENGTH = 128;
+    private static final int DEFAULT_CAPACITY = 256;
+
+    /** Absolute index of the first point of each segment, and one past the last */
+    private int[] from;
+    private int[] to;
+    private int[] kind;
+    private float[] minX;
+    private float[] minY;
+    private float[] maxX;
+    private float[] maxY;
+    /** Capacity - 1; the segments are a ring that grows at both ends */
+    private int mask;
+    /** Physical index of the first segment */
+    private int first;
+    private int count;
+    /** Whether points may still be added to the segment at either end; cut segments are closed */
+    private boolean backOpen;
+    private boolean forwardOpen;
+
+    TrajectorySegments() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        from = new int[capacity];
+        to = new int[capacity];
+        kind = new int[capacity];
+        minX = new float[capacity];
+        minY = new float[capacity];
+        maxX = new float[capacity];
+        maxY = new float[capacity];
+        mask = capacity - 1;
+    }
+
+    /** Returns the number of segments */
+    public int size() {
+        return count;
+    }
+
+    /** Returns the absolute index of the first point of segment i */
+    public int getFrom(int i) {
+        return from[(first + i) & mask];
+    }
+
+    /** Returns the absolute index just past the last point of segment i */
+    public int getTo(int i) {
+        return to[(first + i) & mask];
+    }
+
+    /** Returns whether segment i is a LINE or an ARC */
+    public int getKind(int i) {
+        return kind[(first + i) & mask];
+    }
+
+    /**
+     * Returns the squared distance from a point to the bounding box of segment i, which is 0
+     * if the point is inside the box
+     */
+    public float distance2(int i, float x, float y) {
+        int s = (first + i) & mask;
+        float dx = Math.max(0, Math.max(minX[s] - x, x - maxX[s]));
+        float dy = Math.max(0, Math.max(minY[s] - y, y - maxY[s]));
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Returns the segment holding a point, by binary search
+     *
+     * @param index the absolute index of the point
+     * @return the position of the segment, or -1 if no segment holds the point
+     */
+    public int find(int index) {
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getTo(mid) <= index) {
+                lo = mid + 1;
+            } else if (getFrom(mid) > index) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    void clear() {
+        first = 0;
+        count = 0;
+        backOpen = false;
+        forwardOpen = false;
+    }
+
+    /** Records a point added at the far end of the forwards path */
+    void addForward(int index, float x, float y, int type) {
+        int s = (first + count - 1) & mask;
+        if (forwardOpen && count > 0 && to[s] == index && kind[s] == type && to[s] - from[s] < MAX_LENGTH) {
+            to[s]++;
+            grow(s, x, y);
+            return;
+        }
+        ensureCapacity();
+        s = (first + count) & mask;
+        count++;
+        start(s, index, x, y, type);
+        forwardOpen = true;
+        backOpen |= count == 1;
+    }
+
+    /** Records a point added at the far end of the backwards path */
+    void addBackward(int index, float x, float y, int type) {
+        int s = first;
+        if (backOpen && count > 0 && from[s] == index + 1 && kind[s] == type && to[s] - from[s] < MAX_LENGTH) {
+            from[s]--;
+            grow(s, x, y);
+            return;
+        }
+        ensureCapacity();
+        first = (first - 1) & mask;
+        count++;
+        start(first, index, x, y, type);
+        backOpen = true;
+        forwardOpen |= count == 1;
+    }
+
+    /** Drops the segments past a new end of the forwards path */
+    void truncateForward(int end) {
+        while (count > 0 && getFrom(count - 1) >= end) {
+            count--;
+        }
+        if (count > 0 && getTo(count - 1) > end) {
+            to[(first + count - 1) & mask] = end;
+            forwardOpen = false;
+        }
+    }
+
+    /** Drops the segments before a new start of the backwards path */
+    void truncateBackward(int start) {
+        while (count > 0 && getTo(0) <= start) {
+            first = (first + 1) & mask;
+            count--;
+        }
+        if (count > 0 && getFrom(0) < start) {
+            from[first] = start;
+            backOpen = false;
+        }
+    }
+
+    /** Makes these segments a copy of another set */
+    void set(TrajectorySegments other) {
+        if (mask + 1 < other.count) {
+            allocate(other.mask + 1);
+        }
+        first = 0;
+        count = other.count;
+        for (int i = 0; i < count; i++) {
+            int s = (other.first + i) & other.mask;
+            from[i] = other.from[s];
+            to[i] = other.to[s];
+            kind[i] = other.kind[s];
+            minX[i] = other.minX[s];
+            minY[i] = other.minY[s];
+            maxX[i] = other.maxX[s];
+            maxY[i] = other.maxY[s];
+        }
+        backOpen = other.backOpen;
+        forwardOpen = other.forwardOpen;
+    }
+
+    private void start(int s, int index, float x, float y, int type) {
+        from[s] = index;
+        to[s] = index + 1;
+        kind[s] = type;
+        minX[s] = x;
+        maxX[s] = x;
+        minY[s] = y;
+        maxY[s] = y;
+    }
+
+    private void grow(int s, float x, float y) {
+        minX[s] = Math.min(minX[s], x);
+        maxX[s] = Math.max(maxX[s], x);
+        minY[s] = Math.min(minY[s], y);
+        maxY[s] = Math.max(maxY[s], y);
+    }
+
+    /** Doubles the ring when it is full, keeping the segments in order */
+    private void ensureCapacity() {
+        if (count <= mask) {
+            return;
+        }
+        int[] oldFrom = from, oldTo = to, oldKind = kind;
+        float[] oldMinX = minX, oldMinY = minY, oldMaxX = maxX, oldMaxY = maxY;
+        int oldMask = mask;
+        allocate((mask + 1) << 1);
+        for (int i = 0; i < count; i++) {
+            int s = (first + i) & oldMask;
+            from[i] = oldFrom[s];
+            to[i] = oldTo[s];
+            kind[i] = oldKind[s];
+            minX[i] = oldMinX[s];
+            minY[i] = oldMinY[s];
+            maxX[i] = oldMaxX[s];
+            maxY[i] = oldMaxY[s];
+        }
+        first = 0;
+    }
+}
@@ -0,0 +1,56 @@
+package com.mygdx.technicalprototype.desktop.headless;
+
+import com.badlogic.gdx.backends.headless.mock.graphics.MockGraphics;
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+ * The graphics of the headless backend, given the size of a real window.
+ *
+ * The game lays out its physics against the screen size, so a window of zero pixels would
+ * simulate a different level than the one on screen. This reports a fixed size instead, and
+ * the context that draws nothing.
+ */
+public class HeadlessGraphics extends MockGraphics {
+	/** The size of the simulated window */
+	private final int width, height;
+	/** The context that accepts all calls */
+	private final GL20 gl;
+
+	/**
+	 * Creates the graphics of a simulated window
+	 *
+	 * @param width  the window width in pixels
+	 * @param height the window height in pixels
+	 * @param gl     the context to report
+	 */
+	public HeadlessGraphics(int width, int height, GL20 gl) {
+		this.width = width;
+		this.height = height;
+		this.gl = gl;
+	}
+
+	@Override
+	public GL20 getGL20() {
+		return gl;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getBackBufferWidth() {
+		return width;
+	}
+
+	@Override
+	public int getBackBufferHeight() {
+		return height;
+	}
+}
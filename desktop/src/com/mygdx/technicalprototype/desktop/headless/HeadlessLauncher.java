@@ -0,0 +1,48 @@
+package com.mygdx.technicalprototype.desktop.headless;
+
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+
+/**
+ * Plays a level without a window, for measuring the cost of the simulation.
+ *
+ * Usage: HeadlessLauncher level [--steps n] [--runs n] [--script file] [--size width height]
+ *
+ * The level is a level number or the path of a .tmj file. It runs from the assets folder,
+ * like the game. See {@link ScriptedInput} for the script format.
+ */
+public class HeadlessLauncher {
+
+	public static void main(String[] arg) {
+		if (arg.length == 0) {
+			System.err.println("usage: HeadlessLauncher level [--steps n] [--runs n] [--script file] [--size width height]");
+			System.exit(1);
+		}
+		String level = arg[0];
+		int steps = 3600;
+		int runs = 1;
+		String script = null;
+		int width = 1280;
+		int height = 720;
+		for (int i = 1; i < arg.length; i++) {
+			if (arg[i].equals("--steps")) {
+				steps = Integer.parseInt(arg[++i]);
+			} else if (arg[i].equals("--runs")) {
+				runs = Integer.parseInt(arg[++i]);
+			} else if (arg[i].equals("--script")) {
+				script = arg[++i];
+			} else if (arg[i].equals("--size")) {
+				width = Integer.parseInt(arg[++i]);
+				height = Integer.parseInt(arg[++i]);
+			} else {
+				System.err.println("unknown option " + arg[i]);
+				System.exit(1);
+			}
+		}
+
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		// everything happens in create, so the loop does not need to wait between frames
+		config.updatesPerSecond = -1;
+		new HeadlessApplication(new HeadlessRunner(level, steps, runs, script, width, height), config);
+	}
+}
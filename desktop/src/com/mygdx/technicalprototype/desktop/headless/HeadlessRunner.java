@@ -0,0 +1,152 @@
+package com.mygdx.technicalprototype.desktop.headless;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.JsonReader;
+import com.mygdx.technicalprototype.AssetController;
+import com.mygdx.technicalprototype.GameCanvas;
+import com.mygdx.technicalprototype.LevelMode;
+import com.mygdx.technicalprototype.assets.AssetDirectory;
+import com.mygdx.technicalprototype.util.LevelData;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Plays a level without a window, and reports how long the simulation took.
+ *
+ * Each run loads the level from scratch and advances it a fixed number of steps, exactly as
+ * the game does between frames, with input replayed from a script. Nothing is drawn and no
+ * sound is played. A run ends early when the level is completed or failed.
+ *
+ * The game keeps its assets and input in static state, so a process plays one level at a
+ * time. Start several processes to play many at once.
+ */
+public class HeadlessRunner extends ApplicationAdapter {
+	/** The level number, or the path of a .tmj file */
+	private final String level;
+	/** Steps to simulate per run */
+	private final int steps;
+	/** Number of runs */
+	private final int runs;
+	/** The input script, or null for no input */
+	private final String script;
+	/** The size of the simulated window */
+	private final int width, height;
+
+	private GameCanvas canvas;
+	private AssetDirectory directory;
+
+	/**
+	 * Creates a runner for a level
+	 *
+	 * @param level  the level number, or the path of a .tmj file
+	 * @param steps  the steps to simulate per run
+	 * @param runs   the number of runs
+	 * @param script the input script, or null for no input
+	 * @param width  the width of the simulated window
+	 * @param height the height of the simulated window
+	 */
+	public HeadlessRunner(String level, int steps, int runs, String script, int width, int height) {
+		this.level = level;
+		this.steps = steps;
+		this.runs = runs;
+		this.script = script;
+		this.width = width;
+		this.height = height;
+	}
+
+	@Override
+	public void create() {
+		GL20 gl = new NullGL20();
+		Gdx.gl = gl;
+		Gdx.gl20 = gl;
+		Gdx.graphics = new HeadlessGraphics(width, height, gl);
+		ScriptedInput input = script == null ? new ScriptedInput() : new ScriptedInput(file(script));
+		Gdx.input = input;
+
+		long start = System.nanoTime();
+		canvas = new GameCanvas();
+		directory = new AssetDirectory("assets.json");
+		directory.loadAssets();
+		directory.finishLoading();
+		System.out.printf("assets loaded in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+		boolean numbered = level.matches("\\d+");
+		LevelData data = numbered ? null : LevelData.fromJson(new JsonReader().parse(file(level)));
+		long[] times = new long[steps];
+		for (int run = 1; run <= runs; run++) {
+			start = System.nanoTime();
+			LevelMode mode = new LevelMode(numbered ? Integer.parseInt(level) : 1, null);
+			mode.setCanvas(canvas);
+			if (numbered) {
+				AssetController.prepareLevel(directory, mode.getScale());
+			} else {
+				AssetController.prepareLevel(data, mode.getScale());
+			}
+			mode.gatherAssets(directory);
+			mode.reset();
+			mode.show();
+			long load = System.nanoTime() - start;
+
+			input.rewind();
+			int count = 0;
+			while (count < steps && !mode.isComplete() && !mode.isFailed()) {
+				input.advance(count);
+				// every step is a frame of its own here, which render would read the key for
+				if (input.isKeyJustPressed(Input.Keys.SPACE)) {
+					mode.requestStarBlast();
+				}
+				start = System.nanoTime();
+				mode.step();
+				times[count++] = System.nanoTime() - start;
+			}
+			report(run, load, times, count, mode.isComplete() ? "complete" : mode.isFailed() ? "failed" : "running");
+			System.out.printf("path cache: %d hits, %d misses%n", mode.getPathCache().getHits(), mode.getPathCache().getMisses());
+			mode.dispose();
+		}
+		Gdx.app.exit();
+	}
+
+	/** Prints the timings of a run, in milliseconds */
+	private void report(int run, long load, long[] times, int count, String outcome) {
+		long total = 0;
+		for (int i = 0; i < count; i++) {
+			total += times[i];
+		}
+		Arrays.sort(times, 0, count);
+		System.out.printf("run %d: %s after %d steps, load %.1f ms, total %.1f ms, mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+				run, outcome, count, load / 1e6, total / 1e6,
+				count == 0 ? 0 : total / 1e6 / count,
+				percentile(times, count, 0.5) / 1e6,
+				percentile(times, count, 0.99) / 1e6,
+				count == 0 ? 0 : times[count - 1] / 1e6);
+	}
+
+	/** Returns the given percentile of the first count sorted times */
+	private static long percentile(long[] sorted, int count, double p) {
+		if (count == 0) {
+			return 0;
+		}
+		return sorted[Math.min(count - 1, (int) (p * count))];
+	}
+
+	/** Returns a file from a command line path, relative to the working directory */
+	private static FileHandle file(String path) {
+		return new File(path).isAbsolute() ? Gdx.files.absolute(path) : Gdx.files.local(path);
+	}
+
+	@Override
+	public void dispose() {
+		if (directory != null) {
+			directory.unloadAssets();
+			directory.dispose();
+		}
+		if (canvas != null) {
+			canvas.dispose();
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package com.mygdx.technicalprototype.desktop.headless;
+
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.backends.headless.mock.input.MockInput;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.util.Arrays;
+
+/**
+ * Input replayed from a script, one fixed step at a time.
+ *
+ * Every line of a script is an event and the step it happens on. Events must be in order of
+ * their steps. Blank lines and lines starting with # are ignored.
+ *
+ * <pre>
+ * 120 key SPACE down     presses a key, by its name in Input.Keys
+ * 121 key SPACE up       releases it
+ * 300 mouse 640 200      moves the pointer, in screen pixels from the top left
+ * 300 button LEFT down   presses a mouse button, LEFT or RIGHT
+ * 301 button LEFT up     releases it
+ * </pre>
+ *
+ * Keys and buttons stay down until released, and count as just pressed on the step they went
+ * down.
+ */
+public class ScriptedInput extends MockInput {
+	/** Kinds of events */
+	private static final int KEY = 0, MOUSE = 1, BUTTON = 2;
+
+	/** Events, as their step followed by the kind and its two values */
+	private final Array<int[]> events = new Array<>();
+
+	/** The next event to play */
+	private int next;
+	private final boolean[] keys = new boolean[Input.Keys.MAX_KEYCODE + 1];
+	private final boolean[] justKeys = new boolean[Input.Keys.MAX_KEYCODE + 1];
+	private final boolean[] buttons = new boolean[Input.Buttons.FORWARD + 1];
+	private final boolean[] justButtons = new boolean[Input.Buttons.FORWARD + 1];
+	private int pressed;
+	private int x, y;
+
+	/** Creates input where nothing is ever pressed */
+	public ScriptedInput() {
+	}
+
+	/**
+	 * Creates input replaying a script
+	 *
+	 * @param script the script file
+	 */
+	public ScriptedInput(FileHandle script) {
+		String[] lines = script.readString().split("\n");
+		int last = 0;
+		for (int i = 0; i < lines.length; i++) {
+			String line = lines[i].trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] words = line.split("\\s+");
+			try {
+				int step = Integer.parseInt(words[0]);
+				if (step < last) {
+					throw new GdxRuntimeException("Event before the one on the line above");
+				}
+				last = step;
+				if (words[1].equals("key")) {
+					int key = Input.Keys.valueOf(words[2]);
+					if (key < 0) {
+						throw new GdxRuntimeException("Unknown key " + words[2]);
+					}
+					events.add(new int[] {step, KEY, key, isDown(words[3])});
+				} else if (words[1].equals("mouse")) {
+					events.add(new int[] {step, MOUSE, Integer.parseInt(words[2]), Integer.parseInt(words[3])});
+				} else if (words[1].equals("button")) {
+					int button = words[2].equals("LEFT") ? Input.Buttons.LEFT : Input.Buttons.RIGHT;
+					events.add(new int[] {step, BUTTON, button, isDown(words[3])});
+				} else {
+					throw new GdxRuntimeException("Unknown event " + words[1]);
+				}
+			} catch (RuntimeException e) {
+				throw new GdxRuntimeException(script.name() + ":" + (i + 1) + ": cannot read \"" + line + "\"", e);
+			}
+		}
+	}
+
+	private static int isDown(String word) {
+		if (word.equals("down")) {
+			return 1;
+		} else if (word.equals("up")) {
+			return 0;
+		}
+		throw new GdxRuntimeException("Expected down or up, not " + word);
+	}
+
+	/** Rewinds the script to its first step */
+	public void rewind() {
+		next = 0;
+		pressed = 0;
+		x = y = 0;
+		Arrays.fill(keys, false);
+		Arrays.fill(buttons, false);
+		Arrays.fill(justKeys, false);
+		Arrays.fill(justButtons, false);
+	}
+
+	/**
+	 * Plays the events of a step
+	 *
+	 * @param step the step about to be simulated
+	 */
+	public void advance(int step) {
+		Arrays.fill(justKeys, false);
+		Arrays.fill(justButtons, false);
+		for (; next < events.size && events.get(next)[0] <= step; next++) {
+			int[] event = events.get(next);
+			switch (event[1]) {
+				case KEY:
+					boolean down = event[3] != 0;
+					if (down != keys[event[2]]) {
+						pressed += down ? 1 : -1;
+					}
+					justKeys[event[2]] = down && !keys[event[2]];
+					keys[event[2]] = down;
+					break;
+				case MOUSE:
+					x = event[2];
+					y = event[3];
+					break;
+				case BUTTON:
+					justButtons[event[2]] = event[3] != 0 && !buttons[event[2]];
+					buttons[event[2]] = event[3] != 0;
+					break;
+			}
+		}
+	}
+
+	@Override
+	public boolean isKeyPressed(int key) {
+		if (key == Input.Keys.ANY_KEY) {
+			return pressed > 0;
+		}
+		return key >= 0 && key < keys.length && keys[key];
+	}
+
+	@Override
+	public boolean isKeyJustPressed(int key) {
+		if (key == Input.Keys.ANY_KEY) {
+			for (boolean just : justKeys) {
+				if (just) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return key >= 0 && key < justKeys.length && justKeys[key];
+	}
+
+	@Override
+	public boolean isButtonPressed(int button) {
+		return button >= 0 && button < buttons.length && buttons[button];
+	}
+
+	@Override
+	public boolean isButtonJustPressed(int button) {
+		return button >= 0 && button < justButtons.length && justButtons[button];
+	}
+
+	@Override
+	public boolean isTouched() {
+		return buttons[Input.Buttons.LEFT];
+	}
+
+	@Override
+	public boolean justTouched() {
+		return justButtons[Input.Buttons.LEFT];
+	}
+
+	@Override
+	public int getX() {
+		return x;
+	}
+
+	@Override
+	public int getY() {
+		return y;
+	}
+}